@@ -0,0 +1,79 @@
+package edu.unl.cc.benchmark;
+
+import edu.unl.cc.exception.ColaLlenaException;
+import edu.unl.cc.exception.NombreInvalidoException;
+import edu.unl.cc.modelo.SolicitudCaso;
+import edu.unl.cc.service.CasoManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el camino completo de un caso en el gestor: recibir, atender y finalizar,
+ * con una cola de espera pequeña, mediana y muy grande.
+ * Los mensajes de consola del gestor se descartan para no medir la escritura en pantalla.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CasoManagerBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    private int tamanio;
+
+    private CasoManager casoManager;
+    private PrintStream salidaOriginal;
+
+    @Setup(Level.Trial)
+    public void silenciarConsola() {
+        salidaOriginal = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /**
+     * Se crea un gestor nuevo en cada iteración para que los casos finalizados no crezcan sin límite
+     */
+    @Setup(Level.Iteration)
+    public void preparar() throws ColaLlenaException {
+        casoManager = new CasoManager();
+        List<SolicitudCaso> solicitudes = new ArrayList<>(tamanio);
+        for (int i = 0; i < tamanio; i++) {
+            solicitudes.add(new SolicitudCaso("Estudiante", i % 10 == 0));
+        }
+        casoManager.recibirCasos(solicitudes);
+    }
+
+    @TearDown(Level.Trial)
+    public void restaurarConsola() {
+        System.setOut(salidaOriginal);
+    }
+
+    @Benchmark
+    public void recibirAtenderYFinalizar() throws NombreInvalidoException, ColaLlenaException {
+        casoManager.recibirCaso("Estudiante", false);
+        casoManager.atenderSiguienteCaso();
+        casoManager.finalizarCaso();
+    }
+}
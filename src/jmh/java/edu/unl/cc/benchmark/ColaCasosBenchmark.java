@@ -0,0 +1,76 @@
+package edu.unl.cc.benchmark;
+
+import edu.unl.cc.estructuras.ColaCasos;
+import edu.unl.cc.estructuras.ColaCasosCircular;
+import edu.unl.cc.estructuras.ColaFifo;
+import edu.unl.cc.modelo.Caso;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la cola de casos enlazada (ColaCasos) y la circular (ColaCasosCircular) con colas pequeñas, medianas y muy grandes
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColaCasosBenchmark {
+
+    @Param({"enlazada", "circular"})
+    private String implementacion;
+
+    @Param({"100", "10000", "1000000"})
+    private int tamanio;
+
+    private ColaFifo cola;
+    private Caso caso;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        cola = implementacion.equals("circular") ? new ColaCasosCircular() : new ColaCasos();
+        for (int i = 0; i < tamanio; i++) {
+            cola.agregar(new Caso(i, "Estudiante", false));
+        }
+        caso = new Caso(tamanio, "Estudiante", false);
+    }
+
+    /**
+     * Un caso entra y otro sale, la cola mantiene su tamaño
+     */
+    @Benchmark
+    public Caso agregarYAtender() {
+        cola.agregar(caso);
+        return cola.atender();
+    }
+
+    @Benchmark
+    public void recorrer(Blackhole bh) {
+        for (Caso c : cola) {
+            bh.consume(c);
+        }
+    }
+
+    @Benchmark
+    public List<Caso> getTodos() {
+        return cola.getTodos();
+    }
+}
@@ -0,0 +1,87 @@
+package edu.unl.cc.benchmark;
+
+import edu.unl.cc.estructuras.ColasFragmentadas;
+import edu.unl.cc.modelo.Caso;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide cómo escala la sala de espera con 1 a 16 hilos que reciben y atienden casos a la vez.
+ * Con fragmentos = 1 todos los hilos comparten las mismas dos colas; con fragmentos = 16 cada hilo
+ * trabaja en su propio fragmento y solo roba cuando el suyo está vacío.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ColasFragmentadasBenchmark {
+
+    @Param({"1", "16"})
+    private int fragmentos;
+
+    @Param({"100", "10000", "1000000"})
+    private int tamanio;
+
+    private ColasFragmentadas colas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        colas = new ColasFragmentadas(fragmentos);
+        for (int i = 0; i < tamanio; i++) {
+            colas.agregar(new Caso(i, "Estudiante", i % 10 == 0));
+        }
+    }
+
+    private Caso recibirYAtender() {
+        colas.agregar(new Caso(0, "Estudiante", false));
+        return colas.atender();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Caso hilos01() {
+        return recibirYAtender();
+    }
+
+    @Benchmark
+    @Threads(2)
+    public Caso hilos02() {
+        return recibirYAtender();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Caso hilos04() {
+        return recibirYAtender();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Caso hilos08() {
+        return recibirYAtender();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Caso hilos16() {
+        return recibirYAtender();
+    }
+}
@@ -0,0 +1,75 @@
+package edu.unl.cc.benchmark;
+
+import edu.unl.cc.estructuras.ListaNotas;
+import edu.unl.cc.estructuras.Nodo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide insertar, eliminar por índice y recorrer las notas de un caso con pocas, varias y muchísimas notas
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListaNotasBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    private int tamanio;
+
+    private ListaNotas notas;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        notas = new ListaNotas();
+        for (int i = 0; i < tamanio; i++) {
+            notas.insertar(new Nodo("Nota " + i));
+        }
+    }
+
+    /**
+     * Inserta una nota nueva y elimina la más reciente, la lista mantiene su tamaño
+     */
+    @Benchmark
+    public String insertarYEliminarPrimera() {
+        notas.insertar(new Nodo("Documentos recibidos"));
+        return notas.eliminarPorIndiceYObtenerTexto(0);
+    }
+
+    /**
+     * Elimina la nota del medio y la vuelve a insertar al inicio
+     */
+    @Benchmark
+    public String eliminarMedioYReinsertar() {
+        String texto = notas.eliminarPorIndiceYObtenerTexto(tamanio / 2);
+        notas.insertar(new Nodo(texto));
+        return texto;
+    }
+
+    @Benchmark
+    public void recorrer(Blackhole bh) {
+        Nodo actual = notas.getPrincipal();
+        while (actual != null) {
+            bh.consume(actual.getDato());
+            actual = actual.getSiguiente();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package edu.unl.cc.benchmark;
+
+import edu.unl.cc.estructuras.PilaAcciones;
+import edu.unl.cc.modelo.Accion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide registrar y deshacer acciones sobre pilas pequeñas, medianas y muy grandes
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PilaAccionesBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    private int tamanio;
+
+    private PilaAcciones pila;
+    private Accion accion;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        pila = new PilaAcciones();
+        for (int i = 0; i < tamanio; i++) {
+            pila.registrar(new Accion(1, Accion.Tipo.AGREGAR_NOTA, "Nota " + i));
+        }
+        accion = new Accion(1, Accion.Tipo.AGREGAR_NOTA, "Documentos recibidos");
+    }
+
+    @Benchmark
+    public Accion registrarYDeshacer() {
+        pila.registrar(accion);
+        return pila.deshacer();
+    }
+}
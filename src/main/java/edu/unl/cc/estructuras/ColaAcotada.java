@@ -0,0 +1,496 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.exception.ColaLlenaException;
+import edu.unl.cc.modelo.Caso;
+import edu.unl.cc.modelo.InstantaneaCasos.CasoGuardado;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Esta clase limita la cantidad de casos que otra cola de espera puede guardar en memoria.
+ * Cuando la cola está llena aplica una política de desborde: rechazar el caso, esperar a que se libere
+ * espacio durante un tiempo máximo, o anotar el caso en un archivo y devolverlo a la cola
+ * cuando se atiendan otros casos.
+ *
+ * Al derramar a disco se escribe el caso completo (estado, notas y bitácora) en un archivo para los
+ * urgentes y otro para los normales, en orden de llegada, y el gestor suelta el objeto Caso: mientras
+ * espera en disco solo queda en memoria su posición en el archivo. Se puede consultar por su ID, pero lo
+ * que se obtiene es una copia leída de disco; cambiarla no cambia el caso derramado. Al volver a la cola
+ * se reconstruye tal como estaba y el gestor lo registra de nuevo.
+ * Mientras quede algún caso de una prioridad en disco, los nuevos de esa prioridad también van a disco
+ * para no adelantarse; los urgentes derramados se recuperan antes que los normales y, si ya no quedan
+ * urgentes en memoria, se atienden directamente desde el disco antes que cualquier normal.
+ * Con esta política las operaciones se sincronizan sobre la cola.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ColaAcotada implements ColaAtencion {
+
+    private final ColaAtencion interna;
+    private final int capacidad;
+    private final PoliticaDesborde politica;
+    private final long esperaMaximaNanos;
+    private final Semaphore espacios; // Un permiso por cada lugar libre en memoria
+
+    // Solo para DERRAMAR_A_DISCO
+    private final ArchivoDerrame derrameUrgentes;
+    private final ArchivoDerrame derrameNormales;
+    private volatile int derramados;
+    private int urgentesEnMemoria;
+    private RegistroCasos registro;
+
+    /**
+     * Lo que la cola necesita del gestor para que los casos derramados no ocupen memoria
+     */
+    public interface RegistroCasos {
+        /**
+         * El caso se escribió en disco: el gestor deja de guardar el objeto
+         * @param caso Caso derramado
+         */
+        void derramado(Caso caso);
+
+        /**
+         * Crea un caso a partir de los datos leídos de disco, sin registrarlo en el gestor
+         * @param guardado Datos del caso
+         * @return Caso reconstruido
+         */
+        Caso reconstruir(CasoGuardado guardado);
+
+        /**
+         * El caso reconstruido salió del disco y vuelve a ser del gestor
+         * @param caso Caso recuperado
+         */
+        void recuperado(Caso caso);
+    }
+
+    /**
+     * Casos guardados en orden de llegada en un archivo, como una cola
+     * Cada registro es la longitud de los datos seguida del caso escrito con CasoGuardado
+     */
+    private static final class ArchivoDerrame {
+        private final Path ruta;
+        private final RandomAccessFile archivo;
+        private final MapaEnteros<Long> posiciones = new MapaEnteros<>(); // ID -> inicio de su registro
+        private long posicionLectura;
+        private long posicionEscritura;
+        private int cantidad;
+
+        ArchivoDerrame(Path ruta) {
+            this.ruta = ruta;
+            try {
+                this.archivo = new RandomAccessFile(ruta.toFile(), "rw");
+                this.archivo.setLength(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo abrir el archivo de derrame " + ruta, e);
+            }
+        }
+
+        void agregar(Caso caso) throws IOException {
+            ByteArrayOutputStream salida = new ByteArrayOutputStream();
+            CasoGuardado.de(caso).escribir(new DataOutputStream(salida));
+            byte[] bytes = salida.toByteArray();
+            archivo.seek(posicionEscritura);
+            archivo.writeInt(bytes.length);
+            archivo.write(bytes);
+            posiciones.poner(caso.getId(), posicionEscritura);
+            posicionEscritura += Integer.BYTES + bytes.length;
+            cantidad++;
+        }
+
+        CasoGuardado sacar() throws IOException {
+            CasoGuardado guardado = leer(posicionLectura);
+            posicionLectura = archivo.getFilePointer();
+            posiciones.eliminar(guardado.getId());
+            if (--cantidad == 0) { // Vacío: el archivo vuelve a empezar
+                archivo.setLength(0);
+                posicionLectura = 0;
+                posicionEscritura = 0;
+            }
+            return guardado;
+        }
+
+        CasoGuardado buscar(int id) throws IOException {
+            Long posicion = posiciones.obtener(id);
+            return posicion == null ? null : leer(posicion);
+        }
+
+        /**
+         * @return Registros de los casos que esperan, en orden, para leerlos sin sostener la cola
+         */
+        byte[] contenido() throws IOException {
+            byte[] bytes = new byte[(int) (posicionEscritura - posicionLectura)];
+            archivo.seek(posicionLectura);
+            archivo.readFully(bytes);
+            return bytes;
+        }
+
+        private CasoGuardado leer(long posicion) throws IOException {
+            archivo.seek(posicion);
+            byte[] bytes = new byte[archivo.readInt()];
+            archivo.readFully(bytes);
+            return CasoGuardado.leer(new DataInputStream(new ByteArrayInputStream(bytes)));
+        }
+
+        void cerrar() throws IOException {
+            archivo.close();
+            Files.deleteIfExists(ruta);
+        }
+    }
+
+    private ColaAcotada(ColaAtencion interna, int capacidad, PoliticaDesborde politica,
+                        Duration esperaMaxima, Path archivo) {
+        if (capacidad < 1) throw new IllegalArgumentException("La capacidad debe ser positiva.");
+        this.interna = interna;
+        this.capacidad = capacidad;
+        this.politica = politica;
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        this.espacios = new Semaphore(capacidad);
+        if (archivo != null) {
+            this.derrameNormales = new ArchivoDerrame(archivo);
+            this.derrameUrgentes = new ArchivoDerrame(archivo.resolveSibling(archivo.getFileName() + ".urgentes"));
+        } else {
+            this.derrameNormales = null;
+            this.derrameUrgentes = null;
+        }
+    }
+
+    /**
+     * Crea una cola que rechaza los casos nuevos cuando está llena
+     * @param interna Cola donde se guardan los casos
+     * @param capacidad Máximo de casos en memoria
+     * @return Cola acotada
+     */
+    public static ColaAcotada rechazando(ColaAtencion interna, int capacidad) {
+        return new ColaAcotada(interna, capacidad, PoliticaDesborde.RECHAZAR, Duration.ZERO, null);
+    }
+
+    /**
+     * Crea una cola que hace esperar a quien agrega un caso hasta que haya espacio
+     * @param interna Cola donde se guardan los casos
+     * @param capacidad Máximo de casos en memoria
+     * @param esperaMaxima Tiempo máximo de espera antes de rechazar el caso
+     * @return Cola acotada
+     */
+    public static ColaAcotada bloqueando(ColaAtencion interna, int capacidad, Duration esperaMaxima) {
+        return new ColaAcotada(interna, capacidad, PoliticaDesborde.BLOQUEAR, esperaMaxima, null);
+    }
+
+    /**
+     * Crea una cola que guarda en disco los casos que no caben en memoria
+     * Antes de derramar el primer caso hay que indicar el registro de casos con setRegistroCasos
+     * @param interna Cola donde se guardan los casos
+     * @param capacidad Máximo de casos en memoria
+     * @param archivo Archivo donde se derraman los casos normales, se vacía al crear la cola;
+     *                los urgentes van a otro archivo con el mismo nombre terminado en .urgentes
+     * @return Cola acotada
+     */
+    public static ColaAcotada derramandoA(ColaAtencion interna, int capacidad, Path archivo) {
+        return new ColaAcotada(interna, capacidad, PoliticaDesborde.DERRAMAR_A_DISCO, Duration.ZERO, archivo);
+    }
+
+    /**
+     * Indica quién suelta los casos derramados y los reconstruye al volver, normalmente el gestor de casos
+     * @param registro Registro de casos del gestor
+     */
+    public void setRegistroCasos(RegistroCasos registro) {
+        this.registro = registro;
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    public PoliticaDesborde getPolitica() {
+        return politica;
+    }
+
+    /**
+     * @return Cantidad de casos que esperan en disco
+     */
+    public int getDerramados() {
+        return derramados;
+    }
+
+    /**
+     * Agrega un caso aplicando la política de desborde si no hay espacio
+     * @param nuevo Caso que se desea agregar
+     * @throws ColaLlenaException Si la cola está llena y el caso no pudo admitirse
+     */
+    @Override
+    public void agregar(Caso nuevo) throws ColaLlenaException {
+        if (politica == PoliticaDesborde.DERRAMAR_A_DISCO) {
+            synchronized (this) {
+                // Un normal tampoco entra si hay urgentes en disco: el lugar libre es para ellos
+                boolean sinEsperaPrevia = derrameUrgentes.cantidad == 0
+                        && (nuevo.isUrgente() || derrameNormales.cantidad == 0);
+                if (sinEsperaPrevia && espacios.tryAcquire()) {
+                    ponerEnMemoria(nuevo);
+                } else {
+                    derramar(nuevo);
+                }
+            }
+            return;
+        }
+        obtenerEspacios(1);
+        try {
+            interna.agregar(nuevo);
+        } catch (ColaLlenaException | RuntimeException e) {
+            espacios.release(); // El caso no entró
+            throw e;
+        }
+    }
+
+    /**
+     * Agrega todos los casos o ninguno: con RECHAZAR y BLOQUEAR se reserva espacio para el lote completo
+     * @param nuevos Casos que se desean agregar
+     * @throws ColaLlenaException Si no hay espacio para el lote completo
+     */
+    @Override
+    public void agregarTodos(List<Caso> nuevos) throws ColaLlenaException {
+        if (politica == PoliticaDesborde.DERRAMAR_A_DISCO) {
+            for (Caso nuevo : nuevos) {
+                agregar(nuevo);
+            }
+            return;
+        }
+        if (nuevos.isEmpty()) return;
+        obtenerEspacios(nuevos.size());
+        try {
+            interna.agregarTodos(nuevos);
+        } catch (ColaLlenaException | RuntimeException e) {
+            espacios.release(nuevos.size()); // No entró ninguno
+            throw e;
+        }
+    }
+
+    @Override
+    public Caso atender() {
+        if (politica != PoliticaDesborde.DERRAMAR_A_DISCO) {
+            Caso caso = interna.atender();
+            if (caso != null) espacios.release();
+            return caso;
+        }
+        synchronized (this) {
+            Caso caso = derrameUrgentes.cantidad > 0 && urgentesEnMemoria == 0
+                    ? sacarDerramado(derrameUrgentes) // Antes que cualquier normal de la memoria
+                    : sacarDeMemoria();
+            if (derramados > 0) {
+                recuperar();
+                if (caso == null) caso = sacarDeMemoria();
+            }
+            return caso;
+        }
+    }
+
+    @Override
+    public boolean estaVacia() {
+        return interna.estaVacia() && derramados == 0;
+    }
+
+    /**
+     * @return Casos en memoria más casos derramados a disco
+     */
+    @Override
+    public int tamanio() {
+        return interna.tamanio() + derramados;
+    }
+
+    /**
+     * @return Copia de los casos en espera, primero los de memoria y luego los derramados a disco
+     */
+    @Override
+    public List<Caso> getTodos() {
+        List<Caso> todos = new ArrayList<>(tamanio());
+        for (Caso caso : this) {
+            todos.add(caso);
+        }
+        return todos;
+    }
+
+    /**
+     * Recorre los casos en memoria y luego los derramados a disco (normales y después urgentes)
+     * Los registros derramados se copian al crear el iterador y cada caso se reconstruye al llegar a él,
+     * así que de los casos en disco se obtienen copias; un caso que vuelve a memoria durante el
+     * recorrido puede aparecer dos veces
+     * @return Iterador de solo lectura
+     */
+    @Override
+    public Iterator<Caso> iterator() {
+        if (politica != PoliticaDesborde.DERRAMAR_A_DISCO) return interna.iterator();
+        DataInputStream enDisco;
+        synchronized (this) {
+            if (derramados == 0) return interna.iterator();
+            try {
+                ByteArrayOutputStream registros = new ByteArrayOutputStream();
+                registros.write(derrameNormales.contenido());
+                registros.write(derrameUrgentes.contenido());
+                enDisco = new DataInputStream(new ByteArrayInputStream(registros.toByteArray()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo leer el archivo de derrame.", e);
+            }
+        }
+        Iterator<Caso> enMemoria = interna.iterator();
+        return new Iterator<>() {
+            private Caso proximo = avanzar();
+
+            private Caso avanzar() {
+                if (enMemoria.hasNext()) return enMemoria.next();
+                try {
+                    if (enDisco.available() == 0) return null;
+                    enDisco.readInt(); // Longitud del registro
+                    return registro.reconstruir(CasoGuardado.leer(enDisco));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("No se pudo leer un caso derramado a disco.", e);
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return proximo != null;
+            }
+
+            @Override
+            public Caso next() {
+                if (proximo == null) throw new NoSuchElementException();
+                Caso actual = proximo;
+                proximo = avanzar();
+                return actual;
+            }
+        };
+    }
+
+    private void obtenerEspacios(int cantidad) throws ColaLlenaException {
+        if (cantidad > capacidad) {
+            throw new ColaLlenaException("El lote (" + cantidad + ") supera la capacidad de la cola (" + capacidad + ").");
+        }
+        if (politica == PoliticaDesborde.RECHAZAR) {
+            if (!espacios.tryAcquire(cantidad)) {
+                throw new ColaLlenaException("La cola de espera está llena (" + capacidad + " casos). Intente más tarde.");
+            }
+            return;
+        }
+        try {
+            if (!espacios.tryAcquire(cantidad, esperaMaximaNanos, TimeUnit.NANOSECONDS)) {
+                throw new ColaLlenaException("La cola de espera sigue llena tras esperar. Intente más tarde.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ColaLlenaException("Se interrumpió la espera por espacio en la cola.");
+        }
+    }
+
+    /**
+     * Busca un caso que espera en disco
+     * @param id ID del caso
+     * @return Copia del caso leída de disco, o null si no está derramado
+     */
+    public synchronized Caso buscarDerramado(int id) {
+        if (derramados == 0) return null;
+        try {
+            CasoGuardado guardado = derrameUrgentes.buscar(id);
+            if (guardado == null) guardado = derrameNormales.buscar(id);
+            return guardado == null ? null : registro.reconstruir(guardado);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer un caso derramado a disco.", e);
+        }
+    }
+
+    /**
+     * Cierra y borra los archivos de derrame; los casos que esperaban en disco se pierden
+     * Con las otras políticas no hace nada
+     */
+    public synchronized void cerrar() {
+        if (politica != PoliticaDesborde.DERRAMAR_A_DISCO) return;
+        try {
+            derrameNormales.cerrar();
+            derrameUrgentes.cerrar();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron cerrar los archivos de derrame.", e);
+        } finally {
+            derramados = 0;
+        }
+    }
+
+    /**
+     * Escribe el caso al final del archivo de derrame de su prioridad y el gestor lo suelta
+     */
+    private void derramar(Caso caso) throws ColaLlenaException {
+        if (registro == null) {
+            throw new ColaLlenaException("La cola está llena y no tiene registro de casos para derramar a disco.");
+        }
+        try {
+            (caso.isUrgente() ? derrameUrgentes : derrameNormales).agregar(caso);
+        } catch (IOException e) {
+            throw new ColaLlenaException("La cola está llena y no se pudo derramar a disco: " + e.getMessage());
+        }
+        derramados++;
+        registro.derramado(caso);
+    }
+
+    /**
+     * Agrega a la cola interna un caso para el que ya se tomó un espacio; si no entra, lo devuelve
+     */
+    private void ponerEnMemoria(Caso caso) throws ColaLlenaException {
+        try {
+            interna.agregar(caso);
+        } catch (ColaLlenaException | RuntimeException e) {
+            espacios.release();
+            throw e;
+        }
+        if (caso.isUrgente()) urgentesEnMemoria++;
+    }
+
+    private Caso sacarDeMemoria() {
+        Caso caso = interna.atender();
+        if (caso != null) {
+            espacios.release();
+            if (caso.isUrgente()) urgentesEnMemoria--;
+        }
+        return caso;
+    }
+
+    /**
+     * Saca el primer caso del archivo, lo reconstruye y se lo devuelve al gestor
+     * @return Caso derramado o null si el archivo está vacío
+     */
+    private Caso sacarDerramado(ArchivoDerrame archivo) {
+        if (archivo.cantidad == 0) return null;
+        try {
+            CasoGuardado guardado = archivo.sacar();
+            derramados--;
+            Caso caso = registro.reconstruir(guardado);
+            registro.recuperado(caso);
+            return caso;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer un caso derramado a disco.", e);
+        }
+    }
+
+    /**
+     * Devuelve a memoria tantos casos derramados como espacios libres haya, urgentes primero
+     */
+    private void recuperar() {
+        try {
+            while (derramados > 0 && espacios.tryAcquire()) {
+                ponerEnMemoria(sacarDerramado(derrameUrgentes.cantidad > 0 ? derrameUrgentes : derrameNormales));
+            }
+        } catch (ColaLlenaException e) {
+            throw new IllegalStateException("No se pudo devolver a la cola un caso derramado a disco.", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.exception.ColaLlenaException;
+import edu.unl.cc.modelo.Caso;
+import java.util.List;
+
+/**
+ * Esta interfaz representa la sala de espera completa de casos (urgentes y normales) que usa el gestor de casos.
+ * Cada implementación decide en qué orden se atienden los casos; todas deben poder usarse desde varios hilos.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public interface ColaAtencion extends Iterable<Caso> {
+
+    /**
+     * Agrega un caso a la espera
+     * @param nuevo Caso que se desea agregar
+     * @throws ColaLlenaException Si la cola tiene capacidad limitada y no puede admitir el caso
+     */
+    void agregar(Caso nuevo) throws ColaLlenaException;
+
+    /**
+     * Agrega varios casos en una sola operación, respetando el orden de la lista
+     * @param nuevos Casos que se desean agregar
+     * @throws ColaLlenaException Si la cola tiene capacidad limitada y no puede admitir el lote
+     */
+    void agregarTodos(List<Caso> nuevos) throws ColaLlenaException;
+
+    /**
+     * Saca el siguiente caso que debe ser atendido
+     * @return Caso siguiente o null si no hay casos en espera
+     */
+    Caso atender();
+
+    /**
+     * @return true si no hay casos en espera
+     */
+    boolean estaVacia();
+
+    /**
+     * @return Cantidad de casos en espera, obtenida en O(1)
+     */
+    int tamanio();
+
+    /**
+     * @return Copia de los casos en espera
+     */
+    List<Caso> getTodos();
+}
@@ -1,21 +1,48 @@
 package edu.unl.cc.estructuras;
 
 import edu.unl.cc.modelo.Caso;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Esta clase representa una cola de atención para casos estudiantiles.
  * Utiliza una estructura enlazada para almacenar los casos en orden de llegada.
  * Permite agregar casos, atender el siguiente, verificar si está vacía y mostrar todos los casos y obtenerlos como lista.
+ * La cola es segura para varios hilos sin usar bloqueos (algoritmo de Michael y Scott):
+ * varias ventanillas pueden agregar y atender casos a la vez sin perder ni duplicar ninguno.
+ * Se puede recorrer directamente (sin copiar) con un iterador débilmente consistente, como las colas de java.util.concurrent.
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
-public class ColaCasos {
+public class ColaCasos implements ColaFifo {
 
-    private NodoCaso frente;
-    private NodoCaso fin;
+    private static final VarHandle FRENTE;
+    private static final VarHandle FIN;
+    private static final VarHandle SIGUIENTE;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            FRENTE = lookup.findVarHandle(ColaCasos.class, "frente", NodoCaso.class);
+            FIN = lookup.findVarHandle(ColaCasos.class, "fin", NodoCaso.class);
+            SIGUIENTE = lookup.findVarHandle(NodoCaso.class, "siguiente", NodoCaso.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    // El frente siempre apunta a un nodo centinela; el primer caso real está en frente.siguiente
+    private volatile NodoCaso frente;
+    private volatile NodoCaso fin;
+    private final AtomicInteger tamanio = new AtomicInteger();
 
     /**
      * Clase interna que representa un nodo en la cola
@@ -23,25 +50,70 @@ public class ColaCasos {
      */
     private static class NodoCaso {
         Caso caso;
-        NodoCaso siguiente;
+        volatile NodoCaso siguiente;
 
         NodoCaso(Caso caso) {
             this.caso = caso;
         }
     }
 
+    public ColaCasos() {
+        NodoCaso centinela = new NodoCaso(null);
+        this.frente = centinela;
+        this.fin = centinela;
+    }
+
     /**
      * Agrega un nuevo caso al final de la cola
      * @param nuevo Caso que se desea agregar
      */
     public void agregar(Caso nuevo) {
         NodoCaso nodo = new NodoCaso(nuevo);
-        if (frente == null) {
-            frente = nodo;
-            fin = nodo;
-        } else {
-            fin.siguiente = nodo;
-            fin = nodo;
+        while (true) {
+            NodoCaso ultimo = fin;
+            NodoCaso siguiente = ultimo.siguiente;
+            if (ultimo != fin) continue;
+            if (siguiente == null) {
+                if (SIGUIENTE.compareAndSet(ultimo, null, nodo)) {
+                    tamanio.incrementAndGet();
+                    FIN.compareAndSet(this, ultimo, nodo);
+                    return;
+                }
+            } else {
+                // Otro hilo enlazó un nodo pero aún no movió el fin: se le ayuda a terminar
+                FIN.compareAndSet(this, ultimo, siguiente);
+            }
+        }
+    }
+
+    /**
+     * Agrega varios casos al final de la cola en una sola operación
+     * Los nodos se enlazan primero entre sí y la cadena completa se une a la cola con un único cambio atómico,
+     * así los casos del lote quedan seguidos y en el mismo orden de la lista
+     * @param nuevos Casos que se desean agregar
+     */
+    public void agregarTodos(List<Caso> nuevos) {
+        if (nuevos.isEmpty()) return;
+        NodoCaso primero = new NodoCaso(nuevos.get(0));
+        NodoCaso ultimoLote = primero;
+        for (int i = 1; i < nuevos.size(); i++) {
+            NodoCaso nodo = new NodoCaso(nuevos.get(i));
+            ultimoLote.siguiente = nodo;
+            ultimoLote = nodo;
+        }
+        while (true) {
+            NodoCaso ultimo = fin;
+            NodoCaso siguiente = ultimo.siguiente;
+            if (ultimo != fin) continue;
+            if (siguiente == null) {
+                if (SIGUIENTE.compareAndSet(ultimo, null, primero)) {
+                    tamanio.addAndGet(nuevos.size());
+                    FIN.compareAndSet(this, ultimo, ultimoLote);
+                    return;
+                }
+            } else {
+                FIN.compareAndSet(this, ultimo, siguiente);
+            }
         }
     }
 
@@ -51,11 +123,23 @@ public class ColaCasos {
      * @return Caso atendido o null si la cola está vacía
      */
     public Caso atender() {
-        if (frente == null) return null;
-        Caso caso = frente.caso;
-        frente = frente.siguiente;
-        if (frente == null) fin = null;
-        return caso;
+        while (true) {
+            NodoCaso primero = frente;
+            NodoCaso ultimo = fin;
+            NodoCaso siguiente = primero.siguiente;
+            if (primero != frente) continue;
+            if (siguiente == null) return null;
+            if (primero == ultimo) {
+                FIN.compareAndSet(this, ultimo, siguiente);
+                continue;
+            }
+            Caso caso = siguiente.caso;
+            if (FRENTE.compareAndSet(this, primero, siguiente)) {
+                siguiente.caso = null; // El nodo pasa a ser el nuevo centinela
+                tamanio.decrementAndGet();
+                return caso;
+            }
+        }
     }
 
     /**
@@ -63,7 +147,70 @@ public class ColaCasos {
      * @return true si no hay casos en la cola, false si hay al menos uno
      */
     public boolean estaVacia() {
-        return frente == null;
+        return frente.siguiente == null;
+    }
+
+    /**
+     * Devuelve la cantidad de casos en la cola sin recorrerla
+     * Con varios hilos trabajando a la vez el valor es aproximado
+     * @return Cantidad de casos en espera
+     */
+    public int tamanio() {
+        return Math.max(tamanio.get(), 0);
+    }
+
+    /**
+     * Recorre los casos en orden de llegada sin copiarlos
+     * El iterador nunca falla por cambios concurrentes: refleja el estado de la cola en algún momento
+     * desde su creación y puede incluir o no los cambios posteriores
+     * @return Iterador de solo lectura
+     */
+    @Override
+    public Iterator<Caso> iterator() {
+        return new Iterador(frente.siguiente);
+    }
+
+    /**
+     * El tamaño no se informa: otros hilos pueden agregar o atender casos durante el recorrido
+     */
+    @Override
+    public Spliterator<Caso> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.CONCURRENT);
+    }
+
+    /**
+     * Iterador débilmente consistente que salta los nodos que ya fueron atendidos
+     */
+    private static class Iterador implements Iterator<Caso> {
+        private NodoCaso nodo;
+        private Caso proximo;
+
+        Iterador(NodoCaso inicio) {
+            this.nodo = inicio;
+            avanzar();
+        }
+
+        private void avanzar() {
+            proximo = null;
+            while (nodo != null && proximo == null) {
+                proximo = nodo.caso;
+                nodo = nodo.siguiente;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return proximo != null;
+        }
+
+        @Override
+        public Caso next() {
+            if (proximo == null) throw new NoSuchElementException();
+            Caso actual = proximo;
+            avanzar();
+            return actual;
+        }
     }
 
     /**
@@ -71,24 +218,27 @@ public class ColaCasos {
      * Se utiliza principalmente para depuración
      */
     public void mostrar() {
-        NodoCaso actual = frente;
+        NodoCaso actual = frente.siguiente;
         while (actual != null) {
-            System.out.println(actual.caso);
+            Caso caso = actual.caso;
+            if (caso != null) System.out.println(caso);
             actual = actual.siguiente;
         }
     }
 
     /**
      * Devuelve todos los casos en la cola como una lista
+     * Si otros hilos modifican la cola durante el recorrido, la lista puede no reflejar esos cambios
      * @return Lista de casos en orden de llegada
      */
     public List<Caso> getTodos() {
         List<Caso> resultado = new ArrayList<>();
-        NodoCaso actual = frente;
+        NodoCaso actual = frente.siguiente;
         while (actual != null) {
-            resultado.add(actual.caso);
+            Caso caso = actual.caso;
+            if (caso != null) resultado.add(caso);
             actual = actual.siguiente;
         }
         return resultado;
     }
-}
\ No newline at end of file
+}
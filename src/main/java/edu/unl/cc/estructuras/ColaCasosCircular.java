@@ -0,0 +1,147 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.modelo.Caso;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Esta clase representa una cola de atención guardada en un arreglo circular que crece cuando se llena.
+ * Ofrece las mismas operaciones y el mismo orden que ColaCasos, pero no crea un nodo por cada caso:
+ * agregar y atender solo mueven índices, y recorrer la cola lee posiciones contiguas de memoria.
+ * Usa un candado simple (synchronized) para poder usarse desde varios hilos.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ColaCasosCircular implements ColaFifo {
+
+    private static final int CAPACIDAD_INICIAL = 16; // Siempre potencia de dos
+
+    private Caso[] casos;
+    private int frente;   // Posición del primer caso
+    private int tamanio;
+    private long totalAtendidos; // Casos que ya salieron de la cola, lo usa el iterador para ubicarse
+
+    public ColaCasosCircular() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * @param capacidadInicial Cantidad de casos que caben antes de crecer por primera vez
+     */
+    public ColaCasosCircular(int capacidadInicial) {
+        int capacidad = Integer.highestOneBit(Math.max(capacidadInicial, 2) - 1) << 1;
+        this.casos = new Caso[capacidad];
+    }
+
+    @Override
+    public synchronized void agregar(Caso nuevo) {
+        if (tamanio == casos.length) crecer(tamanio + 1);
+        casos[(frente + tamanio) & (casos.length - 1)] = nuevo;
+        tamanio++;
+    }
+
+    @Override
+    public synchronized void agregarTodos(List<Caso> nuevos) {
+        if (tamanio + nuevos.size() > casos.length) crecer(tamanio + nuevos.size());
+        int mascara = casos.length - 1;
+        for (Caso nuevo : nuevos) {
+            casos[(frente + tamanio) & mascara] = nuevo;
+            tamanio++;
+        }
+    }
+
+    @Override
+    public synchronized Caso atender() {
+        if (tamanio == 0) return null;
+        Caso caso = casos[frente];
+        casos[frente] = null;
+        frente = (frente + 1) & (casos.length - 1);
+        tamanio--;
+        totalAtendidos++;
+        return caso;
+    }
+
+    @Override
+    public synchronized boolean estaVacia() {
+        return tamanio == 0;
+    }
+
+    @Override
+    public synchronized int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * Muestra por consola todos los casos en la cola
+     * Se utiliza principalmente para depuración
+     */
+    public synchronized void mostrar() {
+        for (int i = 0; i < tamanio; i++) {
+            System.out.println(casos[(frente + i) & (casos.length - 1)]);
+        }
+    }
+
+    @Override
+    public synchronized List<Caso> getTodos() {
+        List<Caso> resultado = new ArrayList<>(tamanio);
+        for (int i = 0; i < tamanio; i++) {
+            resultado.add(casos[(frente + i) & (casos.length - 1)]);
+        }
+        return resultado;
+    }
+
+    /**
+     * Recorre los casos en orden de llegada sin copiarlos
+     * Cada paso toma el candado un instante; si otros hilos atienden casos mientras se recorre,
+     * el iterador continúa desde el frente actual y nunca devuelve un caso dos veces
+     * @return Iterador de solo lectura
+     */
+    @Override
+    public Iterator<Caso> iterator() {
+        return new Iterator<>() {
+            private long siguiente = atendidos(); // Número de orden del próximo caso a devolver
+            private Caso proximo = buscar();
+
+            private Caso buscar() {
+                synchronized (ColaCasosCircular.this) {
+                    if (siguiente < totalAtendidos) siguiente = totalAtendidos;
+                    long paso = siguiente - totalAtendidos;
+                    if (paso >= tamanio) return null;
+                    siguiente++;
+                    return casos[(int) ((frente + paso) & (casos.length - 1))];
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return proximo != null;
+            }
+
+            @Override
+            public Caso next() {
+                if (proximo == null) throw new NoSuchElementException();
+                Caso actual = proximo;
+                proximo = buscar();
+                return actual;
+            }
+        };
+    }
+
+    private synchronized long atendidos() {
+        return totalAtendidos;
+    }
+
+    private void crecer(int minimo) {
+        int nuevaCapacidad = casos.length;
+        while (nuevaCapacidad < minimo) nuevaCapacidad <<= 1;
+        Caso[] nuevo = new Caso[nuevaCapacidad];
+        for (int i = 0; i < tamanio; i++) {
+            nuevo[i] = casos[(frente + i) & (casos.length - 1)];
+        }
+        casos = nuevo;
+        frente = 0;
+    }
+}
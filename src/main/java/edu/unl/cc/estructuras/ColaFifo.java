@@ -0,0 +1,48 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.modelo.Caso;
+import java.util.List;
+
+/**
+ * Esta interfaz representa una cola simple de casos en orden de llegada (el primero que entra es el primero que sale).
+ * La implementan la cola enlazada sin bloqueos (ColaCasos) y la cola sobre arreglo circular (ColaCasosCircular),
+ * para poder elegir una u otra dentro de las colas fragmentadas.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public interface ColaFifo extends Iterable<Caso> {
+
+    /**
+     * Agrega un nuevo caso al final de la cola
+     * @param nuevo Caso que se desea agregar
+     */
+    void agregar(Caso nuevo);
+
+    /**
+     * Agrega varios casos al final de la cola, seguidos y en el orden de la lista
+     * @param nuevos Casos que se desean agregar
+     */
+    void agregarTodos(List<Caso> nuevos);
+
+    /**
+     * Atiende el caso que está al frente de la cola
+     * @return Caso atendido o null si la cola está vacía
+     */
+    Caso atender();
+
+    /**
+     * @return true si no hay casos en la cola
+     */
+    boolean estaVacia();
+
+    /**
+     * @return Cantidad de casos en la cola, obtenida en O(1)
+     */
+    int tamanio();
+
+    /**
+     * @return Lista de casos en orden de llegada
+     */
+    List<Caso> getTodos();
+}
@@ -0,0 +1,202 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.modelo.Caso;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Esta clase representa una cola de prioridad de casos con varios niveles y envejecimiento.
+ * Utiliza un montículo binario (heap) guardado en un arreglo, por lo que agregar y atender cuestan O(log n).
+ *
+ * Cada caso tiene un nivel de prioridad (0 = normal, mayor número = más prioritario) y su prioridad
+ * efectiva sube mientras espera: cada intervalo de envejecimiento equivale a subir un nivel.
+ * Así un caso normal que espera lo suficiente termina pasando delante de los urgentes recién llegados
+ * y no se queda esperando para siempre.
+ *
+ * Como todos los casos envejecen al mismo ritmo, el orden entre dos casos nunca cambia con el tiempo:
+ * basta con ordenar por (llegada - nivel * intervalo) y el montículo no necesita reordenarse.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ColaPrioridadCasos implements ColaAtencion {
+
+    public static final int NIVEL_NORMAL = 0;
+    public static final int NIVEL_URGENTE = 1;
+
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private final long intervaloNanos; // Tiempo de espera que equivale a subir un nivel
+    private volatile Entrada[] monticulo = new Entrada[CAPACIDAD_INICIAL];
+    private volatile int tamanio;
+    private long contadorLlegadas; // Desempata casos con la misma clave respetando el orden de llegada
+
+    /**
+     * Clase interna que representa un caso dentro del montículo
+     * La clave es el instante de llegada adelantado según su nivel de prioridad
+     */
+    private static class Entrada {
+        final Caso caso;
+        final long clave;
+        final long orden;
+
+        Entrada(Caso caso, long clave, long orden) {
+            this.caso = caso;
+            this.clave = clave;
+            this.orden = orden;
+        }
+
+        boolean antesQue(Entrada otra) {
+            return clave < otra.clave || (clave == otra.clave && orden < otra.orden);
+        }
+    }
+
+    /**
+     * @param intervaloEnvejecimiento Tiempo de espera que equivale a subir un nivel de prioridad
+     */
+    public ColaPrioridadCasos(Duration intervaloEnvejecimiento) {
+        if (intervaloEnvejecimiento.isNegative() || intervaloEnvejecimiento.isZero()) {
+            throw new IllegalArgumentException("El intervalo de envejecimiento debe ser positivo.");
+        }
+        this.intervaloNanos = intervaloEnvejecimiento.toNanos();
+    }
+
+    /**
+     * Agrega un caso usando su marca de urgencia como nivel de prioridad
+     * @param nuevo Caso que se desea agregar
+     */
+    public void agregar(Caso nuevo) {
+        agregar(nuevo, nuevo.isUrgente() ? NIVEL_URGENTE : NIVEL_NORMAL);
+    }
+
+    /**
+     * Agrega un caso con el nivel de prioridad indicado
+     * @param nuevo Caso que se desea agregar
+     * @param nivel Nivel de prioridad, 0 es el más bajo
+     */
+    public synchronized void agregar(Caso nuevo, int nivel) {
+        if (nivel < 0) throw new IllegalArgumentException("El nivel de prioridad no puede ser negativo.");
+        long clave = System.nanoTime() - nivel * intervaloNanos;
+        if (tamanio == monticulo.length) {
+            monticulo = Arrays.copyOf(monticulo, tamanio * 2);
+        }
+        monticulo[tamanio] = new Entrada(nuevo, clave, contadorLlegadas++);
+        subir(tamanio++);
+    }
+
+    /**
+     * Agrega varios casos tomando el candado una sola vez, cada uno con el nivel según su urgencia
+     * @param nuevos Casos que se desean agregar
+     */
+    public synchronized void agregarTodos(List<Caso> nuevos) {
+        for (Caso nuevo : nuevos) {
+            agregar(nuevo);
+        }
+    }
+
+    /**
+     * Atiende el caso con mayor prioridad efectiva
+     * Lo elimina de la cola y lo devuelve
+     * @return Caso atendido o null si la cola está vacía
+     */
+    public synchronized Caso atender() {
+        if (tamanio == 0) return null;
+        Caso caso = monticulo[0].caso;
+        tamanio--;
+        monticulo[0] = monticulo[tamanio];
+        monticulo[tamanio] = null;
+        if (tamanio > 0) bajar(0);
+        return caso;
+    }
+
+    /**
+     * Verifica si la cola está vacía
+     * @return true si no hay casos en la cola, false si hay al menos uno
+     */
+    public synchronized boolean estaVacia() {
+        return tamanio == 0;
+    }
+
+    /**
+     * @return Cantidad de casos en espera
+     */
+    public int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * Recorre los casos en espera sin copiarlos ni bloquear la cola, en el orden interno del montículo
+     * (no en orden de atención). Es débilmente consistente: con cambios concurrentes puede
+     * omitir o repetir algún caso, pero nunca falla. Para ver el orden de atención se usa getTodos()
+     * @return Iterador de solo lectura
+     */
+    @Override
+    public Iterator<Caso> iterator() {
+        Entrada[] arreglo = monticulo;
+        int limite = Math.min(tamanio, arreglo.length);
+        return new Iterator<>() {
+            private int i = saltarVacios(0);
+
+            private int saltarVacios(int desde) {
+                while (desde < limite && arreglo[desde] == null) desde++;
+                return desde;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return i < limite;
+            }
+
+            @Override
+            public Caso next() {
+                if (i >= limite) throw new NoSuchElementException();
+                Entrada entrada = arreglo[i];
+                i = saltarVacios(i + 1);
+                return entrada.caso;
+            }
+        };
+    }
+
+    /**
+     * Devuelve todos los casos en la cola en el orden en que serían atendidos
+     * @return Lista de casos ordenada por prioridad efectiva
+     */
+    public synchronized List<Caso> getTodos() {
+        Entrada[] copia = Arrays.copyOf(monticulo, tamanio);
+        Arrays.sort(copia, (a, b) -> a.antesQue(b) ? -1 : (b.antesQue(a) ? 1 : 0));
+        List<Caso> resultado = new ArrayList<>(tamanio);
+        for (Entrada entrada : copia) {
+            resultado.add(entrada.caso);
+        }
+        return resultado;
+    }
+
+    private void subir(int i) {
+        Entrada entrada = monticulo[i];
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (!entrada.antesQue(monticulo[padre])) break;
+            monticulo[i] = monticulo[padre];
+            i = padre;
+        }
+        monticulo[i] = entrada;
+    }
+
+    private void bajar(int i) {
+        Entrada entrada = monticulo[i];
+        int mitad = tamanio >>> 1;
+        while (i < mitad) {
+            int hijo = 2 * i + 1;
+            int derecho = hijo + 1;
+            if (derecho < tamanio && monticulo[derecho].antesQue(monticulo[hijo])) hijo = derecho;
+            if (!monticulo[hijo].antesQue(entrada)) break;
+            monticulo[i] = monticulo[hijo];
+            i = hijo;
+        }
+        monticulo[i] = entrada;
+    }
+}
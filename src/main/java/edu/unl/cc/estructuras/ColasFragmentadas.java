@@ -0,0 +1,166 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.modelo.Caso;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Supplier;
+
+/**
+ * Esta clase representa la sala de espera dividida en fragmentos, cada uno con su propia cola urgente y normal.
+ * Cada hilo agrega y atiende en "su" fragmento (elegido por el ID del hilo), así varias ventanillas
+ * no compiten siempre por el mismo frente y fin de cola. Cuando el fragmento propio no tiene casos,
+ * el hilo roba casos de los demás fragmentos.
+ *
+ * Orden de atención: los urgentes de todos los fragmentos se atienden antes que cualquier normal,
+ * igual que con dos colas fijas. Dentro de cada fragmento se respeta el orden de llegada, pero entre
+ * fragmentos no hay ninguna garantía: cada hilo atiende primero su propio fragmento, así que un caso
+ * que llegó antes a otro fragmento puede quedar esperando detrás de todos los casos que sigan llegando
+ * al fragmento de ese hilo, sin un límite fijo. Si el orden de llegada debe respetarse entre ventanillas,
+ * hay que usar un solo fragmento, que se comporta exactamente como las dos colas fijas.
+ * Cada fragmento puede usar colas enlazadas sin bloqueos (ColaCasos, por defecto) o colas sobre
+ * arreglo circular (ColaCasosCircular), que no crean un objeto por cada caso encolado.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ColasFragmentadas implements ColaAtencion {
+
+    private final ColaFifo[] urgentes;
+    private final ColaFifo[] normales;
+
+    /**
+     * Crea un fragmento por cada procesador disponible
+     */
+    public ColasFragmentadas() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param fragmentos Cantidad de fragmentos, 1 equivale a las dos colas fijas
+     */
+    public ColasFragmentadas(int fragmentos) {
+        this(fragmentos, ColaCasos::new);
+    }
+
+    /**
+     * @param fragmentos Cantidad de fragmentos, 1 equivale a las dos colas fijas
+     * @param fabrica Crea cada una de las colas de los fragmentos, por ejemplo ColaCasosCircular::new
+     */
+    public ColasFragmentadas(int fragmentos, Supplier<ColaFifo> fabrica) {
+        if (fragmentos < 1) throw new IllegalArgumentException("Debe existir al menos un fragmento.");
+        urgentes = new ColaFifo[fragmentos];
+        normales = new ColaFifo[fragmentos];
+        for (int i = 0; i < fragmentos; i++) {
+            urgentes[i] = fabrica.get();
+            normales[i] = fabrica.get();
+        }
+    }
+
+    /**
+     * @return Cantidad de fragmentos
+     */
+    public int getFragmentos() {
+        return urgentes.length;
+    }
+
+    @Override
+    public void agregar(Caso nuevo) {
+        int propio = fragmentoPropio();
+        (nuevo.isUrgente() ? urgentes : normales)[propio].agregar(nuevo);
+    }
+
+    @Override
+    public void agregarTodos(List<Caso> nuevos) {
+        List<Caso> lotesUrgentes = new ArrayList<>();
+        List<Caso> lotesNormales = new ArrayList<>();
+        for (Caso nuevo : nuevos) {
+            (nuevo.isUrgente() ? lotesUrgentes : lotesNormales).add(nuevo);
+        }
+        int propio = fragmentoPropio();
+        urgentes[propio].agregarTodos(lotesUrgentes);
+        normales[propio].agregarTodos(lotesNormales);
+    }
+
+    /**
+     * Atiende primero los urgentes (propios y luego robados) y después los normales de la misma forma
+     * @return Caso atendido o null si no hay casos en ningún fragmento
+     */
+    @Override
+    public Caso atender() {
+        int propio = fragmentoPropio();
+        Caso caso = atenderDe(urgentes, propio);
+        return caso != null ? caso : atenderDe(normales, propio);
+    }
+
+    private static Caso atenderDe(ColaFifo[] colas, int propio) {
+        for (int i = 0; i < colas.length; i++) {
+            Caso caso = colas[(propio + i) % colas.length].atender();
+            if (caso != null) return caso;
+        }
+        return null;
+    }
+
+    @Override
+    public boolean estaVacia() {
+        for (int i = 0; i < urgentes.length; i++) {
+            if (!urgentes[i].estaVacia() || !normales[i].estaVacia()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int tamanio() {
+        int total = 0;
+        for (int i = 0; i < urgentes.length; i++) {
+            total += urgentes[i].tamanio() + normales[i].tamanio();
+        }
+        return total;
+    }
+
+    /**
+     * @return Copia de los casos en espera: primero los normales y luego los urgentes, fragmento por fragmento
+     */
+    @Override
+    public List<Caso> getTodos() {
+        List<Caso> resultado = new ArrayList<>(tamanio());
+        for (Caso caso : this) {
+            resultado.add(caso);
+        }
+        return resultado;
+    }
+
+    /**
+     * Recorre sin copiar los normales y luego los urgentes de cada fragmento, el mismo orden en que
+     * el gestor de casos siempre ha listado la espera
+     * @return Iterador débilmente consistente de solo lectura
+     */
+    @Override
+    public Iterator<Caso> iterator() {
+        return new Iterator<>() {
+            private int cola = 0; // 0..n-1 normales, n..2n-1 urgentes
+            private Iterator<Caso> actual = normales[0].iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!actual.hasNext() && cola + 1 < 2 * normales.length) {
+                    cola++;
+                    actual = cola < normales.length ? normales[cola].iterator() : urgentes[cola - normales.length].iterator();
+                }
+                return actual.hasNext();
+            }
+
+            @Override
+            public Caso next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return actual.next();
+            }
+        };
+    }
+
+    private int fragmentoPropio() {
+        if (urgentes.length == 1) return 0;
+        return Math.floorMod(Long.hashCode(Thread.currentThread().threadId()), urgentes.length);
+    }
+}
@@ -0,0 +1,256 @@
+package edu.unl.cc.estructuras;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Esta clase representa un diario de escritura anticipada: cada operación se agrega al final de un
+ * archivo antes de aplicarse, así después de una caída se puede volver a ejecutar todo lo registrado.
+ *
+ * Las escrituras se agrupan: los registros se acumulan en memoria y un hilo los escribe y fuerza a
+ * disco (fsync) en un solo paso cada cierto tiempo. Con esperarDisco = true quien registra espera a que
+ * su registro esté en disco (no se pierde nada, pero cada operación tarda hasta una ventana); con false
+ * vuelve enseguida y una caída puede perder como máximo la última ventana de operaciones.
+ *
+ * Cada registro lleva su longitud y un CRC32. Al leer, un registro incompleto o dañado al final del
+ * archivo (escrito a medias durante una caída) se descarta y el archivo se recorta en ese punto.
+ * Si una escritura falla, el diario deja de aceptar registros y de escribir los pendientes.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class DiarioAcciones {
+
+    private static final int ENCABEZADO = Integer.BYTES + Long.BYTES; // Longitud y CRC32
+    private static final int LIMITE_GRUPO = 64 * 1024; // Con este tamaño pendiente se escribe sin esperar la ventana
+
+    private final Path ruta;
+    private final FileChannel canal;
+    private final long ventanaNanos;
+    private final boolean esperarDisco;
+
+    private final ReentrantLock candado = new ReentrantLock();
+    private final Condition hayPendientes = candado.newCondition();
+    private final Condition escritoEnDisco = candado.newCondition();
+    private ByteArrayOutputStream pendientes = new ByteArrayOutputStream();
+    private long ultimoRegistrado; // Número del último registro agregado
+    private long ultimoEnDisco;    // Número del último registro forzado a disco
+    private IOException errorEscritura;
+    private boolean cerrado;
+    private final Thread escritor;
+
+    /**
+     * Abre el diario; si el archivo ya existe, los registros nuevos se agregan al final
+     * Antes de abrirlo conviene leer los registros existentes con reproducir
+     * @param ruta Archivo del diario
+     * @param ventana Tiempo máximo que un registro espera para escribirse junto con otros
+     * @param esperarDisco true para que registrar espere hasta que el registro esté en disco
+     */
+    public DiarioAcciones(Path ruta, Duration ventana, boolean esperarDisco) {
+        this.ruta = ruta;
+        this.ventanaNanos = ventana.toNanos();
+        this.esperarDisco = esperarDisco;
+        try {
+            this.canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario " + ruta, e);
+        }
+        this.escritor = Thread.ofPlatform().daemon().name("diario-acciones").start(this::escribirGrupos);
+    }
+
+    /**
+     * Lee todos los registros completos de un diario en orden
+     * Si el final del archivo tiene un registro incompleto o dañado, se recorta el archivo
+     * @param ruta Archivo del diario, si no existe no se hace nada
+     * @param alLeer Acción para el contenido de cada registro
+     * @return Cantidad de registros leídos
+     */
+    public static int reproducir(Path ruta, Consumer<byte[]> alLeer) {
+        if (!ruta.toFile().exists()) return 0;
+        int leidos = 0;
+        try (FileChannel lector = FileChannel.open(ruta, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer encabezado = ByteBuffer.allocate(ENCABEZADO);
+            long posicion = 0;
+            long tamanio = lector.size();
+            while (posicion + ENCABEZADO <= tamanio) {
+                encabezado.clear();
+                lector.read(encabezado, posicion);
+                encabezado.flip();
+                int longitud = encabezado.getInt();
+                long crc = encabezado.getLong();
+                if (longitud < 0 || posicion + ENCABEZADO + longitud > tamanio) break;
+                ByteBuffer datos = ByteBuffer.allocate(longitud);
+                lector.read(datos, posicion + ENCABEZADO);
+                byte[] registro = datos.array();
+                if (calcularCrc(registro) != crc) break;
+                alLeer.accept(registro);
+                leidos++;
+                posicion += ENCABEZADO + longitud;
+            }
+            if (posicion < tamanio) lector.truncate(posicion); // Cola escrita a medias en una caída
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el diario " + ruta, e);
+        }
+        return leidos;
+    }
+
+    /**
+     * Agrega un registro al diario
+     * Después de un error de escritura el diario no acepta más registros, con o sin esperarDisco:
+     * lo que se registre después quedaría separado de lo anterior por un hueco imposible de reproducir
+     * @param registro Contenido del registro
+     * @throws UncheckedIOException Si una escritura anterior o la de este registro falló
+     */
+    public void registrar(byte[] registro) {
+        candado.lock();
+        try {
+            if (cerrado) throw new IllegalStateException("El diario está cerrado.");
+            if (errorEscritura != null) {
+                throw new UncheckedIOException("No se pudo escribir en el diario " + ruta, errorEscritura);
+            }
+            escribirEncabezado(registro);
+            pendientes.write(registro, 0, registro.length);
+            long numero = ++ultimoRegistrado;
+            hayPendientes.signal();
+            if (!esperarDisco) return;
+            while (ultimoEnDisco < numero && errorEscritura == null) {
+                escritoEnDisco.awaitUninterruptibly();
+            }
+            if (errorEscritura != null) {
+                throw new UncheckedIOException("No se pudo escribir en el diario " + ruta, errorEscritura);
+            }
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Espera a que todo lo registrado hasta ahora esté en disco
+     * @param espera Tiempo máximo de espera
+     * @return true si todo quedó en disco a tiempo
+     */
+    public boolean sincronizar(Duration espera) {
+        long limite = System.nanoTime() + espera.toNanos();
+        candado.lock();
+        try {
+            long objetivo = ultimoRegistrado;
+            hayPendientes.signal();
+            while (ultimoEnDisco < objetivo && errorEscritura == null) {
+                long restante = limite - System.nanoTime();
+                if (restante <= 0) return false;
+                escritoEnDisco.await(restante, TimeUnit.NANOSECONDS);
+            }
+            return errorEscritura == null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            candado.unlock();
+        }
+    }
+
+    /**
+     * Escribe lo pendiente, lo fuerza a disco y cierra el archivo
+     */
+    public void cerrar() {
+        candado.lock();
+        try {
+            if (cerrado) return;
+            cerrado = true;
+            hayPendientes.signal();
+        } finally {
+            candado.unlock();
+        }
+        try {
+            escritor.join();
+            canal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el diario " + ruta, e);
+        }
+    }
+
+    private void escribirEncabezado(byte[] registro) {
+        ByteBuffer encabezado = ByteBuffer.allocate(ENCABEZADO);
+        encabezado.putInt(registro.length).putLong(calcularCrc(registro));
+        pendientes.write(encabezado.array(), 0, ENCABEZADO);
+    }
+
+    private static long calcularCrc(byte[] datos) {
+        CRC32 crc = new CRC32();
+        crc.update(datos);
+        return crc.getValue();
+    }
+
+    /**
+     * Hilo escritor: espera registros, deja pasar la ventana para juntar más y los escribe en un solo fsync
+     */
+    private void escribirGrupos() {
+        while (true) {
+            ByteArrayOutputStream grupo;
+            long hasta;
+            boolean terminar;
+            boolean fallido;
+            candado.lock();
+            try {
+                while (pendientes.size() == 0 && !cerrado) {
+                    hayPendientes.awaitUninterruptibly();
+                }
+                long restante = ventanaNanos;
+                while (restante > 0 && pendientes.size() < LIMITE_GRUPO && !cerrado) {
+                    try {
+                        restante = hayPendientes.awaitNanos(restante);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                grupo = pendientes;
+                pendientes = new ByteArrayOutputStream();
+                hasta = ultimoRegistrado;
+                terminar = cerrado;
+                fallido = errorEscritura != null;
+            } finally {
+                candado.unlock();
+            }
+
+            IOException error = null;
+            if (grupo.size() > 0 && !fallido) { // Tras un fallo no se escribe nada más para no dejar huecos
+                try {
+                    ByteBuffer datos = ByteBuffer.wrap(grupo.toByteArray());
+                    while (datos.hasRemaining()) {
+                        canal.write(datos);
+                    }
+                    canal.force(false);
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+
+            candado.lock();
+            try {
+                if (error != null) {
+                    errorEscritura = error;
+                } else if (!fallido) {
+                    ultimoEnDisco = hasta;
+                }
+                escritoEnDisco.signalAll();
+            } finally {
+                candado.unlock();
+            }
+            if (terminar) return;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package edu.unl.cc.estructuras;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Esta clase representa un índice invertido sobre las notas de los casos.
+ * Por cada palabra guarda en qué casos aparece y cuántas veces, así se puede saber qué tickets
+ * mencionan "beca" o "matrícula" sin recorrer las notas de todos los casos.
+ *
+ * Las palabras se normalizan antes de guardarlas: se pasan a minúsculas y se quitan las tildes,
+ * por lo que "Matrícula", "matricula" y "MATRÍCULA" son la misma palabra. Los resultados se ordenan
+ * de mayor a menor cantidad de apariciones.
+ *
+ * Las palabras se guardan ordenadas para poder buscar por prefijo ("matri" encuentra "matricula" y "matriz").
+ * Una consulta de varias palabras ("beca pendiente") devuelve solo los casos que las mencionan todas.
+ * Varias ventanillas pueden consultar a la vez; las modificaciones se hacen de una en una.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class IndiceInvertido {
+
+    private final TreeMap<String, MapaEnteros<int[]>> terminos = new TreeMap<>(); // Palabra -> (ID caso -> apariciones)
+    private final ReentrantReadWriteLock candado = new ReentrantReadWriteLock();
+
+    /**
+     * Registra las palabras de una nota agregada a un caso
+     * @param casoId ID del caso
+     * @param texto Texto de la nota
+     */
+    public void agregar(int casoId, String texto) {
+        List<String> palabras = tokenizar(texto);
+        candado.writeLock().lock();
+        try {
+            for (String palabra : palabras) {
+                MapaEnteros<int[]> casos = terminos.computeIfAbsent(palabra, p -> new MapaEnteros<>());
+                int[] apariciones = casos.obtener(casoId);
+                if (apariciones == null) {
+                    casos.poner(casoId, new int[] {1});
+                } else {
+                    apariciones[0]++;
+                }
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Quita las palabras de una nota eliminada de un caso
+     * @param casoId ID del caso
+     * @param texto Texto de la nota
+     */
+    public void eliminar(int casoId, String texto) {
+        List<String> palabras = tokenizar(texto);
+        candado.writeLock().lock();
+        try {
+            for (String palabra : palabras) {
+                MapaEnteros<int[]> casos = terminos.get(palabra);
+                if (casos == null) continue;
+                int[] apariciones = casos.obtener(casoId);
+                if (apariciones == null) continue;
+                if (--apariciones[0] == 0) {
+                    casos.eliminar(casoId);
+                    if (casos.estaVacio()) terminos.remove(palabra);
+                }
+            }
+        } finally {
+            candado.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los casos que mencionan exactamente una palabra o, si la consulta tiene varias, todas ellas
+     * (en la misma nota o en notas distintas del caso)
+     * @param termino Palabra o palabras a buscar, se normalizan igual que las notas
+     * @return IDs de los casos, del que más veces menciona las palabras al que menos
+     */
+    public int[] buscar(String termino) {
+        List<String> palabras = palabrasDistintas(termino);
+        if (palabras.isEmpty()) return new int[0];
+        candado.readLock().lock();
+        try {
+            List<MapaEnteros<int[]>> listas = new ArrayList<>(palabras.size());
+            for (String palabra : palabras) {
+                MapaEnteros<int[]> casos = terminos.get(palabra);
+                if (casos == null) return new int[0];
+                listas.add(casos);
+            }
+            return ordenarPorApariciones(intersectar(listas));
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Busca los casos que mencionan alguna palabra que empieza con el prefijo indicado
+     * Si la consulta tiene varias palabras, solo la última se toma como prefijo y las demás deben
+     * aparecer completas en el caso
+     * @param prefijo Inicio de la palabra, se normaliza igual que las notas
+     * @return IDs de los casos, del que más veces menciona esas palabras al que menos
+     */
+    public int[] buscarPrefijo(String prefijo) {
+        List<String> palabras = palabrasDistintas(prefijo);
+        if (palabras.isEmpty()) return new int[0];
+        String inicio = palabras.remove(palabras.size() - 1);
+        candado.readLock().lock();
+        try {
+            MapaEnteros<int[]> conPrefijo = new MapaEnteros<>();
+            for (Map.Entry<String, MapaEnteros<int[]>> entrada
+                    : terminos.subMap(inicio, true, inicio + Character.MAX_VALUE, false).entrySet()) {
+                acumular(entrada.getValue(), conPrefijo);
+            }
+            List<MapaEnteros<int[]>> listas = new ArrayList<>(palabras.size() + 1);
+            listas.add(conPrefijo);
+            for (String palabra : palabras) {
+                MapaEnteros<int[]> casos = terminos.get(palabra);
+                if (casos == null) return new int[0];
+                listas.add(casos);
+            }
+            return ordenarPorApariciones(intersectar(listas));
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return Cantidad de palabras distintas en el índice
+     */
+    public int cantidadTerminos() {
+        candado.readLock().lock();
+        try {
+            return terminos.size();
+        } finally {
+            candado.readLock().unlock();
+        }
+    }
+
+    /**
+     * Divide un texto en palabras normalizadas: minúsculas, sin tildes y solo letras o dígitos
+     * @param texto Texto a dividir
+     * @return Palabras en el orden en que aparecen
+     */
+    public static List<String> tokenizar(String texto) {
+        List<String> palabras = new ArrayList<>();
+        if (texto == null) return palabras;
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < descompuesto.length(); i++) {
+            char c = descompuesto.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) continue; // Tildes y diéresis sueltas
+            if (Character.isLetterOrDigit(c)) {
+                actual.append(Character.toLowerCase(c));
+            } else if (actual.length() > 0) {
+                palabras.add(actual.toString());
+                actual.setLength(0);
+            }
+        }
+        if (actual.length() > 0) palabras.add(actual.toString());
+        return palabras;
+    }
+
+    private static List<String> palabrasDistintas(String consulta) {
+        return new ArrayList<>(new LinkedHashSet<>(tokenizar(consulta)));
+    }
+
+    /**
+     * Casos que están en todas las listas, con la suma de sus apariciones
+     * Se recorre la lista más corta y se busca cada caso en las demás en O(1)
+     */
+    private static MapaEnteros<int[]> intersectar(List<MapaEnteros<int[]>> listas) {
+        MapaEnteros<int[]> menor = listas.get(0);
+        for (MapaEnteros<int[]> lista : listas) {
+            if (lista.tamanio() < menor.tamanio()) menor = lista;
+        }
+        MapaEnteros<int[]> total = new MapaEnteros<>();
+        menor.recorrer((casoId, apariciones) -> {
+            int suma = 0;
+            for (MapaEnteros<int[]> lista : listas) {
+                int[] enLista = lista.obtener(casoId);
+                if (enLista == null) return;
+                suma += enLista[0];
+            }
+            total.poner(casoId, new int[] {suma});
+        });
+        return total;
+    }
+
+    private static void acumular(MapaEnteros<int[]> casos, MapaEnteros<int[]> total) {
+        casos.recorrer((casoId, apariciones) -> {
+            int[] suma = total.obtener(casoId);
+            if (suma == null) {
+                total.poner(casoId, new int[] {apariciones[0]});
+            } else {
+                suma[0] += apariciones[0];
+            }
+        });
+    }
+
+    /**
+     * Ordena los casos por apariciones (mayor primero) y, si empatan, por ID
+     * Cada par se empaqueta en un long para ordenar un arreglo primitivo
+     */
+    private static int[] ordenarPorApariciones(MapaEnteros<int[]> total) {
+        long[] pares = new long[total.tamanio()];
+        int[] i = {0};
+        total.recorrer((casoId, apariciones) ->
+                pares[i[0]++] = ((long) apariciones[0] << 32) | (Integer.MAX_VALUE - casoId));
+        Arrays.sort(pares);
+        int[] ids = new int[pares.length];
+        for (int j = 0; j < pares.length; j++) {
+            ids[j] = Integer.MAX_VALUE - (int) pares[pares.length - 1 - j];
+        }
+        return ids;
+    }
+}
@@ -1,14 +1,57 @@
 package edu.unl.cc.estructuras;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 /**
  * Clase que representa una lista enlazada de notas enlazadas a un caso
  * Permite insertar, eliminar por coincidencia o por índice, y recorrer las notas
+ * Las notas se recorren de la más reciente a la más antigua.
+ *
+ * Además de la lista doblemente enlazada, mantiene un índice para no recorrerla al buscar por posición:
+ * un arreglo con los nodos en orden de inserción y un árbol de Fenwick que cuenta cuántas notas siguen
+ * vivas en cada tramo del arreglo. Así obtener o eliminar la nota de una posición cuesta O(log n)
+ * y el tamaño se consulta en O(1).
+ *
+ * Los nodos también sirven como referencia a su nota: eliminar(Nodo) la quita en O(1) aunque haya otras
+ * notas con el mismo texto. El nodo quitado queda como lápida en su ranura hasta la siguiente compactación,
+ * así restaurar(Nodo) puede devolverlo a la misma posición que tenía en O(log n).
+ *
+ * Cada nodo recibe un número de secuencia que no cambia y que no se repite en la lista, aunque sus notas
+ * se eliminen. Con ese número se ubica una nota cuando ya no se tiene su nodo (buscarPorSecuencia) y se
+ * vuelve a insertar en su lugar (insertar con secuencia), por ejemplo al reconstruir el caso o al deshacer
+ * una acción leída de disco.
+ *
+ * Para casos con miles de notas se pueden leer por páginas (con un cursor basado en el número de
+ * secuencia de cada nodo, que se ubica con búsqueda binaria en el arreglo) o como un Stream que
+ * recorre la lista a medida que se consume, sin copiar todas las notas.
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class ListaNotas {
+
+    private static final int CAPACIDAD_INICIAL = 8;
+
     private Nodo principal;
+    private int tamanio;
+    private long version; // Aumenta con cada cambio, permite saber si una copia de las notas sigue vigente
+    private long ultimaSecuencia; // Secuencia asignada al último nodo insertado
+
+    // Índice posicional
+    private static final Nodo[] SIN_RANURAS = new Nodo[0];
+    private static final int[] SIN_FENWICK = new int[1];
+
+    // Se crean con la primera nota: la mayoría de casos en cola todavía no tiene ninguna
+    private Nodo[] ranuras = SIN_RANURAS; // Nodos en orden de inserción, incluidas las lápidas
+    private int[] fenwick = SIN_FENWICK;  // Cantidad de nodos vivos por tramo (base 1)
+    private int usadas; // Ranuras ocupadas alguna vez desde la última compactación
 
     public ListaNotas() {
         this.principal = null;
@@ -19,33 +62,119 @@ public class ListaNotas {
      * @param nuevo Nodo que contiene el texto de la nota
      */
     public void insertar(Nodo nuevo) {
+        if (nuevo.vivo) throw new IllegalArgumentException("El nodo ya pertenece a una lista.");
+        nuevo.anterior = null;
         nuevo.setSiguiente(principal);
+        if (principal != null) principal.anterior = nuevo;
         principal = nuevo;
+
+        if (usadas == ranuras.length) hacerEspacio();
+        ranuras[usadas] = nuevo;
+        nuevo.posicion = usadas;
+        nuevo.vivo = true;
+        nuevo.lista = this;
+        nuevo.secuencia = ++ultimaSecuencia;
+        sumarFenwick(usadas, 1);
+        usadas++;
+        tamanio++;
+        version++;
     }
 
     /**
-     * Elimina la primera nota que coincida exactamente con el texto dado
-     * @param texto Texto de la nota a eliminar.
+     * Inserta una nota con un número de secuencia ya asignado, en el lugar que le corresponde por él
+     * Si la secuencia es mayor que todas equivale a insertar al inicio; si no, cuesta O(n)
+     * @param nuevo Nodo que contiene el texto de la nota
+     * @param secuencia Secuencia de la nota, mayor que 0
+     * @return false si ya hay una nota con esa secuencia; en ese caso el nodo no se inserta
      */
-    public void eliminarPrimeraCoincidencia(String texto) {
-        if (principal == null || texto == null) return;
-
-        if (principal.getDato().equals(texto)) {
-            principal = principal.getSiguiente();
-            return;
+    public boolean insertar(Nodo nuevo, long secuencia) {
+        if (nuevo.vivo) throw new IllegalArgumentException("El nodo ya pertenece a una lista.");
+        if (secuencia < 1) throw new IllegalArgumentException("La secuencia debe ser positiva.");
+        if (secuencia > ultimaSecuencia) {
+            insertar(nuevo);
+            nuevo.secuencia = secuencia;
+            ultimaSecuencia = secuencia;
+            return true;
         }
+        int ranura = primeraRanuraConSecuenciaMayor(secuencia);
+        Nodo previo = ranura > 0 ? ranuras[ranura - 1] : null;
+        boolean desplazadas = false;
+        if (previo != null && previo.secuencia == secuencia) {
+            if (previo.vivo) return false;
+            ranura--; // Ocupa la ranura de la lápida de esa misma nota
+            if (previo.lista == this) previo.posicion = -1;
+        } else {
+            if (usadas == ranuras.length) {
+                hacerEspacio();
+                ranura = primeraRanuraConSecuenciaMayor(secuencia);
+            }
+            System.arraycopy(ranuras, ranura, ranuras, ranura + 1, usadas - ranura);
+            for (int i = ranura + 1; i <= usadas; i++) {
+                if (ranuras[i].lista == this) ranuras[i].posicion = i;
+            }
+            usadas++;
+            desplazadas = true;
+        }
+        ranuras[ranura] = nuevo;
+        nuevo.posicion = ranura;
+        nuevo.lista = this;
+        nuevo.secuencia = secuencia;
+        if (desplazadas) reconstruirFenwick(); // El nodo todavía no cuenta: enlazar lo suma
+        enlazar(nuevo);
+        return true;
+    }
 
-        Nodo anterior = principal;
-        Nodo actual = principal.getSiguiente();
+    /**
+     * Busca la nota con ese número de secuencia sin recorrer la lista, en O(log n)
+     * @param secuencia Secuencia de la nota (ver Nodo.getSecuencia)
+     * @return Nodo de la nota o null si ninguna nota de la lista tiene esa secuencia
+     */
+    public Nodo buscarPorSecuencia(long secuencia) {
+        int ranura = primeraRanuraConSecuenciaMayor(secuencia) - 1;
+        if (ranura < 0) return null;
+        Nodo nodo = ranuras[ranura];
+        return nodo.vivo && nodo.lista == this && nodo.secuencia == secuencia ? nodo : null;
+    }
 
-        while (actual != null) {
-            if (actual.getDato().equals(texto)) {
-                anterior.setSiguiente(actual.getSiguiente());
-                return;
-            }
-            anterior = actual;
-            actual = actual.getSiguiente();
+    /**
+     * @return Secuencia asignada a la última nota insertada, aunque ya se haya eliminado
+     */
+    public long getUltimaSecuencia() {
+        return ultimaSecuencia;
+    }
+
+    /**
+     * Hace que las notas que se inserten después reciban secuencias mayores que la indicada
+     * Sirve al reconstruir la lista, para no repetir la secuencia de una nota eliminada
+     * @param secuencia Última secuencia usada
+     */
+    public void reservarSecuencias(long secuencia) {
+        ultimaSecuencia = Math.max(ultimaSecuencia, secuencia);
+    }
+
+    /**
+     * Elimina la primera nota que coincida exactamente con el texto dado
+     * @param texto Texto de la nota a eliminar.
+     * @return true si se encontró y eliminó una nota
+     */
+    public boolean eliminarPrimeraCoincidencia(String texto) {
+        Nodo nodo = buscar(texto);
+        if (nodo == null) return false;
+        quitar(nodo);
+        return true;
+    }
+
+    /**
+     * Busca la nota más reciente que coincida exactamente con el texto dado
+     * @param texto Texto de la nota
+     * @return Nodo de la nota o null si no hay ninguna
+     */
+    public Nodo buscar(String texto) {
+        if (texto == null) return null;
+        for (Nodo actual = principal; actual != null; actual = actual.getSiguiente()) {
+            if (actual.getDato().equals(texto)) return actual;
         }
+        return null;
     }
 
     /**
@@ -54,27 +183,107 @@ public class ListaNotas {
      * @return Texto de la nota eliminada
      */
     public String eliminarPorIndiceYObtenerTexto(int indice) {
-        if (indice < 0) return null;
+        Nodo nodo = eliminarPorIndice(indice);
+        return nodo == null ? null : nodo.getDato();
+    }
 
-        Nodo actual = principal;
-        Nodo anterior = null;
-        int contador = 0;
+    /**
+     * Elimina la nota ubicada en la posición indicada
+     * @param indice Posición de la nota a eliminar, 0 es la más reciente
+     * @return Nodo eliminado, que sirve para restaurarlo después, o null si la posición no existe
+     */
+    public Nodo eliminarPorIndice(int indice) {
+        if (indice < 0 || indice >= tamanio) return null;
+        Nodo nodo = ranuras[buscarRanura(indice)];
+        quitar(nodo);
+        return nodo;
+    }
 
-        while (actual != null) {
-            if (contador == indice) {
-                String texto = actual.getDato();
-                if (anterior == null) {
-                    principal = actual.getSiguiente();
-                } else {
-                    anterior.setSiguiente(actual.getSiguiente());
-                }
-                return texto;
-            }
-            anterior = actual;
-            actual = actual.getSiguiente();
-            contador++;
+    /**
+     * Elimina exactamente la nota de ese nodo en O(1), sin comparar textos
+     * @param nodo Nodo devuelto al insertar o eliminar la nota
+     * @return true si el nodo estaba en esta lista y se eliminó
+     */
+    public boolean eliminar(Nodo nodo) {
+        if (!perteneceAqui(nodo) || !nodo.vivo) return false;
+        quitar(nodo);
+        return true;
+    }
+
+    /**
+     * Vuelve a enlazar un nodo eliminado de esta lista en la posición que ocupaba
+     * Si su ranura ya se compactó, o el nodo viene de otra lista (por ejemplo de una copia anterior del
+     * mismo caso), se ubica por su secuencia; si no tiene o ya está ocupada, se inserta al inicio
+     * @param nodo Nodo eliminado
+     * @return true si se restauró; false si el nodo ya estaba en una lista
+     */
+    public boolean restaurar(Nodo nodo) {
+        if (nodo.vivo) return false;
+        if (!perteneceAqui(nodo)) {
+            nodo.posicion = -1;
+            if (nodo.secuencia < 1 || !insertar(nodo, nodo.secuencia)) insertar(nodo);
+            return true;
         }
-        return null;
+        enlazar(nodo);
+        return true;
+    }
+
+    /**
+     * Enlaza un nodo que ya ocupa su ranura entre sus vecinos vivos y lo cuenta en el índice
+     */
+    private void enlazar(Nodo nodo) {
+        // Vecinos vivos en orden de inserción: el de la izquierda es más antiguo y el de la derecha más reciente
+        int anteriores = contarVivosAntes(nodo.posicion);
+        Nodo masAntiguo = anteriores > 0 ? ranuras[ranuraDelVivo(anteriores)] : null;
+        Nodo masReciente = anteriores < tamanio ? ranuras[ranuraDelVivo(anteriores + 1)] : null;
+
+        nodo.setSiguiente(masAntiguo);
+        nodo.anterior = masReciente;
+        if (masAntiguo != null) masAntiguo.anterior = nodo;
+        if (masReciente == null) {
+            principal = nodo;
+        } else {
+            masReciente.setSiguiente(nodo);
+        }
+        nodo.vivo = true;
+        sumarFenwick(nodo.posicion, 1);
+        tamanio++;
+        version++;
+    }
+
+    /**
+     * Devuelve el texto de la nota ubicada en la posición indicada sin recorrer la lista
+     * @param indice Posición de la nota, 0 es la más reciente
+     * @return Texto de la nota o null si la posición no existe
+     */
+    public String obtener(int indice) {
+        if (indice < 0 || indice >= tamanio) return null;
+        return ranuras[buscarRanura(indice)].getDato();
+    }
+
+    /**
+     * Devuelve la posición actual de la nota de ese nodo sin recorrer la lista, en O(log n)
+     * @param nodo Nodo de la nota
+     * @return Posición de la nota, 0 es la más reciente, o -1 si el nodo no está en esta lista
+     */
+    public int indiceDe(Nodo nodo) {
+        if (!nodo.vivo || !perteneceAqui(nodo)) return -1;
+        return tamanio - 1 - contarVivosAntes(nodo.posicion);
+    }
+
+    /**
+     * @return Cantidad de notas en la lista
+     */
+    public int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * Devuelve un número que cambia cada vez que se inserta o elimina una nota
+     * @return Versión actual de la lista
+     */
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -85,6 +294,54 @@ public class ListaNotas {
         return principal == null;
     }
 
+    /**
+     * Devuelve una página de notas a partir de un cursor
+     * @param cursor PaginaNotas.INICIO para la primera página o el cursor de la página anterior
+     * @param tamanioPagina Cantidad máxima de notas de la página
+     * @param inversa false para ir de la más reciente a la más antigua, true para el orden contrario
+     * @return Página con las notas y el cursor para continuar
+     */
+    public PaginaNotas pagina(long cursor, int tamanioPagina, boolean inversa) {
+        if (tamanioPagina < 1) throw new IllegalArgumentException("El tamaño de página debe ser positivo.");
+        List<String> textos = new ArrayList<>(Math.min(tamanioPagina, tamanio));
+        long ultimo = cursor;
+        Nodo actual = primeroDespuesDe(cursor, inversa);
+        while (actual != null && textos.size() < tamanioPagina) {
+            textos.add(actual.getDato());
+            ultimo = actual.secuencia;
+            actual = inversa ? actual.anterior : actual.getSiguiente();
+        }
+        return new PaginaNotas(textos, ultimo, actual != null);
+    }
+
+    /**
+     * Recorre las notas a medida que se consumen, sin copiarlas
+     * Como la lista no está sincronizada, no debe modificarse mientras se consume el Stream
+     * @param inversa false para ir de la más reciente a la más antigua, true para el orden contrario
+     * @return Stream perezoso con el texto de las notas
+     */
+    public Stream<String> stream(boolean inversa) {
+        Nodo inicio = inversa ? masAntiguo() : principal;
+        Iterator<String> iterador = new Iterator<>() {
+            private Nodo actual = inicio;
+
+            @Override
+            public boolean hasNext() {
+                return actual != null;
+            }
+
+            @Override
+            public String next() {
+                if (actual == null) throw new NoSuchElementException();
+                String dato = actual.getDato();
+                actual = inversa ? actual.anterior : actual.getSiguiente();
+                return dato;
+            }
+        };
+        return StreamSupport.stream(
+                Spliterators.spliterator(iterador, tamanio, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     /**
      * Devuelve el nodo principal de la lista
      * @return Nodo cabeza de la lista
@@ -93,6 +350,145 @@ public class ListaNotas {
         return principal;
     }
 
+    private Nodo masAntiguo() {
+        return tamanio == 0 ? null : ranuras[ranuraDelVivo(1)];
+    }
+
+    /**
+     * Busca la primera nota viva que sigue al cursor en el orden pedido
+     * Las ranuras están ordenadas por secuencia, así que se ubica el cursor con búsqueda binaria y
+     * el árbol de Fenwick da el vecino vivo más cercano aunque la nota del cursor ya se haya eliminado
+     */
+    private Nodo primeroDespuesDe(long cursor, boolean inversa) {
+        if (cursor <= PaginaNotas.INICIO) return inversa ? masAntiguo() : principal;
+        if (inversa) {
+            int vivos = contarVivosAntes(primeraRanuraConSecuenciaMayor(cursor)); // Secuencia <= cursor
+            return vivos < tamanio ? ranuras[ranuraDelVivo(vivos + 1)] : null;
+        }
+        int vivos = contarVivosAntes(primeraRanuraConSecuenciaMayor(cursor - 1)); // Secuencia < cursor
+        return vivos > 0 ? ranuras[ranuraDelVivo(vivos)] : null;
+    }
+
+    private int primeraRanuraConSecuenciaMayor(long secuencia) {
+        int bajo = 0;
+        int alto = usadas;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (ranuras[medio].secuencia > secuencia) {
+                alto = medio;
+            } else {
+                bajo = medio + 1;
+            }
+        }
+        return bajo;
+    }
+
+    private boolean perteneceAqui(Nodo nodo) {
+        return nodo.lista == this && nodo.posicion >= 0 && nodo.posicion < usadas && ranuras[nodo.posicion] == nodo;
+    }
+
+    /**
+     * Desenlaza el nodo en O(1) y lo marca como lápida en el índice en O(log n)
+     */
+    private void quitar(Nodo nodo) {
+        Nodo siguiente = nodo.getSiguiente();
+        if (nodo.anterior == null) {
+            principal = siguiente;
+        } else {
+            nodo.anterior.setSiguiente(siguiente);
+        }
+        if (siguiente != null) siguiente.anterior = nodo.anterior;
+        nodo.anterior = null;
+        nodo.setSiguiente(null);
+
+        nodo.vivo = false; // Sigue en su ranura para poder restaurarlo
+        sumarFenwick(nodo.posicion, -1);
+        tamanio--;
+        version++;
+    }
+
+    /**
+     * Convierte una posición de la lista (0 = más reciente) en la ranura del arreglo que la contiene
+     * Busca en el árbol de Fenwick la ranura donde el conteo acumulado de nodos vivos alcanza la posición
+     */
+    private int buscarRanura(int indice) {
+        return ranuraDelVivo(tamanio - indice); // En orden de inserción, la más reciente es la última viva
+    }
+
+    /**
+     * Devuelve la ranura del k-ésimo nodo vivo en orden de inserción (k empieza en 1)
+     */
+    private int ranuraDelVivo(int k) {
+        int buscado = k;
+        int posicion = 0;
+        for (int paso = Integer.highestOneBit(ranuras.length); paso > 0; paso >>= 1) {
+            int siguiente = posicion + paso;
+            if (siguiente <= ranuras.length && fenwick[siguiente] < buscado) {
+                posicion = siguiente;
+                buscado -= fenwick[siguiente];
+            }
+        }
+        return posicion; // El índice base 1 es posicion + 1, así que la ranura es posicion
+    }
+
+    /**
+     * Cuenta los nodos vivos en las ranuras anteriores a la indicada
+     */
+    private int contarVivosAntes(int ranura) {
+        int total = 0;
+        for (int i = ranura; i > 0; i -= i & -i) {
+            total += fenwick[i];
+        }
+        return total;
+    }
+
+    private void sumarFenwick(int ranura, int valor) {
+        for (int i = ranura + 1; i < fenwick.length; i += i & -i) {
+            fenwick[i] += valor;
+        }
+    }
+
+    /**
+     * Si más de la mitad de las ranuras están vacías se compactan; si no, el arreglo se duplica
+     * En ambos casos las lápidas se descartan y el árbol de Fenwick se reconstruye en O(n)
+     */
+    private void hacerEspacio() {
+        Nodo[] nuevas;
+        if (ranuras.length == 0) {
+            nuevas = new Nodo[CAPACIDAD_INICIAL];
+        } else {
+            nuevas = tamanio * 2 <= ranuras.length ? new Nodo[ranuras.length] : new Nodo[ranuras.length * 2];
+        }
+        int j = 0;
+        for (int i = 0; i < usadas; i++) {
+            Nodo nodo = ranuras[i];
+            if (nodo.lista != this) continue; // Lápida de un nodo que ya se insertó en otra lista
+            if (nodo.vivo) {
+                nodo.posicion = j;
+                nuevas[j++] = nodo;
+            } else {
+                nodo.posicion = -1;
+            }
+        }
+        ranuras = nuevas;
+        usadas = j;
+        reconstruirFenwick();
+    }
+
+    /**
+     * Vuelve a contar los nodos vivos de cada ranura en O(n), después de mover las ranuras
+     */
+    private void reconstruirFenwick() {
+        fenwick = new int[ranuras.length + 1];
+        for (int i = 0; i < usadas; i++) {
+            if (ranuras[i].vivo && ranuras[i].lista == this) fenwick[i + 1] = 1;
+        }
+        for (int i = 1; i < fenwick.length; i++) {
+            int padre = i + (i & -i);
+            if (padre < fenwick.length) fenwick[padre] += fenwick[i];
+        }
+    }
+
     /**
      * Devuelve una representación en texto de todas las notas
      * @return String
@@ -107,4 +503,4 @@ public class ListaNotas {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
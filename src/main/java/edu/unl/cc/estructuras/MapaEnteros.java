@@ -0,0 +1,182 @@
+package edu.unl.cc.estructuras;
+
+import java.util.Arrays;
+
+/**
+ * Esta clase representa un mapa cuyas claves son números enteros primitivos (por ejemplo el ID de un caso).
+ * Utiliza direccionamiento abierto con sondeo lineal sobre dos arreglos paralelos, por lo que
+ * no crea objetos Integer ni nodos por cada entrada y buscar, agregar y eliminar cuestan O(1) en promedio.
+ * Los métodos están sincronizados para poder usarse desde varias ventanillas a la vez.
+ *
+ * @param <V> Tipo de los valores guardados, no se permiten valores null
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class MapaEnteros<V> {
+
+    private static final int CAPACIDAD_INICIAL = 16; // Siempre potencia de dos
+
+    private int[] claves;
+    private Object[] valores; // Una posición con valor null está libre
+    private int tamanio;
+
+    /**
+     * Acción que se ejecuta sobre cada entrada al recorrer el mapa, recibe la clave sin convertirla en Integer
+     * @param <V> Tipo de los valores
+     */
+    public interface Visitante<V> {
+        void visitar(int clave, V valor);
+    }
+
+    public MapaEnteros() {
+        this.claves = new int[CAPACIDAD_INICIAL];
+        this.valores = new Object[CAPACIDAD_INICIAL];
+    }
+
+    /**
+     * Guarda un valor asociado a la clave, reemplazando el anterior si existía
+     * @param clave Clave entera
+     * @param valor Valor a guardar
+     * @return Valor anterior o null si la clave no existía
+     */
+    public synchronized V poner(int clave, V valor) {
+        if (valor == null) throw new IllegalArgumentException("El valor no puede ser null.");
+        int i = buscarPosicion(clave);
+        V anterior = valorEn(i);
+        if (anterior == null) {
+            claves[i] = clave;
+            tamanio++;
+        }
+        valores[i] = valor;
+        if (anterior == null && tamanio * 4 > valores.length * 3) crecer();
+        return anterior;
+    }
+
+    /**
+     * Devuelve el valor asociado a la clave
+     * @param clave Clave entera
+     * @return Valor guardado o null si la clave no existe
+     */
+    public synchronized V obtener(int clave) {
+        return valorEn(buscarPosicion(clave));
+    }
+
+    /**
+     * Verifica si existe un valor para la clave
+     * @param clave Clave entera
+     * @return true si la clave está en el mapa
+     */
+    public synchronized boolean contiene(int clave) {
+        return valores[buscarPosicion(clave)] != null;
+    }
+
+    /**
+     * Elimina la entrada asociada a la clave
+     * Las entradas siguientes del mismo grupo se recorren hacia atrás para no dejar huecos en el sondeo
+     * @param clave Clave entera
+     * @return Valor eliminado o null si la clave no existía
+     */
+    public synchronized V eliminar(int clave) {
+        int i = buscarPosicion(clave);
+        V eliminado = valorEn(i);
+        if (eliminado == null) return null;
+        valores[i] = null;
+        tamanio--;
+
+        int mascara = valores.length - 1;
+        int hueco = i;
+        int j = (i + 1) & mascara;
+        while (valores[j] != null) {
+            int ideal = posicionIdeal(claves[j]);
+            // Se mueve la entrada j al hueco si su posición ideal no está entre el hueco y j
+            if (((j - ideal) & mascara) >= ((j - hueco) & mascara)) {
+                claves[hueco] = claves[j];
+                valores[hueco] = valores[j];
+                valores[j] = null;
+                hueco = j;
+            }
+            j = (j + 1) & mascara;
+        }
+        return eliminado;
+    }
+
+    /**
+     * @return Cantidad de entradas en el mapa
+     */
+    public synchronized int tamanio() {
+        return tamanio;
+    }
+
+    /**
+     * Verifica si el mapa está vacío
+     * @return true si no hay entradas
+     */
+    public synchronized boolean estaVacio() {
+        return tamanio == 0;
+    }
+
+    /**
+     * Agranda el mapa de una vez para que quepan las entradas indicadas sin crecer varias veces
+     * @param cantidad Cantidad total de entradas esperada
+     */
+    public synchronized void reservar(int cantidad) {
+        while (cantidad * 4 > valores.length * 3) {
+            crecer();
+        }
+    }
+
+    /**
+     * Recorre todas las entradas del mapa en un orden cualquiera
+     * El mapa queda bloqueado durante el recorrido, el visitante no debe modificarlo
+     * @param visitante Acción a ejecutar por cada entrada
+     */
+    public synchronized void recorrer(Visitante<V> visitante) {
+        for (int i = 0; i < valores.length; i++) {
+            if (valores[i] != null) visitante.visitar(claves[i], valorEn(i));
+        }
+    }
+
+    /**
+     * Elimina todas las entradas del mapa
+     */
+    public synchronized void limpiar() {
+        Arrays.fill(valores, null);
+        tamanio = 0;
+    }
+
+    /**
+     * Busca la posición donde está la clave o, si no existe, la primera posición libre de su grupo
+     */
+    private int buscarPosicion(int clave) {
+        int mascara = valores.length - 1;
+        int i = posicionIdeal(clave);
+        while (valores[i] != null && claves[i] != clave) {
+            i = (i + 1) & mascara;
+        }
+        return i;
+    }
+
+    private int posicionIdeal(int clave) {
+        int h = clave * 0x9E3779B9; // Dispersión de Fibonacci para que IDs consecutivos no se agrupen
+        return (h ^ (h >>> 16)) & (valores.length - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valorEn(int i) {
+        return (V) valores[i];
+    }
+
+    private void crecer() {
+        int[] clavesViejas = claves;
+        Object[] valoresViejos = valores;
+        claves = new int[clavesViejas.length * 2];
+        valores = new Object[valoresViejos.length * 2];
+        for (int i = 0; i < valoresViejos.length; i++) {
+            if (valoresViejos[i] != null) {
+                int j = buscarPosicion(clavesViejas[i]);
+                claves[j] = clavesViejas[i];
+                valores[j] = valoresViejos[i];
+            }
+        }
+    }
+}
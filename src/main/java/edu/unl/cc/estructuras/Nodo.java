@@ -1,16 +1,23 @@
 package edu.unl.cc.estructuras;
 
 /**
- * Esta clase representa un nodo dentro de una lista enlazada simple.
- * Cada nodo contiene un dato de tipo texto y una referencia al siguiente nodo
+ * Esta clase representa un nodo dentro de una lista doblemente enlazada.
+ * Cada nodo contiene un dato de tipo texto, una referencia al siguiente nodo y otra al anterior
+ * El nodo de una nota sirve como referencia estable a ella: deshacer y rehacer lo quitan o lo vuelven
+ * a enlazar directamente, sin buscar la nota por su texto
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class Nodo {
 
     private final String dato;
     private Nodo siguiente; // Referencia al siguiente nodo
+    Nodo anterior;          // Referencia al nodo anterior, la mantiene ListaNotas
+    int posicion = -1;      // Posición en el índice de ListaNotas, -1 si el nodo no está en ninguna lista
+    boolean vivo;           // false si no está enlazado; con posicion >= 0 es una lápida que puede restaurarse
+    ListaNotas lista;       // Última lista en la que se insertó
+    long secuencia;         // Orden de inserción en su lista, sirve como cursor de paginación
 
     /**
      * Constructor que inicializa el nodo con un dato
@@ -22,6 +29,13 @@ public class Nodo {
         this.siguiente = null;
     }
 
+    /**
+     * Constructor para nodos que guardan su texto en otro lugar (ver ArenaNotas) y redefinen getDato
+     */
+    Nodo() {
+        this(null);
+    }
+
     public String getDato() {
         return dato;
     }
@@ -33,4 +47,22 @@ public class Nodo {
     public void setSiguiente(Nodo siguiente) {
         this.siguiente = siguiente;
     }
-}
\ No newline at end of file
+
+    public Nodo getAnterior() {
+        return anterior;
+    }
+
+    /**
+     * @return Número de orden de la nota en su lista: las notas más recientes tienen números mayores
+     */
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    /**
+     * @return true si el nodo está enlazado en una lista de notas
+     */
+    public boolean estaEnLista() {
+        return vivo;
+    }
+}
@@ -0,0 +1,44 @@
+package edu.unl.cc.estructuras;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Esta clase representa una página de notas de un caso
+ * Además de las notas trae un cursor: pasarlo a la siguiente consulta continúa justo después de la
+ * última nota de esta página, aunque entre tanto se hayan agregado o eliminado notas
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class PaginaNotas {
+
+    public static final long INICIO = 0; // Cursor para pedir la primera página
+
+    private final List<String> notas;
+    private final long cursor;     // Secuencia de la última nota devuelta
+    private final boolean hayMas;  // true si quedan notas después de esta página
+
+    /**
+     * @param notas Textos de la página, en el orden pedido
+     * @param cursor Cursor para pedir la página siguiente
+     * @param hayMas Indica si quedan más notas
+     */
+    public PaginaNotas(List<String> notas, long cursor, boolean hayMas) {
+        this.notas = Collections.unmodifiableList(notas);
+        this.cursor = cursor;
+        this.hayMas = hayMas;
+    }
+
+    public List<String> getNotas() {
+        return notas;
+    }
+
+    public long getCursor() {
+        return cursor;
+    }
+
+    public boolean hayMas() {
+        return hayMas;
+    }
+}
@@ -1,29 +1,93 @@
 package edu.unl.cc.estructuras;
 
 import edu.unl.cc.modelo.Accion;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
- * Esta clase implementa una pila enlazada para almacenar acciones realizadas sobre un caso
- * Cada acción se guarda en un nodo que apunta al anterior
+ * Esta clase implementa una pila para almacenar acciones realizadas sobre un caso
+ * Las acciones se guardan en arreglos circulares: la cima es la última acción registrada
+ *
+ * Por defecto la pila no tiene límite. También puede crearse con capacidad limitada para que la memoria
+ * no crezca durante un turno largo: cuando está llena, la acción más antigua se descarta o se guarda al
+ * final de un archivo. Las acciones del archivo solo se vuelven a leer (por bloques) si se deshace hasta
+ * llegar a ellas. Las acciones leídas del archivo ya no tienen el nodo de su nota, pero sí su número de
+ * secuencia, con el que se ubica la misma nota y su posición al deshacerlas.
+ *
+ * Las acciones no se guardan como objetos: cada una ocupa una posición en arreglos paralelos con su código
+ * empaquetado (caso, tipo y estados en un long) y su nota, que es el nodo o, si la acción no tiene nodo, el
+ * texto. El texto de una nota con nodo no se copia: se lee del nodo cuando hace falta, y en el archivo de
+ * derrame se escribe el texto con la secuencia de la nota. La Accion que devuelve deshacer es una vista creada al sacarla, no algo
+ * que la pila mantenga en memoria.
+ *
+ * Varias acciones pueden registrarse como un grupo que se deshace de una vez: cada acción del grupo salvo
+ * la primera queda marcada como unida a la que tiene debajo. Si la pila descarta las acciones más antiguas
+ * puede quedar solo la parte más reciente de un grupo, que se sigue deshaciendo junta.
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class PilaAcciones {
 
-    private NodoAccion cima;
+    private static final int SIN_LIMITE = -1;
+    private static final int CAPACIDAD_INICIAL = 16;
+
+    private long[] codigos;  // Código empaquetado de cada acción
+    private String[] textos; // Texto de la nota solo si la acción no tiene nodo, si no null
+    private Nodo[] notas;    // Nodo de la nota o null
+    private long[] secuencias; // Secuencia de la nota solo si la acción no tiene nodo (leída de disco), si no 0
+    private int inicio;   // Posición de la acción más antigua en memoria
+    private int cantidad; // Acciones en memoria
+    private final int capacidad;
+
+    // Solo cuando se derrama a disco
+    private final Path rutaDerrame;
+    private RandomAccessFile archivoDerrame; // Se abre con el primer derrame
+    private int enDisco;
+
+    public PilaAcciones() {
+        this(SIN_LIMITE, null);
+    }
+
+    private PilaAcciones(int capacidad, Path rutaDerrame) {
+        this.capacidad = capacidad;
+        this.rutaDerrame = rutaDerrame;
+        int tamanio = capacidad == SIN_LIMITE ? CAPACIDAD_INICIAL : capacidad;
+        this.codigos = new long[tamanio];
+        this.textos = new String[tamanio];
+        this.notas = new Nodo[tamanio];
+        this.secuencias = new long[tamanio];
+    }
 
     /**
-     * Clase interna que representa un nodo en la pila
-     * Contiene una acción y una referencia al nodo anterior
+     * Crea una pila que olvida las acciones más antiguas cuando se llena
+     * @param capacidad Máximo de acciones recordadas
+     * @return Pila acotada
      */
-    private static class NodoAccion {
-        Accion accion;
-        NodoAccion anterior;
+    public static PilaAcciones descartandoAntiguas(int capacidad) {
+        if (capacidad < 1) throw new IllegalArgumentException("La capacidad debe ser positiva.");
+        return new PilaAcciones(capacidad, null);
+    }
 
-        NodoAccion(Accion accion) {
-            this.accion = accion;
-        }
+    /**
+     * Crea una pila que guarda en disco las acciones más antiguas cuando se llena
+     * @param capacidad Máximo de acciones en memoria
+     * @param archivo Archivo de derrame, se crea solo si llega a hacer falta
+     * @return Pila acotada
+     */
+    public static PilaAcciones derramandoA(int capacidad, Path archivo) {
+        if (capacidad < 1) throw new IllegalArgumentException("La capacidad debe ser positiva.");
+        return new PilaAcciones(capacidad, archivo);
     }
 
     /**
@@ -32,9 +96,74 @@ public class PilaAcciones {
      * @param accion Acción que se desea registrar
      */
     public void registrar(Accion accion) {
-        NodoAccion nuevo = new NodoAccion(accion);
-        nuevo.anterior = cima;
-        cima = nuevo;
+        poner(accion.unidaALaAnterior(false));
+    }
+
+    /**
+     * Agrega varias acciones como un grupo que deshacerGrupo devuelve completo
+     * @param grupo Acciones en el orden en que se realizaron
+     */
+    public void registrarGrupo(List<Accion> grupo) {
+        for (int i = 0; i < grupo.size(); i++) {
+            poner(grupo.get(i).unidaALaAnterior(i > 0));
+        }
+    }
+
+    private void poner(Accion accion) {
+        if (cantidad == codigos.length) {
+            if (capacidad == SIN_LIMITE) {
+                crecer();
+            } else {
+                Accion masAntigua = sacar(inicio);
+                inicio = (inicio + 1) % codigos.length;
+                cantidad--;
+                if (rutaDerrame != null) derramar(masAntigua);
+            }
+        }
+        int i = (inicio + cantidad) % codigos.length;
+        codigos[i] = accion.getCodigo();
+        textos[i] = accion.getTextoPropio();
+        notas[i] = accion.getNota();
+        secuencias[i] = accion.getNota() == null ? accion.getSecuencia() : 0;
+        cantidad++;
+    }
+
+    /**
+     * Vuelve a poner acciones copiadas con acciones(), conservando cuáles forman grupo
+     * @param acciones Acciones de la más antigua a la más reciente
+     */
+    public void restaurar(List<Accion> acciones) {
+        for (Accion accion : acciones) {
+            poner(accion);
+        }
+    }
+
+    /**
+     * Copia todas las acciones sin sacarlas, también las guardadas en disco
+     * Las que vienen del disco no tienen el nodo de su nota, solo su texto y su secuencia
+     * @return Acciones de la más antigua a la más reciente, cada una con su marca de grupo
+     */
+    public List<Accion> acciones() {
+        List<Accion> copia = new ArrayList<>(enDisco + cantidad);
+        if (enDisco > 0) {
+            try {
+                archivoDerrame.seek(0);
+                byte[] contenido = new byte[(int) archivoDerrame.length()];
+                archivoDerrame.readFully(contenido);
+                DataInputStream entrada = new DataInputStream(new ByteArrayInputStream(contenido));
+                for (int i = 0; i < enDisco; i++) {
+                    copia.add(Accion.leer(entrada));
+                    entrada.readInt(); // Longitud del registro, solo sirve para leer desde el final
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudieron leer las acciones de " + rutaDerrame, e);
+            }
+        }
+        for (int k = 0; k < cantidad; k++) {
+            int i = (inicio + k) % codigos.length;
+            copia.add(Accion.desdeCodigo(codigos[i], textos[i], notas[i], secuencias[i]));
+        }
+        return copia;
     }
 
     /**
@@ -43,18 +172,46 @@ public class PilaAcciones {
      * @return Última acción registrada o si no null si la pila está vacía
      */
     public Accion deshacer() {
-        if (cima == null) return null;
-        Accion accion = cima.accion;
-        cima = cima.anterior;
+        if (cantidad == 0 && enDisco > 0) recuperar();
+        if (cantidad == 0) return null;
+        Accion accion = sacar((inicio + cantidad - 1) % codigos.length);
+        cantidad--;
         return accion;
     }
 
     /**
-     * Elimina todas las acciones de la pila
+     * Elimina y devuelve el último grupo registrado (una acción suelta es un grupo de una)
+     * @return Acciones del grupo desde la más reciente, vacía si la pila está vacía
+     */
+    public List<Accion> deshacerGrupo() {
+        List<Accion> grupo = new ArrayList<>();
+        Accion accion;
+        do {
+            accion = deshacer();
+            if (accion == null) break;
+            grupo.add(accion);
+        } while (accion.continuaGrupo());
+        return grupo;
+    }
+
+    /**
+     * Elimina todas las acciones de la pila, también las guardadas en disco
      * Se utiliza al registrar una nueva acción para limpiar la pila de rehacer
      */
     public void limpiar() {
-        cima = null;
+        Arrays.fill(textos, null);
+        Arrays.fill(notas, null);
+        Arrays.fill(secuencias, 0);
+        inicio = 0;
+        cantidad = 0;
+        if (enDisco > 0) {
+            try {
+                archivoDerrame.setLength(0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo vaciar el archivo de derrame " + rutaDerrame, e);
+            }
+            enDisco = 0;
+        }
     }
 
     /**
@@ -62,6 +219,119 @@ public class PilaAcciones {
      * @return true si no hay acciones registrada, false en caso contrario
      */
     public boolean estaVacia() {
-        return cima == null;
+        return cantidad == 0 && enDisco == 0;
+    }
+
+    /**
+     * @return Cantidad de acciones, en memoria y en disco
+     */
+    public int tamanio() {
+        return cantidad + enDisco;
+    }
+
+    /**
+     * @return Cantidad de acciones guardadas en disco
+     */
+    public int getEnDisco() {
+        return enDisco;
+    }
+
+    /**
+     * Cierra y borra el archivo de derrame, si se llegó a crear
+     * La pila queda vacía
+     */
+    public void cerrar() {
+        limpiar();
+        if (archivoDerrame == null) return;
+        try {
+            archivoDerrame.close();
+            Files.deleteIfExists(rutaDerrame);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el archivo de derrame " + rutaDerrame, e);
+        } finally {
+            archivoDerrame = null;
+        }
+    }
+
+    /**
+     * Arma la vista de la acción en la posición indicada y libera la posición
+     */
+    private Accion sacar(int i) {
+        Accion accion = Accion.desdeCodigo(codigos[i], textos[i], notas[i], secuencias[i]);
+        textos[i] = null;
+        notas[i] = null;
+        secuencias[i] = 0;
+        return accion;
+    }
+
+    private void crecer() {
+        int tamanio = codigos.length * 2;
+        long[] nuevosCodigos = new long[tamanio];
+        String[] nuevosTextos = new String[tamanio];
+        Nodo[] nuevasNotas = new Nodo[tamanio];
+        long[] nuevasSecuencias = new long[tamanio];
+        for (int i = 0; i < cantidad; i++) {
+            int j = (inicio + i) % codigos.length;
+            nuevosCodigos[i] = codigos[j];
+            nuevosTextos[i] = textos[j];
+            nuevasNotas[i] = notas[j];
+            nuevasSecuencias[i] = secuencias[j];
+        }
+        codigos = nuevosCodigos;
+        textos = nuevosTextos;
+        notas = nuevasNotas;
+        secuencias = nuevasSecuencias;
+        inicio = 0;
+    }
+
+    /**
+     * Escribe la acción al final del archivo seguida de su longitud, así el archivo se puede leer
+     * desde el final como una pila
+     */
+    private void derramar(Accion accion) {
+        try {
+            if (archivoDerrame == null) {
+                archivoDerrame = new RandomAccessFile(rutaDerrame.toFile(), "rw");
+                archivoDerrame.setLength(0);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            accion.escribir(new DataOutputStream(bytes));
+            archivoDerrame.seek(archivoDerrame.length());
+            archivoDerrame.write(bytes.toByteArray());
+            archivoDerrame.writeInt(bytes.size());
+            enDisco++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo derramar una acción a " + rutaDerrame, e);
+        }
+    }
+
+    /**
+     * Con la pila en memoria vacía, lee del final del archivo hasta media capacidad de acciones
+     * La más reciente del archivo queda en la cima
+     */
+    private void recuperar() {
+        int aLeer = Math.min(enDisco, Math.max(1, codigos.length / 2));
+        try {
+            long fin = archivoDerrame.length();
+            inicio = 0;
+            for (int i = aLeer - 1; i >= 0; i--) {
+                archivoDerrame.seek(fin - Integer.BYTES);
+                int longitud = archivoDerrame.readInt();
+                byte[] registro = new byte[longitud];
+                fin -= Integer.BYTES + longitud;
+                archivoDerrame.seek(fin);
+                archivoDerrame.readFully(registro);
+                Accion accion = Accion.leer(new DataInputStream(new ByteArrayInputStream(registro)));
+                codigos[i] = accion.getCodigo();
+                textos[i] = accion.getTextoPropio();
+                notas[i] = null;
+                secuencias[i] = accion.getSecuencia();
+            }
+            archivoDerrame.setLength(fin);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudieron recuperar acciones de " + rutaDerrame, e);
+        }
+        cantidad = aLeer;
+        enDisco -= aLeer;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package edu.unl.cc.estructuras;
+
+/**
+ * Indica qué hacer con un caso nuevo cuando la cola de espera ya está llena
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public enum PoliticaDesborde {
+    RECHAZAR,          // Lanza ColaLlenaException de inmediato
+    BLOQUEAR,          // Espera hasta que se libere espacio o se agote el tiempo máximo
+    DERRAMAR_A_DISCO   // Guarda el caso en un archivo y lo devuelve a memoria cuando haya espacio
+}
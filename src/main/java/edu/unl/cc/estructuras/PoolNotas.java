@@ -0,0 +1,96 @@
+package edu.unl.cc.estructuras;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Esta clase representa una tabla para compartir el texto de las notas que se repiten.
+ * Los agentes escriben muchas veces las mismas notas ("Documentos recibidos", "Pendiente de firma"):
+ * con esta tabla todas esas notas usan el mismo String en lugar de una copia por caso.
+ *
+ * La tabla tiene un tamaño fijo y guarda referencias débiles, así nunca crece ni impide que el
+ * recolector libere textos que ya ninguna nota usa. Cada texto tiene una sola casilla posible; si otro
+ * texto la ocupa, el nuevo la reemplaza (se pierde algo de ahorro, nunca una nota).
+ * Varias ventanillas pueden usarla a la vez sin bloqueos.
+ *
+ * Compartir el String no afecta a deshacer y rehacer: cada nota sigue teniendo su propio nodo y
+ * los Strings son inmutables.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class PoolNotas {
+
+    private static final int CAPACIDAD_POR_DEFECTO = 4096;
+
+    private final AtomicReferenceArray<WeakReference<String>> casillas;
+    private final AtomicLong bytesAhorrados = new AtomicLong();
+    private final AtomicLong reutilizados = new AtomicLong();
+
+    public PoolNotas() {
+        this(CAPACIDAD_POR_DEFECTO);
+    }
+
+    /**
+     * @param capacidad Cantidad máxima de textos distintos recordados, se redondea a potencia de dos
+     */
+    public PoolNotas(int capacidad) {
+        if (capacidad < 1) throw new IllegalArgumentException("La capacidad debe ser positiva.");
+        int tamanio = Integer.highestOneBit(capacidad);
+        if (tamanio < capacidad) tamanio <<= 1;
+        this.casillas = new AtomicReferenceArray<>(tamanio);
+    }
+
+    /**
+     * Devuelve el String compartido con el mismo contenido o, si no hay ninguno, registra este
+     * @param texto Texto de la nota
+     * @return Instancia compartida igual al texto
+     */
+    public String compartir(String texto) {
+        if (texto == null) return null;
+        int h = texto.hashCode();
+        int i = (h ^ (h >>> 16)) & (casillas.length() - 1);
+
+        WeakReference<String> referencia = casillas.get(i);
+        String existente = referencia == null ? null : referencia.get();
+        if (texto.equals(existente)) {
+            if (existente != texto) {
+                reutilizados.incrementAndGet();
+                bytesAhorrados.addAndGet(tamanioEstimado(texto));
+            }
+            return existente;
+        }
+        casillas.compareAndSet(i, referencia, new WeakReference<>(texto)); // Si otro hilo ganó, no importa
+        return texto;
+    }
+
+    /**
+     * @return Bytes de heap aproximados que no se ocuparon gracias a los textos compartidos
+     */
+    public long getBytesAhorrados() {
+        return bytesAhorrados.get();
+    }
+
+    /**
+     * @return Cantidad de notas que reutilizaron un texto existente
+     */
+    public long getReutilizados() {
+        return reutilizados.get();
+    }
+
+    /**
+     * Tamaño aproximado de un String: encabezados del objeto y del arreglo más un byte por carácter
+     * (dos si el texto tiene caracteres fuera de Latin-1)
+     */
+    private static long tamanioEstimado(String texto) {
+        int bytesPorCaracter = 1;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 0xFF) {
+                bytesPorCaracter = 2;
+                break;
+            }
+        }
+        return 24 + 16 + (long) texto.length() * bytesPorCaracter;
+    }
+}
@@ -0,0 +1,72 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.modelo.Caso;
+import java.util.AbstractCollection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntSupplier;
+
+/**
+ * Esta clase representa una vista de solo lectura sobre una o varias colas de casos.
+ * No copia los casos: los recorre directamente en las colas, una detrás de otra, y su tamaño
+ * se calcula en O(1) con los contadores de cada cola. Los intentos de modificarla lanzan
+ * UnsupportedOperationException.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class VistaCasos extends AbstractCollection<Caso> {
+
+    private final IntSupplier tamanio;
+    private final List<Iterable<Caso>> partes;
+
+    /**
+     * @param tamanio Función que devuelve la cantidad total de casos de las partes
+     * @param partes Colas que se recorren en el orden indicado, al menos una
+     */
+    public VistaCasos(IntSupplier tamanio, List<? extends Iterable<Caso>> partes) {
+        if (partes.isEmpty()) throw new IllegalArgumentException("La vista necesita al menos una cola.");
+        this.tamanio = tamanio;
+        this.partes = List.copyOf(partes);
+    }
+
+    @Override
+    public int size() {
+        return tamanio.getAsInt();
+    }
+
+    @Override
+    public Iterator<Caso> iterator() {
+        if (partes.size() == 1) return partes.get(0).iterator();
+        return new Iterator<>() {
+            private int parte = 0;
+            private Iterator<Caso> actual = partes.get(0).iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!actual.hasNext() && parte + 1 < partes.size()) {
+                    actual = partes.get(++parte).iterator();
+                }
+                return actual.hasNext();
+            }
+
+            @Override
+            public Caso next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return actual.next();
+            }
+        };
+    }
+
+    /**
+     * El tamaño no se informa: las colas pueden cambiar mientras se recorren y un tamaño fijo no se cumpliría
+     */
+    @Override
+    public Spliterator<Caso> spliterator() {
+        return Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.CONCURRENT);
+    }
+}
@@ -0,0 +1,26 @@
+package edu.unl.cc.exception;
+/**
+ * Se lanza cuando el trabajo de uno o más agentes falló mientras atendían casos en paralelo.
+ * La causa es el primer fallo y los demás quedan como excepciones suprimidas.
+ * Los casos que fallaron vuelven a la cola de espera.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class AtencionAgentesException extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  private final int atendidos;
+
+  public AtencionAgentesException(String mensaje, int atendidos, Throwable causa) {
+    super(mensaje, causa);
+    this.atendidos = atendidos;
+  }
+
+  /**
+   * @return Cantidad de casos que sí se atendieron y finalizaron
+   */
+  public int getAtendidos() {
+    return atendidos;
+  }
+}
@@ -0,0 +1,15 @@
+package edu.unl.cc.exception;
+/**
+ * Se lanza cuando la cola de espera alcanzó su capacidad y no puede admitir más casos.
+ * Sirve como señal para que la recepción de casos vaya más despacio.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ColaLlenaException extends Exception {
+  private static final long serialVersionUID = 1L;
+
+  public ColaLlenaException(String mensaje) {
+    super(mensaje);
+  }
+}
@@ -4,6 +4,8 @@ package edu.unl.cc.exception;
  * @version 1.1
  */
 public class NombreInvalidoException extends Exception {
+  private static final long serialVersionUID = 1L;
+
   public NombreInvalidoException(String mensaje) {
     super(mensaje);
   }
@@ -1,10 +1,24 @@
 package edu.unl.cc.modelo;
 
+import edu.unl.cc.estructuras.Nodo;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 /**
  * Esta clase representa una acción realizada sobre un caso dentro del sistema
+ * Las acciones sobre notas guardan el nodo de la nota para deshacerlas sin buscar por texto; en ese caso
+ * el texto no se copia y se lee del nodo solo cuando se pide, así las notas guardadas fuera del heap
+ * (ArenaNotas) no vuelven al heap por estar en el historial
+ * Cuando la acción se escribe en disco se guarda el número de secuencia de la nota (que no cambia aunque el
+ * caso se reconstruya), así la acción leída de disco sigue indicando exactamente qué nota y en qué posición
+ *
+ * El caso, el tipo y los estados se guardan empaquetados en un solo long (ver getCodigo), así una acción
+ * no paga por campos que no usa y las pilas pueden guardar el historial en arreglos de primitivos.
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class Accion {
 
@@ -18,12 +32,24 @@ public class Accion {
         CAMBIO_ESTADO
     }
 
+    // Distribución de los bits del código: ID del caso en los 32 bits bajos, luego el tipo y los estados
+    // (ordinal + 1, 0 significa sin estado), un bit que indica si la acción tiene texto y otro que indica
+    // si forma un grupo con la acción que tiene debajo en su pila
+    private static final int BIT_TIPO = 32;
+    private static final int BIT_ANTERIOR = 40;
+    private static final int BIT_NUEVO = 48;
+    private static final long CON_TEXTO = 1L << 56;
+    private static final long CONTINUA_GRUPO = 1L << 57;
+    private static final long TEXTO_CON_LONGITUD = 1L << 58; // Solo en disco: el texto lleva su longitud en un int
+    private static final long CON_SECUENCIA = 1L << 59; // Solo en disco: después del texto va la secuencia de la nota
+    private static final Tipo[] TIPOS = Tipo.values();
+    private static final EstadoCaso[] ESTADOS = EstadoCaso.values();
+
     // Atributos de la acción
-    private final int casoId;                  // ID del caso al que pertenece la acción
-    private final Tipo tipo;                   // Tipo de acción realizada
-    private final String dato;                 // Texto de la nota
-    private final EstadoCaso estadoAnterior;
-    private final EstadoCaso estadoNuevo;
+    private final long codigo;                 // Caso, tipo y estados empaquetados
+    private final String dato;                 // Texto de la nota si no hay nodo, null en los demás casos
+    private final Nodo nota;                   // Nodo de la nota, null si se registró solo el texto
+    private final long secuencia;              // Secuencia de la nota si no hay nodo, 0 si no se conoce
 
     /**
      * Constructor para acciones relacionadas con notas
@@ -32,11 +58,17 @@ public class Accion {
      * @param dato Texto de la nota involucrada
      */
     public Accion(int casoId, Tipo tipo, String dato) {
-        this.casoId = casoId;
-        this.tipo = tipo;
-        this.dato = dato;
-        this.estadoAnterior = null;
-        this.estadoNuevo = null;
+        this(empaquetar(casoId, tipo, null, null, dato != null), dato, null, 0);
+    }
+
+    /**
+     * Constructor para acciones sobre una nota concreta
+     * @param casoId ID del caso afectado
+     * @param tipo Tipo de acción
+     * @param nota Nodo de la nota agregada o eliminada
+     */
+    public Accion(int casoId, Tipo tipo, Nodo nota) {
+        this(empaquetar(casoId, tipo, null, null, true), null, nota, 0);
     }
 
     /**
@@ -47,31 +79,153 @@ public class Accion {
      * @param nuevo Estado nuevo del caso
      */
     public Accion(int casoId, Tipo tipo, EstadoCaso anterior, EstadoCaso nuevo) {
-        this.casoId = casoId;
-        this.tipo = tipo;
-        this.estadoAnterior = anterior;
-        this.estadoNuevo = nuevo;
-        this.dato = null;
+        this(empaquetar(casoId, tipo, anterior, nuevo, false), null, null, 0);
+    }
+
+    private Accion(long codigo, String dato, Nodo nota, long secuencia) {
+        this.codigo = codigo;
+        this.dato = dato;
+        this.nota = nota;
+        this.secuencia = nota == null ? secuencia : 0;
+    }
+
+    /**
+     * Crea la acción a partir de su forma compacta, por ejemplo al sacarla de una pila de acciones
+     * @param codigo Código obtenido con getCodigo
+     * @param dato Texto de la nota, solo si no hay nodo
+     * @param nota Nodo de la nota o null
+     * @return Acción equivalente a la original
+     */
+    public static Accion desdeCodigo(long codigo, String dato, Nodo nota) {
+        return desdeCodigo(codigo, dato, nota, 0);
+    }
+
+    /**
+     * Crea la acción a partir de su forma compacta cuando ya no se tiene el nodo de la nota
+     * @param codigo Código obtenido con getCodigo
+     * @param dato Texto de la nota, solo si no hay nodo
+     * @param nota Nodo de la nota o null
+     * @param secuencia Secuencia de la nota si no hay nodo (ver getSecuencia), 0 si no se conoce
+     * @return Acción equivalente a la original
+     */
+    public static Accion desdeCodigo(long codigo, String dato, Nodo nota, long secuencia) {
+        return new Accion(codigo, nota == null ? dato : null, nota, secuencia);
+    }
+
+    private static long empaquetar(int casoId, Tipo tipo, EstadoCaso anterior, EstadoCaso nuevo, boolean conTexto) {
+        return (casoId & 0xFFFFFFFFL)
+                | (long) tipo.ordinal() << BIT_TIPO
+                | (long) (anterior == null ? 0 : anterior.ordinal() + 1) << BIT_ANTERIOR
+                | (long) (nuevo == null ? 0 : nuevo.ordinal() + 1) << BIT_NUEVO
+                | (conTexto ? CON_TEXTO : 0);
+    }
+
+    private static EstadoCaso estadoEn(long codigo, int bit) {
+        int valor = (int) (codigo >>> bit) & 0xFF;
+        return valor == 0 ? null : ESTADOS[valor - 1];
+    }
+
+    /**
+     * @return Caso, tipo y estados de la acción empaquetados en un long
+     */
+    public long getCodigo() {
+        return codigo;
     }
 
     public int getCasoId() {
-        return casoId;
+        return (int) codigo;
     }
 
     public Tipo getTipo() {
-        return tipo;
+        return TIPOS[(int) (codigo >>> BIT_TIPO) & 0xFF];
     }
 
+    /**
+     * @return Texto de la nota, leído del nodo si la acción tiene uno; null en cambios de estado
+     */
     public String getDato() {
+        return nota != null ? nota.getDato() : dato;
+    }
+
+    /**
+     * @return Texto guardado en la acción, null si el texto está en el nodo o no hay nota
+     */
+    public String getTextoPropio() {
         return dato;
     }
 
+    public Nodo getNota() {
+        return nota;
+    }
+
+    /**
+     * @return Secuencia de la nota en su caso, del nodo si lo tiene; 0 si no se conoce
+     */
+    public long getSecuencia() {
+        return nota != null ? nota.getSecuencia() : secuencia;
+    }
+
     public EstadoCaso getEstadoAnterior() {
-        return estadoAnterior;
+        return estadoEn(codigo, BIT_ANTERIOR);
     }
 
     public EstadoCaso getEstadoNuevo() {
-        return estadoNuevo;
+        return estadoEn(codigo, BIT_NUEVO);
+    }
+
+    /**
+     * @return true si la acción se deshace junto con la que tiene debajo en su pila
+     */
+    public boolean continuaGrupo() {
+        return (codigo & CONTINUA_GRUPO) != 0;
+    }
+
+    /**
+     * Devuelve la misma acción marcada (o no) como parte del grupo de la acción que tiene debajo
+     * @param unida true si debe deshacerse junto con la acción anterior de la pila
+     * @return Acción con la marca indicada
+     */
+    public Accion unidaALaAnterior(boolean unida) {
+        if (unida == continuaGrupo()) return this;
+        return new Accion(codigo ^ CONTINUA_GRUPO, dato, nota, secuencia);
+    }
+
+    /**
+     * Escribe la acción en formato binario: el código y, si tiene, el texto en UTF-8 con su longitud
+     * El nodo de la nota no se guarda, en su lugar se escribe su texto, que puede tener cualquier largo,
+     * y su secuencia si se conoce
+     * @param salida Destino de los datos
+     * @throws IOException Si no se puede escribir
+     */
+    public void escribir(DataOutput salida) throws IOException {
+        if ((codigo & CON_TEXTO) == 0) {
+            salida.writeLong(codigo);
+            return;
+        }
+        byte[] bytes = getDato().getBytes(StandardCharsets.UTF_8);
+        long secuenciaNota = getSecuencia();
+        salida.writeLong(codigo | TEXTO_CON_LONGITUD | (secuenciaNota > 0 ? CON_SECUENCIA : 0));
+        salida.writeInt(bytes.length);
+        salida.write(bytes);
+        if (secuenciaNota > 0) salida.writeLong(secuenciaNota);
+    }
+
+    /**
+     * Lee una acción escrita con escribir
+     * Las escritas antes de guardar la longitud en un int (texto con writeUTF) también se leen
+     * @param entrada Origen de los datos
+     * @return Acción leída, sin nodo de nota pero con su secuencia si se escribió
+     * @throws IOException Si no se puede leer
+     */
+    public static Accion leer(DataInput entrada) throws IOException {
+        long codigo = entrada.readLong();
+        if ((codigo & CON_TEXTO) == 0) return new Accion(codigo, null, null, 0);
+        if ((codigo & TEXTO_CON_LONGITUD) == 0) return new Accion(codigo, entrada.readUTF(), null, 0);
+        byte[] bytes = new byte[entrada.readInt()];
+        entrada.readFully(bytes);
+        long secuenciaNota = (codigo & CON_SECUENCIA) != 0 ? entrada.readLong() : 0;
+        return new Accion(codigo & ~(TEXTO_CON_LONGITUD | CON_SECUENCIA), new String(bytes, StandardCharsets.UTF_8),
+                null, secuenciaNota);
     }
 
     /**
@@ -79,6 +233,6 @@ public class Accion {
      * @return Texto de la nota asociada a la acción
      */
     public String getContenido() {
-        return dato;
+        return getDato();
     }
 }
\ No newline at end of file
@@ -0,0 +1,50 @@
+package edu.unl.cc.modelo;
+
+/**
+ * Esta clase representa un agente (ventanilla) que atiende casos dentro del sistema
+ * Cada agente tiene un nombre y como máximo un caso en atención a la vez
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class Agente {
+
+    // Atributos del agente
+    private final String nombre;       // Nombre de la ventanilla o del agente
+    private volatile Caso casoActual;  // Caso que el agente está atendiendo
+
+    /**
+     * @param nombre Nombre del agente
+     */
+    public Agente(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public Caso getCasoActual() {
+        return casoActual;
+    }
+
+    public void setCasoActual(Caso casoActual) {
+        this.casoActual = casoActual;
+    }
+
+    /**
+     * Verifica si el agente puede recibir un nuevo caso
+     * @return true si no tiene ningún caso en atención
+     */
+    public boolean estaLibre() {
+        return casoActual == null;
+    }
+
+    /**
+     * @return Cadena con el nombre del agente y su caso actual
+     */
+    @Override
+    public String toString() {
+        return nombre + (casoActual == null ? " (libre)" : " → Caso #" + casoActual.getId());
+    }
+}
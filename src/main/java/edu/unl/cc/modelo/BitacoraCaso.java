@@ -0,0 +1,404 @@
+package edu.unl.cc.modelo;
+
+import edu.unl.cc.estructuras.ListaNotas;
+import edu.unl.cc.estructuras.Nodo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esta clase registra cada cambio aplicado a un caso (notas insertadas o quitadas y cambios de estado,
+ * también los que vienen de deshacer y rehacer) para poder reconstruir cómo estaba el caso después de
+ * cualquier número de cambios o en cualquier momento.
+ *
+ * Cada cambio se guarda en arreglos paralelos con su número de secuencia implícito (su posición), su hora
+ * y la posición de la nota afectada. Cada CAMBIOS_ENTRE_PUNTOS cambios se guarda un punto de control con el
+ * estado y las notas completas. Para reconstruir se busca el punto anterior con búsqueda binaria y solo
+ * se aplican los cambios posteriores, que nunca son más de CAMBIOS_ENTRE_PUNTOS: el costo no depende de
+ * cuántos cambios tiene la historia. Copiar las notas en cada punto cuesta O(notas / CAMBIOS_ENTRE_PUNTOS)
+ * por cambio.
+ *
+ * Las notas se guardan por su nodo, que se comparte con la lista del caso (y con la arena o el pool).
+ *
+ * La hora de cada cambio es la actual, salvo que el hilo tenga un momento fijado con fijarMomento: así al
+ * reproducir un diario cada cambio conserva la hora en que ocurrió. Para las instantáneas, guardar devuelve
+ * una copia que comparte los arreglos (solo se agregan cambios al final, nunca se modifican los anteriores)
+ * y que se puede escribir a disco en otro hilo y volver a cargar con todos sus puntos de control.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class BitacoraCaso {
+
+    private static final int CAMBIOS_ENTRE_PUNTOS = 64;
+    private static final int CAPACIDAD_INICIAL = 4;
+    private static final EstadoCaso[] ESTADOS = EstadoCaso.values();
+
+    // Tipos de cambio
+    private static final byte INSERTAR = 0;  // Nota insertada en la posición indicada (0 = la más reciente)
+    private static final byte QUITAR = 1;    // Nota quitada de la posición indicada
+    private static final byte ESTADO = 2;    // Cambio de estado, la posición guarda el ordinal del nuevo
+
+    private static final ThreadLocal<Long> MOMENTO_FIJO = new ThreadLocal<>(); // Hora a usar en lugar de la actual
+
+    /**
+     * Estado completo del caso después de cierta cantidad de cambios
+     */
+    private static final class Punto {
+        final int secuencia;
+        final EstadoCaso estado;
+        final Nodo[] notas; // De la más reciente a la más antigua
+
+        Punto(int secuencia, EstadoCaso estado, Nodo[] notas) {
+            this.secuencia = secuencia;
+            this.estado = estado;
+            this.notas = notas;
+        }
+    }
+
+    private final int casoId;
+    private final long inicio; // Hora en que empezó la bitácora, en milisegundos
+    private byte[] tipos = new byte[CAPACIDAD_INICIAL];
+    private int[] posiciones = new int[CAPACIDAD_INICIAL];
+    private Nodo[] nodos = new Nodo[CAPACIDAD_INICIAL]; // Nota insertada, null en los demás cambios
+    private long[] momentos = new long[CAPACIDAD_INICIAL]; // Nunca decrecen
+    private int cantidad;
+    private int ultimoCambioDeEstado; // Secuencia del último cambio de estado, 0 si no hubo
+    private final List<Punto> puntos = new ArrayList<>();
+
+    /**
+     * @param casoId ID del caso
+     * @param estado Estado del caso al empezar la bitácora
+     * @param notas Notas del caso al empezar la bitácora
+     */
+    public BitacoraCaso(int casoId, EstadoCaso estado, ListaNotas notas) {
+        this.casoId = casoId;
+        this.inicio = ahora();
+        puntos.add(new Punto(0, estado, copiar(notas)));
+    }
+
+    /**
+     * Vuelve a crear una bitácora guardada, con todos sus cambios y puntos de control
+     * @param casoId ID del caso
+     * @param guardada Copia obtenida con guardar o leída con Guardada.leer
+     */
+    public BitacoraCaso(int casoId, Guardada guardada) {
+        this.casoId = casoId;
+        this.inicio = guardada.inicio;
+        int capacidad = Math.max(CAPACIDAD_INICIAL, guardada.cantidad);
+        this.tipos = Arrays.copyOf(guardada.tipos, capacidad);
+        this.posiciones = Arrays.copyOf(guardada.posiciones, capacidad);
+        this.nodos = Arrays.copyOf(guardada.nodos, capacidad);
+        this.momentos = Arrays.copyOf(guardada.momentos, capacidad);
+        this.cantidad = guardada.cantidad;
+        this.ultimoCambioDeEstado = guardada.ultimoCambioDeEstado;
+        puntos.addAll(Arrays.asList(guardada.puntos));
+    }
+
+    /**
+     * Hace que los cambios registrados desde este hilo lleven la hora indicada en lugar de la actual
+     * @param momento Hora en milisegundos, por ejemplo la guardada en el diario; null para usar la actual
+     */
+    public static void fijarMomento(Long momento) {
+        if (momento == null) {
+            MOMENTO_FIJO.remove();
+        } else {
+            MOMENTO_FIJO.set(momento);
+        }
+    }
+
+    private static long ahora() {
+        Long fijo = MOMENTO_FIJO.get();
+        return fijo != null ? fijo : System.currentTimeMillis();
+    }
+
+    /**
+     * Copia de la bitácora en este momento, en O(puntos de control): los cambios no se copian porque los
+     * arreglos solo crecen al final
+     * @return Copia que no cambia aunque la bitácora siga registrando cambios
+     */
+    public Guardada guardar() {
+        return new Guardada(inicio, tipos, posiciones, nodos, momentos, cantidad, ultimoCambioDeEstado,
+                puntos.toArray(new Punto[0]));
+    }
+
+    /**
+     * Registra una nota insertada
+     * @param posicion Posición que quedó ocupando, 0 es la más reciente
+     * @param nota Nodo de la nota
+     * @param estado Estado actual del caso
+     * @param notas Notas actuales del caso
+     */
+    public void notaInsertada(int posicion, Nodo nota, EstadoCaso estado, ListaNotas notas) {
+        agregar(INSERTAR, posicion, nota);
+        revisarPunto(estado, notas);
+    }
+
+    /**
+     * Registra una nota quitada
+     * @param posicion Posición que ocupaba antes de quitarla
+     * @param estado Estado actual del caso
+     * @param notas Notas actuales del caso
+     */
+    public void notaQuitada(int posicion, EstadoCaso estado, ListaNotas notas) {
+        agregar(QUITAR, posicion, null);
+        revisarPunto(estado, notas);
+    }
+
+    /**
+     * Registra un cambio de estado
+     * @param nuevo Estado nuevo del caso
+     * @param notas Notas actuales del caso
+     */
+    public void estadoCambiado(EstadoCaso nuevo, ListaNotas notas) {
+        agregar(ESTADO, nuevo.ordinal(), null);
+        ultimoCambioDeEstado = cantidad;
+        revisarPunto(nuevo, notas);
+    }
+
+    /**
+     * @return Cantidad de cambios registrados; es la secuencia del estado actual
+     */
+    public long getCantidadCambios() {
+        return cantidad;
+    }
+
+    /**
+     * @return Secuencia del último cambio de estado, 0 si el estado no cambió desde el inicio
+     */
+    public long getUltimoCambioDeEstado() {
+        return ultimoCambioDeEstado;
+    }
+
+    /**
+     * Busca cuántos cambios se habían aplicado en un momento dado, en O(log n)
+     * @param momento Momento consultado
+     * @return Secuencia del último cambio hecho hasta ese momento
+     */
+    public long secuenciaEn(Instant momento) {
+        long milisegundos = momento.toEpochMilli();
+        int bajo = 0;
+        int alto = cantidad; // Primer cambio posterior al momento
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (momentos[medio] <= milisegundos) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    /**
+     * Reconstruye el caso después de cierta cantidad de cambios
+     * @param secuencia Cantidad de cambios a incluir; se ajusta al rango de la bitácora
+     * @return Estado y notas del caso en ese instante
+     */
+    public InstanteCaso reconstruir(long secuencia) {
+        int hasta = (int) Math.max(0, Math.min(secuencia, cantidad));
+        Punto punto = puntoAnterior(hasta);
+
+        // Se trabaja de la más antigua a la más reciente para que insertar la más reciente sea agregar al final
+        List<Nodo> trabajo = new ArrayList<>(punto.notas.length + (hasta - punto.secuencia));
+        for (int i = punto.notas.length - 1; i >= 0; i--) {
+            trabajo.add(punto.notas[i]);
+        }
+        EstadoCaso estado = punto.estado;
+        for (int i = punto.secuencia; i < hasta; i++) {
+            switch (tipos[i]) {
+                case INSERTAR -> trabajo.add(trabajo.size() - posiciones[i], nodos[i]);
+                case QUITAR -> trabajo.remove(trabajo.size() - 1 - posiciones[i]);
+                default -> estado = ESTADOS[posiciones[i]];
+            }
+        }
+
+        String[] textos = new String[trabajo.size()];
+        for (int i = 0; i < textos.length; i++) {
+            textos[i] = trabajo.get(textos.length - 1 - i).getDato();
+        }
+        Instant momento = Instant.ofEpochMilli(hasta == 0 ? inicio : momentos[hasta - 1]);
+        return new InstanteCaso(casoId, hasta, momento, estado,
+                Collections.unmodifiableList(Arrays.asList(textos)));
+    }
+
+    private void agregar(byte tipo, int posicion, Nodo nodo) {
+        if (cantidad == tipos.length) {
+            int nuevaCapacidad = tipos.length * 2;
+            tipos = Arrays.copyOf(tipos, nuevaCapacidad);
+            posiciones = Arrays.copyOf(posiciones, nuevaCapacidad);
+            nodos = Arrays.copyOf(nodos, nuevaCapacidad);
+            momentos = Arrays.copyOf(momentos, nuevaCapacidad);
+        }
+        long ahora = ahora();
+        long anterior = cantidad == 0 ? inicio : momentos[cantidad - 1];
+        tipos[cantidad] = tipo;
+        posiciones[cantidad] = posicion;
+        nodos[cantidad] = nodo;
+        momentos[cantidad] = Math.max(ahora, anterior); // Si el reloj retrocede, no se rompe la búsqueda binaria
+        cantidad++;
+    }
+
+    private void revisarPunto(EstadoCaso estado, ListaNotas notas) {
+        int desdeUltimo = cantidad - puntos.get(puntos.size() - 1).secuencia;
+        if (desdeUltimo >= CAMBIOS_ENTRE_PUNTOS) {
+            puntos.add(new Punto(cantidad, estado, copiar(notas)));
+        }
+    }
+
+    /**
+     * Último punto de control con secuencia menor o igual a la indicada, por búsqueda binaria
+     */
+    private Punto puntoAnterior(int secuencia) {
+        int bajo = 0;
+        int alto = puntos.size() - 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto + 1) >>> 1;
+            if (puntos.get(medio).secuencia <= secuencia) {
+                bajo = medio;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return puntos.get(bajo);
+    }
+
+    private static Nodo[] copiar(ListaNotas notas) {
+        Nodo[] copia = new Nodo[notas.tamanio()];
+        int i = 0;
+        for (Nodo actual = notas.getPrincipal(); actual != null; actual = actual.getSiguiente()) {
+            copia[i++] = actual;
+        }
+        return copia;
+    }
+
+    /**
+     * Bitácora tal como estaba al guardarla, para escribirla en una instantánea
+     * Las notas se escriben una sola vez aunque aparezcan en varios cambios y puntos de control
+     */
+    public static final class Guardada {
+        private final long inicio;
+        private final byte[] tipos;
+        private final int[] posiciones;
+        private final Nodo[] nodos;
+        private final long[] momentos;
+        private final int cantidad; // Solo las primeras posiciones de los arreglos son parte de la copia
+        private final int ultimoCambioDeEstado;
+        private final Punto[] puntos;
+
+        private Guardada(long inicio, byte[] tipos, int[] posiciones, Nodo[] nodos, long[] momentos,
+                         int cantidad, int ultimoCambioDeEstado, Punto[] puntos) {
+            this.inicio = inicio;
+            this.tipos = tipos;
+            this.posiciones = posiciones;
+            this.nodos = nodos;
+            this.momentos = momentos;
+            this.cantidad = cantidad;
+            this.ultimoCambioDeEstado = ultimoCambioDeEstado;
+            this.puntos = puntos;
+        }
+
+        /**
+         * @return Cantidad de cambios de la copia
+         */
+        public int getCantidadCambios() {
+            return cantidad;
+        }
+
+        /**
+         * Escribe la copia en formato binario
+         * @param salida Destino de los datos
+         * @throws IOException Si no se puede escribir
+         */
+        public void escribir(DataOutput salida) throws IOException {
+            Map<Nodo, Integer> escritas = new IdentityHashMap<>();
+            salida.writeLong(inicio);
+            salida.writeInt(cantidad);
+            salida.writeInt(ultimoCambioDeEstado);
+            for (int i = 0; i < cantidad; i++) {
+                salida.writeByte(tipos[i]);
+                salida.writeInt(posiciones[i]);
+                salida.writeLong(momentos[i]);
+                if (tipos[i] == INSERTAR) escribirNota(salida, nodos[i], escritas);
+            }
+            salida.writeInt(puntos.length);
+            for (Punto punto : puntos) {
+                salida.writeInt(punto.secuencia);
+                salida.writeByte(punto.estado.ordinal());
+                salida.writeInt(punto.notas.length);
+                for (Nodo nota : punto.notas) {
+                    escribirNota(salida, nota, escritas);
+                }
+            }
+        }
+
+        /**
+         * Lee una copia escrita con escribir
+         * @param entrada Origen de los datos
+         * @return Copia leída, con un nodo nuevo por cada nota distinta
+         * @throws IOException Si no se puede leer
+         */
+        public static Guardada leer(DataInput entrada) throws IOException {
+            List<Nodo> leidas = new ArrayList<>();
+            long inicio = entrada.readLong();
+            int cantidad = entrada.readInt();
+            int ultimoCambioDeEstado = entrada.readInt();
+            byte[] tipos = new byte[cantidad];
+            int[] posiciones = new int[cantidad];
+            Nodo[] nodos = new Nodo[cantidad];
+            long[] momentos = new long[cantidad];
+            for (int i = 0; i < cantidad; i++) {
+                tipos[i] = entrada.readByte();
+                posiciones[i] = entrada.readInt();
+                momentos[i] = entrada.readLong();
+                if (tipos[i] == INSERTAR) nodos[i] = leerNota(entrada, leidas);
+            }
+            Punto[] puntos = new Punto[entrada.readInt()];
+            for (int p = 0; p < puntos.length; p++) {
+                int secuencia = entrada.readInt();
+                EstadoCaso estado = ESTADOS[entrada.readByte()];
+                Nodo[] notas = new Nodo[entrada.readInt()];
+                for (int i = 0; i < notas.length; i++) {
+                    notas[i] = leerNota(entrada, leidas);
+                }
+                puntos[p] = new Punto(secuencia, estado, notas);
+            }
+            return new Guardada(inicio, tipos, posiciones, nodos, momentos, cantidad, ultimoCambioDeEstado, puntos);
+        }
+
+        /**
+         * La primera vez se escribe el texto; las siguientes, el número de la nota ya escrita
+         */
+        private static void escribirNota(DataOutput salida, Nodo nota, Map<Nodo, Integer> escritas)
+                throws IOException {
+            Integer numero = escritas.get(nota);
+            if (numero != null) {
+                salida.writeInt(numero);
+                return;
+            }
+            escritas.put(nota, escritas.size());
+            byte[] bytes = nota.getDato().getBytes(StandardCharsets.UTF_8);
+            salida.writeInt(-1 - bytes.length);
+            salida.write(bytes);
+        }
+
+        private static Nodo leerNota(DataInput entrada, List<Nodo> leidas) throws IOException {
+            int valor = entrada.readInt();
+            if (valor >= 0) return leidas.get(valor);
+            byte[] bytes = new byte[-1 - valor];
+            entrada.readFully(bytes);
+            Nodo nota = new Nodo(new String(bytes, StandardCharsets.UTF_8));
+            leidas.add(nota);
+            return nota;
+        }
+    }
+}
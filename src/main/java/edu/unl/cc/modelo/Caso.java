@@ -1,18 +1,29 @@
 package edu.unl.cc.modelo;
 
+import edu.unl.cc.estructuras.ArenaNotas;
+import edu.unl.cc.estructuras.IndiceInvertido;
 import edu.unl.cc.estructuras.ListaNotas;
 import edu.unl.cc.estructuras.Nodo;
-import java.util.ArrayList;
+import edu.unl.cc.estructuras.PaginaNotas;
+import edu.unl.cc.estructuras.PoolNotas;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Esta clase representa un caso dentro del sistema de atención estudiantil
  * Cada caso contiene un identificador único, el nombre del estudiante,
  * su estado actual, una lista de notas asociadas y una marca de urgencia.
  * Y nos permite agregar y eliminar notas, cambiar el estado y consultar información.
+ * Si el caso tiene un índice de notas asignado, cada nota agregada o eliminada se registra en él.
+ * Si tiene una arena de notas asignada, el texto de las notas nuevas se guarda fuera del heap;
+ * si no, puede compartir el texto de las notas repetidas con otros casos mediante un PoolNotas.
+ * Cada cambio queda en una bitácora, así se puede consultar cómo estaba el caso en un momento anterior.
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class Caso {
 
@@ -22,6 +33,27 @@ public class Caso {
     private EstadoCaso estado;
     private final ListaNotas notas;        // Lista enlazada de notas asociadas al caso
     private final boolean urgente;         // Indica si el caso fue marcado como urgente
+    private volatile CopiaNotas copiaNotas = CopiaNotas.VACIA; // Última copia inmutable de las notas
+    private IndiceInvertido indiceNotas;   // Índice de búsqueda compartido por los casos, puede ser null
+    private ArenaNotas arenaNotas;         // Memoria fuera del heap para el texto de las notas, puede ser null
+    private PoolNotas poolNotas;           // Textos compartidos entre casos, puede ser null
+    private BitacoraCaso bitacora;         // Historia de cambios, se crea con el primer cambio
+    private volatile InstantaneaCasos.CasoGuardado guardado; // Última copia para una instantánea
+
+    /**
+     * Copia inmutable de las notas junto con la versión de la lista de la que salió
+     */
+    private static final class CopiaNotas {
+        static final CopiaNotas VACIA = new CopiaNotas(0, Collections.emptyList());
+
+        final long version;
+        final List<String> notas;
+
+        CopiaNotas(long version, List<String> notas) {
+            this.version = version;
+            this.notas = notas;
+        }
+    }
 
     /**
      * @param id Identificador único del caso
@@ -56,22 +88,116 @@ public class Caso {
         return urgente;
     }
 
+    /**
+     * Asigna el índice donde se registran las palabras de las notas del caso
+     * Las notas que el caso ya tenía se agregan al índice
+     * @param indiceNotas Índice compartido por los casos
+     */
+    public void setIndiceNotas(IndiceInvertido indiceNotas) {
+        this.indiceNotas = indiceNotas;
+        if (indiceNotas == null) return;
+        for (Nodo actual = notas.getPrincipal(); actual != null; actual = actual.getSiguiente()) {
+            indiceNotas.agregar(id, actual.getDato());
+        }
+    }
+
+
+    /**
+     * Hace que las notas que se agreguen desde ahora guarden su texto fuera del heap
+     * Las notas que ya existían no cambian
+     * @param arenaNotas Arena donde guardar el texto, null para volver a usar String normales
+     */
+    public void setArenaNotas(ArenaNotas arenaNotas) {
+        this.arenaNotas = arenaNotas;
+    }
+
+    /**
+     * Hace que las notas nuevas compartan el String con otras notas de igual texto
+     * @param poolNotas Tabla de textos compartidos, null para no compartir
+     */
+    public void setPoolNotas(PoolNotas poolNotas) {
+        this.poolNotas = poolNotas;
+    }
 
     /**
      * Cambia el estado actual del caso al nuevo estado indicado
      * @param nuevoEstado Estado al que se desea cambiar
      */
     public void cambiarEstado(EstadoCaso nuevoEstado) {
+        if (nuevoEstado == estado) return;
+        BitacoraCaso cambios = bitacora();
         this.estado = nuevoEstado;
+        cambios.estadoCambiado(nuevoEstado, notas);
     }
 
     /**
      * Agrega una nueva nota al caso si el texto no está vacio
      * @param texto Contenido de la nota
+     * @return Nodo de la nota, sirve para eliminarla o restaurarla sin buscarla por texto; null si no se agregó
+     */
+    public Nodo agregarNota(String texto) {
+        if (texto == null || texto.trim().isEmpty()) return null;
+        String limpio = texto.trim();
+        Nodo nodo = crearNodo(limpio);
+        BitacoraCaso cambios = bitacora();
+        notas.insertar(nodo);
+        cambios.notaInsertada(0, nodo, estado, notas);
+        if (indiceNotas != null) indiceNotas.agregar(id, limpio);
+        return nodo;
+    }
+
+    /**
+     * Agrega una nota con el número de secuencia que tenía, en la posición que le corresponde por él
+     * Sirve cuando ya no se tiene su nodo: al reconstruir el caso o al deshacer una acción leída de disco
+     * @param texto Contenido de la nota
+     * @param secuencia Secuencia de la nota (ver Nodo.getSecuencia)
+     * @return Nodo de la nota; null si el texto está vacío o ya hay una nota con esa secuencia
      */
-    public void agregarNota(String texto) {
-        if (texto == null || texto.trim().isEmpty()) return;
-        notas.insertar(new Nodo(texto.trim()));
+    public Nodo agregarNota(String texto, long secuencia) {
+        if (texto == null || texto.trim().isEmpty() || notas.buscarPorSecuencia(secuencia) != null) return null;
+        String limpio = texto.trim();
+        Nodo nodo = crearNodo(limpio);
+        BitacoraCaso cambios = bitacora();
+        notas.insertar(nodo, secuencia);
+        cambios.notaInsertada(notas.indiceDe(nodo), nodo, estado, notas);
+        if (indiceNotas != null) indiceNotas.agregar(id, limpio);
+        return nodo;
+    }
+
+    /**
+     * Crea el nodo de una nota con el texto en la arena o, si no hay, compartido en el pool
+     */
+    private Nodo crearNodo(String limpio) {
+        if (arenaNotas != null) return arenaNotas.crearNodo(limpio);
+        return new Nodo(poolNotas != null ? poolNotas.compartir(limpio) : limpio);
+    }
+
+    /**
+     * Elimina exactamente la nota de ese nodo, aunque haya otras con el mismo texto
+     * @param nota Nodo devuelto al agregar o eliminar la nota
+     * @return true si la nota estaba en el caso y se eliminó
+     */
+    public boolean eliminarNota(Nodo nota) {
+        int posicion = notas.indiceDe(nota);
+        if (posicion < 0) return false;
+        BitacoraCaso cambios = bitacora();
+        notas.eliminar(nota);
+        cambios.notaQuitada(posicion, estado, notas);
+        if (indiceNotas != null) indiceNotas.eliminar(id, nota.getDato());
+        return true;
+    }
+
+    /**
+     * Vuelve a agregar una nota eliminada en la posición que ocupaba
+     * @param nota Nodo de la nota eliminada
+     * @return true si la nota se restauró
+     */
+    public boolean restaurarNota(Nodo nota) {
+        BitacoraCaso cambios = bitacora();
+        if (!notas.restaurar(nota)) return false;
+        cambios.notaInsertada(notas.indiceDe(nota), nota, estado, notas);
+        if (indiceNotas != null) indiceNotas.agregar(id, nota.getDato());
+        return true;
     }
 
     /**
@@ -79,20 +205,147 @@ public class Caso {
      * @param texto Texto de la nota a eliminar
      */
     public void eliminarNota(String texto) {
-        notas.eliminarPrimeraCoincidencia(texto.trim());
+        Nodo nodo = notas.buscar(texto.trim());
+        if (nodo != null) eliminarNota(nodo);
+    }
+
+    /**
+     * Elimina la nota con ese número de secuencia, aunque haya otras con el mismo texto
+     * @param secuencia Secuencia de la nota (ver Nodo.getSecuencia)
+     * @return Nodo de la nota eliminada o null si ninguna nota tiene esa secuencia
+     */
+    public Nodo eliminarNotaPorSecuencia(long secuencia) {
+        Nodo nodo = notas.buscarPorSecuencia(secuencia);
+        return nodo != null && eliminarNota(nodo) ? nodo : null;
+    }
+
+    /**
+     * Elimina la nota ubicada en la posición indicada
+     * @param indice Posición de la nota, 0 es la más reciente
+     * @return Nodo de la nota eliminada o null si la posición no existe
+     */
+    public Nodo eliminarNotaPorIndice(int indice) {
+        if (indice < 0 || indice >= notas.tamanio()) return null;
+        BitacoraCaso cambios = bitacora();
+        Nodo nodo = notas.eliminarPorIndice(indice);
+        cambios.notaQuitada(indice, estado, notas);
+        if (indiceNotas != null) indiceNotas.eliminar(id, nodo.getDato());
+        return nodo;
+    }
+
+    /**
+     * Reconstruye cómo estaba el caso después de cierta cantidad de cambios
+     * Cada nota agregada o eliminada y cada cambio de estado (también al deshacer o rehacer) es un cambio
+     * @param secuencia Cantidad de cambios, 0 es el inicio de la historia
+     * @return Estado y notas del caso en ese instante
+     */
+    public InstanteCaso comoEstabaEn(long secuencia) {
+        return bitacora().reconstruir(secuencia);
+    }
+
+    /**
+     * Reconstruye cómo estaba el caso en un momento dado
+     * @param momento Momento consultado; si es anterior al inicio de la historia se devuelve el inicio
+     * @return Estado y notas del caso en ese momento
+     */
+    public InstanteCaso comoEstabaEn(Instant momento) {
+        BitacoraCaso cambios = bitacora();
+        return cambios.reconstruir(cambios.secuenciaEn(momento));
+    }
+
+    /**
+     * @return Cantidad de cambios registrados en la historia del caso
+     */
+    public long getCantidadCambios() {
+        return bitacora == null ? 0 : bitacora.getCantidadCambios();
+    }
+
+    /**
+     * @return Secuencia del último cambio de estado, 0 si el estado no cambió desde el inicio de la historia
+     */
+    public long getUltimoCambioDeEstado() {
+        return bitacora == null ? 0 : bitacora.getUltimoCambioDeEstado();
+    }
+
+    /**
+     * Reemplaza la historia de cambios por una guardada en una instantánea
+     * Se usa al reconstruir un caso, después de volver a poner su estado y sus notas
+     * @param guardada Bitácora guardada del caso; null descarta la historia y el estado actual pasa a ser su inicio
+     */
+    public void restaurarHistoria(BitacoraCaso.Guardada guardada) {
+        bitacora = guardada == null ? null : new BitacoraCaso(id, guardada);
     }
+
+    /**
+     * La bitácora se crea con el primer cambio, así los casos que nunca cambian no ocupan memoria en ella
+     * Se llama antes de aplicar el cambio para que su inicio sea el estado previo
+     */
+    private BitacoraCaso bitacora() {
+        if (bitacora == null) bitacora = new BitacoraCaso(id, estado, notas);
+        return bitacora;
+    }
+
     /**
      * Devuelve todas las notas del caso como una lista de cadenas de texto
-     * @return Lista de notas en orden
+     * La lista es inmutable y se reutiliza mientras las notas no cambien: solo se vuelve a construir
+     * después de agregar o eliminar una nota, así las lecturas repetidas no crean objetos.
+     * Con una arena de notas la copia no se guarda, para no volver a retener los textos en el heap
+     * @return Lista de notas en orden, de solo lectura
      */
     public List<String> obtenerNotas() {
-        List<String> resultado = new ArrayList<>();
+        CopiaNotas copia = copiaNotas;
+        long version = notas.getVersion();
+        if (copia.version == version) return copia.notas;
+
+        String[] textos = new String[notas.tamanio()];
+        int i = 0;
         Nodo actual = notas.getPrincipal();
         while (actual != null) {
-            resultado.add(actual.getDato());
+            textos[i++] = actual.getDato();
             actual = actual.getSiguiente();
         }
-        return resultado;
+        copia = new CopiaNotas(version, Collections.unmodifiableList(Arrays.asList(textos)));
+        if (arenaNotas == null) copiaNotas = copia;
+        return copia.notas;
+    }
+
+    /**
+     * Copia del caso para una instantánea; mientras el estado y las notas no cambien se devuelve la misma
+     * Incluye la secuencia de cada nota, así el historial sigue ubicando sus notas en el caso reconstruido
+     * Con una arena de notas la copia no se guarda, igual que en obtenerNotas
+     */
+    InstantaneaCasos.CasoGuardado copiaParaInstantanea() {
+        InstantaneaCasos.CasoGuardado copia = guardado;
+        long version = notas.getVersion();
+        if (copia != null && copia.vigente(estado, version, getCantidadCambios())) return copia;
+        long[] secuencias = new long[notas.tamanio()];
+        int i = 0;
+        for (Nodo actual = notas.getPrincipal(); actual != null; actual = actual.getSiguiente()) {
+            secuencias[i++] = actual.getSecuencia();
+        }
+        copia = new InstantaneaCasos.CasoGuardado(id, estudiante, urgente, estado, obtenerNotas(), secuencias,
+                notas.getUltimaSecuencia(), version, bitacora == null ? null : bitacora.guardar());
+        if (arenaNotas == null) guardado = copia;
+        return copia;
+    }
+
+    /**
+     * Devuelve una página de notas, útil para casos con miles de notas
+     * @param cursor PaginaNotas.INICIO o el cursor de la página anterior
+     * @param tamanioPagina Cantidad máxima de notas
+     * @param inversa false para empezar por la más reciente, true por la más antigua
+     * @return Página de notas con el cursor para continuar
+     */
+    public PaginaNotas paginaDeNotas(long cursor, int tamanioPagina, boolean inversa) {
+        return notas.pagina(cursor, tamanioPagina, inversa);
+    }
+
+    /**
+     * Recorre las notas de la más reciente a la más antigua sin copiarlas
+     * @return Stream perezoso con el texto de las notas
+     */
+    public Stream<String> streamNotas() {
+        return notas.stream(false);
     }
 
     /**
@@ -103,6 +356,6 @@ public class Caso {
         return "Caso #" + id + " - " + estudiante + "\n" +
                 "Estado: " + estado + "\n" +
                 "Urgente: " + (urgente ? "Sí" : "No") + "\n" +
-                "Notas: " + (obtenerNotas().isEmpty() ? "Sin notas" : String.join(", ", obtenerNotas()));
+                "Notas: " + (notas.estaVacia() ? "Sin notas" : String.join(", ", obtenerNotas()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,337 @@
+package edu.unl.cc.modelo;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Esta clase representa una copia del estado de los casos vivos en un momento dado:
+ * los casos en espera (en orden), el caso actual con su historial para deshacer y rehacer, los agentes
+ * con el caso que atiende cada uno, los casos que no están en ninguna cola y el siguiente ID. Cada caso
+ * incluye su bitácora de cambios, así las consultas en el tiempo siguen funcionando después de reiniciar.
+ * El historial para deshacer y rehacer se guarda solo para el caso actual; el de los demás casos no
+ * sobrevive a un reinicio.
+ *
+ * Los casos finalizados no forman parte de la instantánea: ya están guardados en el archivo de tickets,
+ * que se fuerza a disco antes de tomarla. Así el costo de una instantánea depende de los casos abiertos
+ * y no de toda la historia.
+ *
+ * Cada caso guarda su última copia y la reutiliza mientras su estado y sus notas no cambien (los textos
+ * de las notas se comparten porque son inmutables), así tomar la instantánea solo copia los casos que
+ * cambiaron desde la anterior y se puede escribir a disco en otro hilo mientras se siguen recibiendo casos.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class InstantaneaCasos {
+
+    private static final int MARCA = 0x43414534; // "CAE4"
+    private static final int MARCA_SIN_SECUENCIAS = 0x43414533; // "CAE3", las notas no incluían su secuencia
+    private static final int MARCA_SIN_BITACORA = 0x43414532; // "CAE2", los casos no incluían su bitácora
+    private static final int MARCA_ANTERIOR = 0x43414531; // "CAE1", incluía los finalizados y no los agentes
+
+    private final int siguienteId;
+    private final List<CasoGuardado> enCola;
+    private final CasoGuardado actual;
+    private final List<Accion> deshacerActual; // Historial del caso actual, de la más antigua a la más reciente
+    private final List<Accion> rehacerActual;
+    private final List<String> agentes;
+    private final List<CasoGuardado> casosDeAgentes; // Uno por agente, null si está libre
+    private final List<CasoGuardado> otros; // Casos abiertos que no están en cola ni en atención
+
+    /**
+     * Datos de un caso tal como estaban al crear la instantánea
+     */
+    public static final class CasoGuardado {
+        private final int id;
+        private final String estudiante;
+        private final boolean urgente;
+        private final EstadoCaso estado;
+        private final List<String> notas; // De la más reciente a la más antigua
+        private final long[] secuencias;  // Secuencia de cada nota en el mismo orden, null si no se guardó
+        private final long ultimaSecuencia; // Última secuencia usada en las notas del caso
+        private final long versionNotas;  // Versión de la lista de notas copiada, -1 si se leyó de disco
+        private final BitacoraCaso.Guardada bitacora; // null si el caso no tenía cambios registrados
+
+        CasoGuardado(int id, String estudiante, boolean urgente, EstadoCaso estado, List<String> notas,
+                     long[] secuencias, long ultimaSecuencia, long versionNotas, BitacoraCaso.Guardada bitacora) {
+            this.id = id;
+            this.estudiante = estudiante;
+            this.urgente = urgente;
+            this.estado = estado;
+            this.notas = notas;
+            this.secuencias = secuencias;
+            this.ultimaSecuencia = ultimaSecuencia;
+            this.versionNotas = versionNotas;
+            this.bitacora = bitacora;
+        }
+
+        /**
+         * @param caso Caso a copiar
+         * @return Copia del caso en este momento; si no cambió desde la última copia, es la misma
+         */
+        public static CasoGuardado de(Caso caso) {
+            return caso.copiaParaInstantanea();
+        }
+
+        /**
+         * Deshacer puede volver al mismo estado y notas, por eso también se compara la cantidad de cambios
+         * @return true si la copia sigue representando un caso con ese estado, esa versión de notas y esos cambios
+         */
+        boolean vigente(EstadoCaso estadoActual, long versionActual, long cambiosActuales) {
+            long cambios = bitacora == null ? 0 : bitacora.getCantidadCambios();
+            return estado == estadoActual && versionNotas == versionActual && cambios == cambiosActuales;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getEstudiante() {
+            return estudiante;
+        }
+
+        public boolean isUrgente() {
+            return urgente;
+        }
+
+        public EstadoCaso getEstado() {
+            return estado;
+        }
+
+        public List<String> getNotas() {
+            return notas;
+        }
+
+        /**
+         * Las acciones del historial ubican sus notas por secuencia, por eso el caso reconstruido
+         * debe tener las mismas
+         * @return Secuencia de cada nota, en el orden de getNotas; null si la instantánea no las guardaba
+         */
+        public long[] getSecuencias() {
+            return secuencias;
+        }
+
+        /**
+         * @return Última secuencia usada en las notas del caso, también de las eliminadas
+         */
+        public long getUltimaSecuencia() {
+            return ultimaSecuencia;
+        }
+
+        public BitacoraCaso.Guardada getBitacora() {
+            return bitacora;
+        }
+
+        /**
+         * Escribe el caso con su bitácora, también lo usa la cola que derrama casos a disco
+         * @param salida Destino de los datos
+         * @throws IOException Si no se pudo escribir
+         */
+        public void escribir(DataOutput salida) throws IOException {
+            salida.writeInt(id);
+            salida.writeUTF(estudiante);
+            salida.writeBoolean(urgente);
+            salida.writeByte(estado.ordinal());
+            salida.writeInt(notas.size());
+            for (int i = 0; i < notas.size(); i++) {
+                byte[] bytes = notas.get(i).getBytes(StandardCharsets.UTF_8);
+                salida.writeInt(bytes.length);
+                salida.write(bytes);
+                salida.writeLong(secuencias == null ? 0 : secuencias[i]);
+            }
+            salida.writeLong(ultimaSecuencia);
+            salida.writeBoolean(bitacora != null);
+            if (bitacora != null) bitacora.escribir(salida);
+        }
+
+        /**
+         * Lee un caso escrito con escribir
+         * @param entrada Origen de los datos
+         * @return Caso leído, sin versión de notas
+         * @throws IOException Si no se pudo leer
+         */
+        public static CasoGuardado leer(DataInput entrada) throws IOException {
+            return leer(entrada, MARCA);
+        }
+
+        /**
+         * @param marca Marca de la instantánea, indica qué datos tiene cada caso
+         */
+        private static CasoGuardado leer(DataInput entrada, int marca) throws IOException {
+            boolean conSecuencias = marca == MARCA;
+            boolean conBitacora = conSecuencias || marca == MARCA_SIN_SECUENCIAS;
+            int id = entrada.readInt();
+            String estudiante = entrada.readUTF();
+            boolean urgente = entrada.readBoolean();
+            EstadoCaso estado = EstadoCaso.values()[entrada.readByte()];
+            String[] notas = new String[entrada.readInt()];
+            long[] secuencias = conSecuencias ? new long[notas.length] : null;
+            for (int i = 0; i < notas.length; i++) {
+                byte[] bytes = new byte[entrada.readInt()];
+                entrada.readFully(bytes);
+                notas[i] = new String(bytes, StandardCharsets.UTF_8);
+                if (conSecuencias) secuencias[i] = entrada.readLong();
+            }
+            long ultimaSecuencia = conSecuencias ? entrada.readLong() : 0;
+            BitacoraCaso.Guardada bitacora = conBitacora && entrada.readBoolean() ? BitacoraCaso.Guardada.leer(entrada) : null;
+            return new CasoGuardado(id, estudiante, urgente, estado,
+                    notas.length == 0 ? Collections.emptyList() : Arrays.asList(notas), secuencias, ultimaSecuencia,
+                    -1, bitacora);
+        }
+    }
+
+    /**
+     * @param siguienteId ID que recibirá el próximo caso
+     * @param enCola Casos en espera, en el orden en que deben volver a la cola
+     * @param actual Caso en atención o null
+     * @param deshacerActual Acciones del caso actual que se pueden deshacer, de la más antigua a la más reciente
+     * @param rehacerActual Acciones del caso actual que se pueden rehacer, en el orden de su pila
+     * @param agentes Nombres de los agentes registrados, en orden
+     * @param casosDeAgentes Caso que atiende cada agente, null si está libre
+     * @param otros Casos abiertos que no están en cola ni en atención y deben poder buscarse por ID
+     */
+    public InstantaneaCasos(int siguienteId, List<CasoGuardado> enCola, CasoGuardado actual,
+                            List<Accion> deshacerActual, List<Accion> rehacerActual,
+                            List<String> agentes, List<CasoGuardado> casosDeAgentes, List<CasoGuardado> otros) {
+        if (agentes.size() != casosDeAgentes.size()) {
+            throw new IllegalArgumentException("Debe haber un caso (o null) por agente.");
+        }
+        this.siguienteId = siguienteId;
+        this.enCola = enCola;
+        this.actual = actual;
+        this.deshacerActual = deshacerActual;
+        this.rehacerActual = rehacerActual;
+        this.agentes = agentes;
+        this.casosDeAgentes = casosDeAgentes;
+        this.otros = otros;
+    }
+
+    public int getSiguienteId() {
+        return siguienteId;
+    }
+
+    public List<CasoGuardado> getEnCola() {
+        return enCola;
+    }
+
+    public CasoGuardado getActual() {
+        return actual;
+    }
+
+    public List<Accion> getDeshacerActual() {
+        return deshacerActual;
+    }
+
+    public List<Accion> getRehacerActual() {
+        return rehacerActual;
+    }
+
+    public List<String> getAgentes() {
+        return agentes;
+    }
+
+    public List<CasoGuardado> getCasosDeAgentes() {
+        return casosDeAgentes;
+    }
+
+    public List<CasoGuardado> getOtros() {
+        return otros;
+    }
+
+    /**
+     * Escribe la instantánea en formato binario
+     * @param salida Destino de los datos
+     * @throws IOException Si no se puede escribir
+     */
+    public void escribir(DataOutput salida) throws IOException {
+        salida.writeInt(MARCA);
+        salida.writeInt(siguienteId);
+        escribirLista(salida, enCola);
+        salida.writeBoolean(actual != null);
+        if (actual != null) actual.escribir(salida);
+        escribirAcciones(salida, deshacerActual);
+        escribirAcciones(salida, rehacerActual);
+        salida.writeInt(agentes.size());
+        for (int i = 0; i < agentes.size(); i++) {
+            salida.writeUTF(agentes.get(i));
+            CasoGuardado caso = casosDeAgentes.get(i);
+            salida.writeBoolean(caso != null);
+            if (caso != null) caso.escribir(salida);
+        }
+        escribirLista(salida, otros);
+    }
+
+    /**
+     * Lee una instantánea escrita con escribir
+     * Las instantáneas de formatos anteriores también se leen: sus casos no traen la secuencia de las
+     * notas ("CAE3") ni la bitácora ("CAE2") y los finalizados de "CAE1" se descartan porque ya están
+     * en el archivo de tickets
+     * @param entrada Origen de los datos
+     * @return Instantánea leída
+     * @throws IOException Si no se puede leer o el archivo no es una instantánea
+     */
+    public static InstantaneaCasos leer(DataInput entrada) throws IOException {
+        int marca = entrada.readInt();
+        if (marca != MARCA && marca != MARCA_SIN_SECUENCIAS && marca != MARCA_SIN_BITACORA
+                && marca != MARCA_ANTERIOR) {
+            throw new IOException("El archivo no es una instantánea de casos.");
+        }
+        int siguienteId = entrada.readInt();
+        List<CasoGuardado> enCola = leerLista(entrada, marca);
+        CasoGuardado actual = entrada.readBoolean() ? CasoGuardado.leer(entrada, marca) : null;
+        if (marca == MARCA_ANTERIOR) {
+            leerLista(entrada, marca); // Finalizados
+            return new InstantaneaCasos(siguienteId, enCola, actual, List.of(), List.of(),
+                    List.of(), List.of(), leerLista(entrada, marca));
+        }
+        List<Accion> deshacer = leerAcciones(entrada);
+        List<Accion> rehacer = leerAcciones(entrada);
+        int cantidadAgentes = entrada.readInt();
+        List<String> agentes = new ArrayList<>(cantidadAgentes);
+        List<CasoGuardado> casosDeAgentes = new ArrayList<>(cantidadAgentes);
+        for (int i = 0; i < cantidadAgentes; i++) {
+            agentes.add(entrada.readUTF());
+            casosDeAgentes.add(entrada.readBoolean() ? CasoGuardado.leer(entrada, marca) : null);
+        }
+        List<CasoGuardado> otros = leerLista(entrada, marca);
+        return new InstantaneaCasos(siguienteId, enCola, actual, deshacer, rehacer, agentes, casosDeAgentes, otros);
+    }
+
+    private static void escribirLista(DataOutput salida, List<CasoGuardado> casos) throws IOException {
+        salida.writeInt(casos.size());
+        for (CasoGuardado caso : casos) {
+            caso.escribir(salida);
+        }
+    }
+
+    private static List<CasoGuardado> leerLista(DataInput entrada, int marca) throws IOException {
+        int cantidad = entrada.readInt();
+        List<CasoGuardado> casos = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            casos.add(CasoGuardado.leer(entrada, marca));
+        }
+        return casos;
+    }
+
+    private static void escribirAcciones(DataOutput salida, List<Accion> acciones) throws IOException {
+        salida.writeInt(acciones.size());
+        for (Accion accion : acciones) {
+            accion.escribir(salida);
+        }
+    }
+
+    private static List<Accion> leerAcciones(DataInput entrada) throws IOException {
+        int cantidad = entrada.readInt();
+        List<Accion> acciones = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            acciones.add(Accion.leer(entrada));
+        }
+        return acciones;
+    }
+}
@@ -0,0 +1,65 @@
+package edu.unl.cc.modelo;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Esta clase representa cómo estaba un caso en un momento anterior de su historia:
+ * su estado y sus notas después de cierto número de cambios
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class InstanteCaso {
+
+    private final int casoId;
+    private final long secuencia;
+    private final Instant momento;
+    private final EstadoCaso estado;
+    private final List<String> notas;
+
+    /**
+     * @param casoId ID del caso
+     * @param secuencia Cantidad de cambios aplicados hasta este instante, 0 es el inicio de la historia
+     * @param momento Hora del último cambio incluido
+     * @param estado Estado del caso en ese instante
+     * @param notas Notas de la más reciente a la más antigua
+     */
+    public InstanteCaso(int casoId, long secuencia, Instant momento, EstadoCaso estado, List<String> notas) {
+        this.casoId = casoId;
+        this.secuencia = secuencia;
+        this.momento = momento;
+        this.estado = estado;
+        this.notas = notas;
+    }
+
+    public int getCasoId() {
+        return casoId;
+    }
+
+    public long getSecuencia() {
+        return secuencia;
+    }
+
+    public Instant getMomento() {
+        return momento;
+    }
+
+    public EstadoCaso getEstado() {
+        return estado;
+    }
+
+    public List<String> getNotas() {
+        return notas;
+    }
+
+    /**
+     * @return Cadena con la información del caso en ese instante
+     */
+    @Override
+    public String toString() {
+        return "Caso #" + casoId + " después de " + secuencia + " cambios (" + momento + ")\n" +
+                "Estado: " + estado + "\n" +
+                "Notas: " + (notas.isEmpty() ? "Sin notas" : String.join(", ", notas));
+    }
+}
@@ -0,0 +1,51 @@
+package edu.unl.cc.modelo;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Esta clase representa el resultado de recibir un lote de solicitudes
+ * Contiene los casos creados y las posiciones de las solicitudes rechazadas por tener un nombre inválido,
+ * sin lanzar una excepción por cada una
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ResultadoLote {
+
+    private final List<Caso> recibidos;   // Casos creados, en el mismo orden del lote
+    private final int[] rechazados;       // Posiciones (desde 0) de las solicitudes rechazadas
+
+    /**
+     * @param recibidos Casos creados
+     * @param rechazados Posiciones de las solicitudes rechazadas
+     */
+    public ResultadoLote(List<Caso> recibidos, int[] rechazados) {
+        this.recibidos = Collections.unmodifiableList(recibidos);
+        this.rechazados = rechazados;
+    }
+
+    public List<Caso> getRecibidos() {
+        return recibidos;
+    }
+
+    /**
+     * @return Copia de las posiciones de las solicitudes rechazadas
+     */
+    public int[] getRechazados() {
+        return Arrays.copyOf(rechazados, rechazados.length);
+    }
+
+    public int getCantidadRechazados() {
+        return rechazados.length;
+    }
+
+    /**
+     * @return Cadena con el resumen del lote
+     */
+    @Override
+    public String toString() {
+        return "Recibidos: " + recibidos.size() + " - Rechazados: " + rechazados.length;
+    }
+}
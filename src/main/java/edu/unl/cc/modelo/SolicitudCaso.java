@@ -0,0 +1,31 @@
+package edu.unl.cc.modelo;
+
+/**
+ * Esta clase representa una solicitud de atención que todavía no ha sido registrada como caso
+ * Se usa para recibir muchos casos de una sola vez, por ejemplo al importar las matrículas del semestre
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class SolicitudCaso {
+
+    private final String nombre;     // Nombre del estudiante tal como fue ingresado
+    private final boolean urgente;   // Indica si el caso debe entrar como urgente
+
+    /**
+     * @param nombre Nombre del estudiante
+     * @param urgente Indica si el caso es urgente
+     */
+    public SolicitudCaso(String nombre, boolean urgente) {
+        this.nombre = nombre;
+        this.urgente = urgente;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public boolean isUrgente() {
+        return urgente;
+    }
+}
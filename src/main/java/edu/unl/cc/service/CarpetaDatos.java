@@ -0,0 +1,142 @@
+package edu.unl.cc.service;
+
+import edu.unl.cc.modelo.InstantaneaCasos;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Esta clase organiza los archivos de persistencia dentro de una carpeta
+ * Los datos se dividen en generaciones numeradas: la instantánea N guarda el estado al empezar el
+ * diario N, y el diario N guarda las operaciones posteriores. Para recuperar basta con cargar la última
+ * instantánea completa y reproducir los diarios desde su generación.
+ *
+ * Las instantáneas se escriben en un archivo temporal que se renombra al terminar, así una instantánea
+ * a medio escribir nunca se confunde con una completa. Cuando una instantánea queda en disco, los
+ * diarios e instantáneas de generaciones anteriores se borran.
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class CarpetaDatos {
+
+    private static final Pattern NOMBRE = Pattern.compile("(diario|instantanea)_(\\d+)\\.(log|bin)");
+
+    private final Path carpeta;
+
+    /**
+     * @param carpeta Carpeta de los datos, se crea si no existe
+     */
+    public CarpetaDatos(Path carpeta) {
+        this.carpeta = carpeta;
+        try {
+            Files.createDirectories(carpeta);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear la carpeta de datos " + carpeta, e);
+        }
+    }
+
+    public Path rutaDiario(long generacion) {
+        return carpeta.resolve("diario_" + generacion + ".log");
+    }
+
+    public Path rutaInstantanea(long generacion) {
+        return carpeta.resolve("instantanea_" + generacion + ".bin");
+    }
+
+    /**
+     * @return Generación de la última instantánea completa, 0 si no hay ninguna
+     */
+    public long ultimaInstantanea() {
+        long ultima = 0;
+        for (long[] archivo : listar()) {
+            if (archivo[0] == 1) ultima = Math.max(ultima, archivo[1]);
+        }
+        return ultima;
+    }
+
+    /**
+     * @param desde Primera generación a incluir
+     * @return Generaciones de los diarios existentes desde la indicada, en orden
+     */
+    public List<Long> diariosDesde(long desde) {
+        List<Long> generaciones = new ArrayList<>();
+        for (long[] archivo : listar()) {
+            if (archivo[0] == 0 && archivo[1] >= desde) generaciones.add(archivo[1]);
+        }
+        generaciones.sort(null);
+        return generaciones;
+    }
+
+    /**
+     * Lee la instantánea de una generación
+     * @param generacion Generación de la instantánea
+     * @return Instantánea leída
+     */
+    public InstantaneaCasos leerInstantanea(long generacion) {
+        try (InputStream archivo = Files.newInputStream(rutaInstantanea(generacion))) {
+            return InstantaneaCasos.leer(new DataInputStream(new BufferedInputStream(archivo, 1 << 16)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer la instantánea " + generacion, e);
+        }
+    }
+
+    /**
+     * Escribe la instantánea, la fuerza a disco y la publica con un renombrado atómico
+     * Después borra los diarios e instantáneas de generaciones anteriores
+     * @param instantanea Estado a guardar
+     * @param generacion Generación del diario que empieza con este estado
+     */
+    public void guardarInstantanea(InstantaneaCasos instantanea, long generacion) {
+        Path destino = rutaInstantanea(generacion);
+        Path temporal = carpeta.resolve(destino.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream archivo = new FileOutputStream(temporal.toFile())) {
+                DataOutputStream salida = new DataOutputStream(new BufferedOutputStream(archivo, 1 << 16));
+                instantanea.escribir(salida);
+                salida.flush();
+                archivo.getFD().sync();
+            }
+            Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (long[] archivo : listar()) {
+                if (archivo[1] < generacion) {
+                    Files.deleteIfExists(archivo[0] == 0 ? rutaDiario(archivo[1]) : rutaInstantanea(archivo[1]));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo guardar la instantánea " + generacion, e);
+        }
+    }
+
+    /**
+     * @return Archivos de la carpeta como pares {tipo, generación}: tipo 0 es diario y 1 es instantánea
+     */
+    private List<long[]> listar() {
+        List<long[]> archivos = new ArrayList<>();
+        try (Stream<Path> contenido = Files.list(carpeta)) {
+            contenido.forEach(ruta -> {
+                Matcher m = NOMBRE.matcher(ruta.getFileName().toString());
+                if (m.matches()) {
+                    archivos.add(new long[] {m.group(1).equals("diario") ? 0 : 1, Long.parseLong(m.group(2))});
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer la carpeta de datos " + carpeta, e);
+        }
+        return archivos;
+    }
+}
@@ -1,26 +1,119 @@
 package edu.unl.cc.service;
 
+import edu.unl.cc.estructuras.ArenaNotas;
+import edu.unl.cc.estructuras.ColaAcotada;
+import edu.unl.cc.estructuras.ColaAtencion;
 import edu.unl.cc.estructuras.ColaCasos;
+import edu.unl.cc.estructuras.ColasFragmentadas;
+import edu.unl.cc.estructuras.IndiceInvertido;
+import edu.unl.cc.estructuras.MapaEnteros;
+import edu.unl.cc.estructuras.PoolNotas;
+import edu.unl.cc.estructuras.VistaCasos;
+import edu.unl.cc.exception.AtencionAgentesException;
+import edu.unl.cc.exception.ColaLlenaException;
 import edu.unl.cc.exception.NombreInvalidoException;
+import edu.unl.cc.modelo.Accion;
+import edu.unl.cc.modelo.Agente;
 import edu.unl.cc.modelo.Caso;
 import edu.unl.cc.modelo.EstadoCaso;
+import edu.unl.cc.modelo.InstantaneaCasos;
+import edu.unl.cc.modelo.InstantaneaCasos.CasoGuardado;
+import edu.unl.cc.modelo.ResultadoLote;
+import edu.unl.cc.modelo.SolicitudCaso;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Esta clase se encarga de gestionar los casos dentro del sistema
  * Administra las colas de casos normales y urgentes, el caso que está siendo atendido, y los casos que ya han sido finalizados.
+ * Además puede repartir los casos entre varios agentes que atienden al mismo tiempo en hilos virtuales.
+ * Las notas de todos los casos se registran en un índice para buscar tickets por palabra.
+ * Las notas repetidas comparten su texto entre casos y, opcionalmente, el texto se guarda fuera del heap
+ * en una arena por día.
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class CasoManager {
 
-    private final ColaCasos colaNormal = new ColaCasos(); // Cola para casos normales
-    private final ColaCasos colaUrgente = new ColaCasos(); // Cola para casos urgentes
-    private final List<Caso> casosFinalizados = new ArrayList<>(); // Lista de casos finalizados
+    private final ColaAtencion colaEspera; // Casos normales y urgentes que esperan ser atendidos
+    private final ColaCasos casosFinalizados = new ColaCasos(); // Casos finalizados en el orden en que se cerraron
+    private final Collection<Caso> vistaEnCola; // Vistas de solo lectura que se crean una sola vez
+    private final Collection<Caso> vistaFinalizados;
+    private final MapaEnteros<Caso> indiceCasos = new MapaEnteros<>(); // Todos los casos recibidos indexados por ID
+    private final IndiceInvertido indiceNotas = new IndiceInvertido(); // Palabras de las notas -> casos que las mencionan
+    private final PoolNotas poolNotas = new PoolNotas(); // Textos de notas compartidos entre casos
+    private final List<Agente> agentes = new CopyOnWriteArrayList<>(); // Agentes que atienden casos en paralelo
+    private final MapaEnteros<Caso> casosSinCola = new MapaEnteros<>(); // Devueltos por un agente cuando la cola estaba llena
     private Caso casoActual; // Caso que está siendo atendido
-    private int contadorId = 1; // Contador para asignar IDs únicos y evitar errores
+    private final AtomicInteger contadorId = new AtomicInteger(1); // Contador para asignar IDs únicos aunque varias ventanillas reciban casos a la vez
+    private volatile boolean notasFueraDelHeap; // Si es true los casos nuevos guardan sus notas en la arena del día
+    private ArenaNotas arenaDelDia;
+    private LocalDate diaDeArena;
+    private volatile boolean silencioso; // true mientras se reproduce el diario: no se muestran mensajes
+    private volatile ArchivoFinalizados archivoFinalizados; // Si es null los casos finalizados se quedan en memoria
+
+    /**
+     * Lugar fuera de memoria donde se guardan los casos finalizados, por ejemplo el archivo de tickets
+     */
+    public interface ArchivoFinalizados {
+        /**
+         * Guarda un caso recién finalizado; si termina sin error el caso sale de memoria y desde entonces
+         * se lee de este archivo
+         * @param caso Caso finalizado
+         */
+        void archivar(Caso caso);
+    }
+
+    /**
+     * Crea un gestor que usa dos colas fijas: primero se atienden todos los urgentes y luego los normales
+     */
+    public CasoManager() {
+        this(new ColasFragmentadas(1));
+    }
+
+    /**
+     * Crea un gestor con otra forma de organizar la espera, por ejemplo una cola de prioridad con
+     * envejecimiento (ColaPrioridadCasos), colas fragmentadas por procesador (ColasFragmentadas)
+     * o cualquiera de ellas con capacidad limitada (ColaAcotada)
+     * @param colaEspera Cola de espera a usar
+     */
+    public CasoManager(ColaAtencion colaEspera) {
+        this.colaEspera = colaEspera;
+        if (colaEspera instanceof ColaAcotada acotada) {
+            // Los casos derramados a disco salen del índice hasta que vuelven a la cola
+            acotada.setRegistroCasos(new ColaAcotada.RegistroCasos() {
+                @Override
+                public void derramado(Caso caso) {
+                    indiceCasos.eliminar(caso.getId());
+                }
+
+                @Override
+                public Caso reconstruir(CasoGuardado guardado) {
+                    return CasoManager.this.reconstruir(guardado);
+                }
+
+                @Override
+                public void recuperado(Caso caso) {
+                    indiceCasos.poner(caso.getId(), caso);
+                }
+            });
+        }
+        this.vistaEnCola = new VistaCasos(colaEspera::tamanio, List.of(colaEspera));
+        this.vistaFinalizados = new VistaCasos(casosFinalizados::tamanio, List.of(casosFinalizados));
+    }
 
     /**
      * Recibe un nuevo caso valida el nombre y lo agrega a la cola correspondiente
@@ -28,40 +121,95 @@ public class CasoManager {
      * @param esUrgente Indica si el caso es urgente
      * @return El caso creado
      * @throws NombreInvalidoException Si el nombre no cumple con los requisitos
+     * @throws ColaLlenaException Si la cola de espera está llena; la recepción debe ir más despacio
      */
-    public Caso recibirCaso(String nombre, boolean esUrgente) throws NombreInvalidoException {
+    public Caso recibirCaso(String nombre, boolean esUrgente) throws NombreInvalidoException, ColaLlenaException {
         if (!esNombreValido(nombre)) {
             throw new NombreInvalidoException("Nombre inválido. Solo se permiten letras y mínimo dos caracteres.");
         }
-        Caso nuevo = new Caso(contadorId++, nombre.trim(), esUrgente);
+        Caso nuevo = new Caso(contadorId.getAndIncrement(), nombre.trim(), esUrgente);
         if (esUrgente) {
             nuevo.cambiarEstado(EstadoCaso.URGENTE);
-            colaUrgente.agregar(nuevo);
-        } else {
-            colaNormal.agregar(nuevo);
+        }
+        prepararNotas(nuevo);
+        indiceCasos.poner(nuevo.getId(), nuevo);
+        try {
+            colaEspera.agregar(nuevo);
+        } catch (ColaLlenaException e) {
+            indiceCasos.eliminar(nuevo.getId());
+            throw e;
         }
         return nuevo;
     }
 
+    /**
+     * Recibe un lote de solicitudes de una sola vez, por ejemplo al importar las matrículas del semestre
+     * Los nombres inválidos no lanzan excepción: se reportan por posición en el resultado.
+     * Los IDs de los casos válidos se reservan juntos y cada cola recibe su parte en una sola operación
+     * @param solicitudes Solicitudes a registrar
+     * @return Resultado con los casos creados y las posiciones rechazadas
+     * @throws ColaLlenaException Si la cola de espera no tiene espacio para el lote; no se agrega ningún caso
+     */
+    public ResultadoLote recibirCasos(Collection<SolicitudCaso> solicitudes) throws ColaLlenaException {
+        int[] rechazados = new int[solicitudes.size()];
+        int cantidadRechazados = 0;
+        int posicion = 0;
+        for (SolicitudCaso solicitud : solicitudes) {
+            if (!esNombreValido(solicitud.getNombre())) rechazados[cantidadRechazados++] = posicion;
+            posicion++;
+        }
+
+        int validos = solicitudes.size() - cantidadRechazados;
+        int siguienteId = contadorId.getAndAdd(validos);
+        List<Caso> recibidos = new ArrayList<>(validos);
+        posicion = 0;
+        int r = 0;
+        for (SolicitudCaso solicitud : solicitudes) {
+            if (r < cantidadRechazados && rechazados[r] == posicion++) {
+                r++;
+                continue;
+            }
+            Caso nuevo = new Caso(siguienteId++, solicitud.getNombre().trim(), solicitud.isUrgente());
+            if (nuevo.isUrgente()) {
+                nuevo.cambiarEstado(EstadoCaso.URGENTE);
+            }
+            prepararNotas(nuevo);
+            indiceCasos.poner(nuevo.getId(), nuevo);
+            recibidos.add(nuevo);
+        }
+
+        try {
+            colaEspera.agregarTodos(recibidos);
+        } catch (ColaLlenaException e) {
+            for (Caso caso : recibidos) {
+                indiceCasos.eliminar(caso.getId());
+            }
+            throw e;
+        }
+        return new ResultadoLote(recibidos, Arrays.copyOf(rechazados, cantidadRechazados));
+    }
+
     /**
      * Atiende el siguiente caso disponible pero priorizando los casos urgentes
      * Si ya hay un caso en atención, no permite atender otro a si sea urgente
      */
     public void atenderSiguienteCaso() {
         if (casoActual != null && casoActual.getEstado() == EstadoCaso.EN_ATENCION) {
-            System.out.println("Ya hay un caso en atención. Finalícelo antes de atender otro.");
+            mostrar("Ya hay un caso en atención. Finalícelo antes de atender otro.");
             return;
         }
-        if (!colaUrgente.estaVacia()) {
-            casoActual = colaUrgente.atender();
-            casoActual.cambiarEstado(EstadoCaso.EN_ATENCION);
-            System.out.println("Caso " + casoActual.getId() + " pasa a atención (urgente).");
-        } else if (!colaNormal.estaVacia()) {
-            casoActual = colaNormal.atender();
-            casoActual.cambiarEstado(EstadoCaso.EN_ATENCION);
-            System.out.println("Atendiendo caso: " + casoActual.getId() + " - " + casoActual.getEstudiante());
+        // Se atiende directamente y se revisa el resultado, porque otro agente puede vaciar la cola entre medias
+        Caso siguiente = colaEspera.atender();
+        if (siguiente == null) {
+            mostrar("No hay casos en espera.");
+            return;
+        }
+        casoActual = siguiente;
+        casoActual.cambiarEstado(EstadoCaso.EN_ATENCION);
+        if (casoActual.isUrgente()) {
+            mostrar("Caso " + casoActual.getId() + " pasa a atención (urgente).");
         } else {
-            System.out.println("No hay casos en espera.");
+            mostrar("Atendiendo caso: " + casoActual.getId() + " - " + casoActual.getEstudiante());
         }
     }
 
@@ -71,20 +219,20 @@ public class CasoManager {
      */
     public void cambiarEstado(EstadoCaso nuevoEstado) {
         if (casoActual == null) {
-            System.out.println("No hay ningún caso en atención.");
+            mostrar("No hay ningún caso en atención.");
             return;
         }
         EstadoCaso actual = casoActual.getEstado();
         if (actual == nuevoEstado) {
-            System.out.println("El caso ya está en estado " + nuevoEstado + ".");
+            mostrar("El caso ya está en estado " + nuevoEstado + ".");
             return;
         }
         if (nuevoEstado == EstadoCaso.URGENTE && casoActual.isUrgente()) {
-            System.out.println("Este caso ya fue marcado como urgente al ser ingresado.");
+            mostrar("Este caso ya fue marcado como urgente al ser ingresado.");
             return;
         }
         casoActual.cambiarEstado(nuevoEstado);
-        System.out.println("Estado cambiado de " + actual + " a " + nuevoEstado + ".");
+        mostrar("Estado cambiado de " + actual + " a " + nuevoEstado + ".");
     }
 
     /**
@@ -92,13 +240,245 @@ public class CasoManager {
      */
     public void finalizarCaso() {
         if (casoActual == null) {
-            System.out.println("No hay caso en atención.");
+            mostrar("No hay caso en atención.");
             return;
         }
-        casoActual.cambiarEstado(EstadoCaso.COMPLETADO);
-        casosFinalizados.add(casoActual);
+        Caso caso = casoActual;
+        caso.cambiarEstado(EstadoCaso.COMPLETADO);
         casoActual = null;
-        System.out.println("Caso finalizado.");
+        mostrar("Caso finalizado.");
+        retirarFinalizado(caso);
+    }
+
+    /**
+     * Indica dónde se guardan los casos finalizados para sacarlos de memoria
+     * @param archivo Archivo de finalizados, o null para dejarlos en memoria
+     */
+    public void setArchivoFinalizados(ArchivoFinalizados archivo) {
+        this.archivoFinalizados = archivo;
+    }
+
+    /**
+     * Archiva un caso finalizado y lo saca del índice; si no hay archivo, o no se pudo guardar,
+     * el caso queda en la lista de finalizados
+     */
+    private void retirarFinalizado(Caso caso) {
+        ArchivoFinalizados archivo = archivoFinalizados;
+        if (archivo == null) {
+            casosFinalizados.agregar(caso);
+            return;
+        }
+        try {
+            archivo.archivar(caso);
+        } catch (RuntimeException e) {
+            casosFinalizados.agregar(caso); // No se pierde: sigue en memoria
+            throw e;
+        }
+        caso.restaurarHistoria(null); // El ticket archivado guarda solo el resultado, no la bitácora
+        indiceCasos.eliminar(caso.getId());
+    }
+
+    /**
+     * Registra un nuevo agente (ventanilla) que podrá atender casos en paralelo
+     * @param nombre Nombre del agente
+     * @return El agente registrado
+     */
+    public Agente registrarAgente(String nombre) {
+        Agente agente = new Agente(nombre);
+        agentes.add(agente);
+        return agente;
+    }
+
+    /**
+     * Devuelve los agentes registrados
+     * @return Lista de agentes
+     */
+    public List<Agente> getAgentes() {
+        return Collections.unmodifiableList(agentes);
+    }
+
+    /**
+     * Asigna un caso a cada agente libre, priorizando los casos urgentes
+     * Se asigna en este mismo hilo: tomar un caso de la cola es una operación corta
+     * y no vale la pena crear un hilo por agente para hacerla
+     * @return Cantidad de casos asignados
+     */
+    public int despacharAgentes() {
+        int asignados = 0;
+        for (Agente agente : agentes) {
+            if (!agente.estaLibre()) continue;
+            if (asignarSiguiente(agente) == null) break; // Ya no quedan casos en espera
+            asignados++;
+        }
+        return asignados;
+    }
+
+    /**
+     * Atiende todos los casos en espera repartiéndolos entre los agentes registrados
+     * Cada agente trabaja en su propio hilo virtual: toma el siguiente caso (urgentes primero),
+     * ejecuta el trabajo indicado y lo finaliza, hasta que las colas quedan vacías.
+     * Si el trabajo falla, el caso vuelve a la cola, el agente queda libre y deja de tomar casos;
+     * los demás agentes siguen trabajando
+     * @param trabajo Tarea que realiza el agente sobre cada caso antes de finalizarlo
+     * @return Cantidad de casos atendidos
+     * @throws AtencionAgentesException Si el trabajo falló en algún caso
+     */
+    public int atenderConAgentes(Consumer<Caso> trabajo) throws AtencionAgentesException {
+        return atenderConAgentes(trabajo, pasosDirectos);
+    }
+
+    /**
+     * Igual que atenderConAgentes(trabajo), pero cada paso de los agentes se hace con los pasos indicados
+     * @param trabajo Tarea que realiza el agente sobre cada caso antes de finalizarlo
+     * @param pasos Forma de tomar, finalizar y devolver los casos
+     * @return Cantidad de casos atendidos
+     * @throws AtencionAgentesException Si el trabajo falló en algún caso
+     */
+    int atenderConAgentes(Consumer<Caso> trabajo, PasosAgente pasos) throws AtencionAgentesException {
+        AtomicInteger atendidos = new AtomicInteger();
+        Queue<Throwable> fallos = new ConcurrentLinkedQueue<>();
+        try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Agente agente : agentes) {
+                hilos.submit(() -> {
+                    try {
+                        Caso caso = agente.estaLibre() ? pasos.tomar(agente) : agente.getCasoActual();
+                        while (caso != null) {
+                            boolean terminado = false;
+                            boolean liberado = false;
+                            try {
+                                trabajo.accept(caso);
+                                terminado = true;
+                            } catch (RuntimeException | Error e) {
+                                fallos.add(e);
+                            } finally {
+                                liberado = liberarAgente(agente, terminado, pasos, fallos);
+                            }
+                            if (!terminado || !liberado) return;
+                            atendidos.incrementAndGet();
+                            caso = pasos.tomar(agente);
+                        }
+                    } catch (RuntimeException e) { // Falló tomar un caso; el agente deja de trabajar
+                        fallos.add(e);
+                    }
+                });
+            }
+        }
+        if (fallos.isEmpty()) return atendidos.get();
+
+        Iterator<Throwable> iterador = fallos.iterator();
+        AtencionAgentesException error = new AtencionAgentesException(
+                "Falló la atención de " + fallos.size() + " caso(s).", atendidos.get(), iterador.next());
+        iterador.forEachRemaining(error::addSuppressed);
+        throw error;
+    }
+
+    /**
+     * Deja libre al agente: si terminó, su caso se finaliza; si no, vuelve a la cola de espera
+     * @return false si no se pudo, el error queda en la lista de fallos
+     */
+    private static boolean liberarAgente(Agente agente, boolean terminado, PasosAgente pasos,
+                                         Queue<Throwable> fallos) {
+        try {
+            if (terminado) {
+                pasos.finalizar(agente);
+            } else {
+                pasos.devolver(agente);
+            }
+            return true;
+        } catch (ColaLlenaException | RuntimeException e) {
+            fallos.add(e);
+            return false;
+        }
+    }
+
+    /**
+     * Pasos con los que un agente toma, finaliza o devuelve un caso
+     * Permite que quien atiende con agentes registre cada paso, por ejemplo en el diario
+     */
+    interface PasosAgente {
+        /**
+         * @return Caso asignado al agente o null si no hay casos en espera
+         */
+        Caso tomar(Agente agente);
+
+        void finalizar(Agente agente);
+
+        void devolver(Agente agente) throws ColaLlenaException;
+    }
+
+    private final PasosAgente pasosDirectos = new PasosAgente() {
+        @Override
+        public Caso tomar(Agente agente) {
+            return asignarSiguiente(agente);
+        }
+
+        @Override
+        public void finalizar(Agente agente) {
+            finalizarCasoDeAgente(agente);
+        }
+
+        @Override
+        public void devolver(Agente agente) throws ColaLlenaException {
+            devolverCasoDeAgente(agente);
+        }
+    };
+
+    /**
+     * Finaliza el caso que está atendiendo un agente y lo deja libre
+     * @param agente Agente cuyo caso se finaliza
+     */
+    public void finalizarCasoDeAgente(Agente agente) {
+        Caso caso = agente.getCasoActual();
+        if (caso == null) return;
+        caso.cambiarEstado(EstadoCaso.COMPLETADO);
+        agente.setCasoActual(null);
+        retirarFinalizado(caso);
+    }
+
+    /**
+     * Deja libre al agente y devuelve su caso sin terminar a la cola de espera
+     * @param agente Agente cuyo caso se devuelve
+     * @throws ColaLlenaException Si la cola no tiene espacio; el caso queda fuera de la cola, pero se
+     *                            puede seguir buscando por su ID
+     */
+    public void devolverCasoDeAgente(Agente agente) throws ColaLlenaException {
+        Caso caso = agente.getCasoActual();
+        if (caso == null) return;
+        agente.setCasoActual(null);
+        caso.cambiarEstado(caso.isUrgente() ? EstadoCaso.URGENTE : EstadoCaso.EN_COLA);
+        try {
+            colaEspera.agregar(caso);
+        } catch (ColaLlenaException e) {
+            synchronized (casosSinCola) {
+                casosSinCola.poner(caso.getId(), caso);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Toma el siguiente caso en espera (urgentes primero) y lo asigna al agente
+     * @param agente Agente que recibe el caso
+     * @return Caso asignado o null si no hay casos en espera
+     */
+    Caso asignarSiguiente(Agente agente) {
+        Caso caso = colaEspera.atender();
+        if (caso == null) return null;
+        caso.cambiarEstado(EstadoCaso.EN_ATENCION);
+        agente.setCasoActual(caso);
+        return caso;
+    }
+
+    /**
+     * Busca un agente registrado por su nombre
+     * @param nombre Nombre del agente
+     * @return Agente encontrado o null si no existe
+     */
+    public Agente buscarAgente(String nombre) {
+        for (Agente agente : agentes) {
+            if (agente.getNombre().equals(nombre)) return agente;
+        }
+        return null;
     }
 
     /**
@@ -110,22 +490,231 @@ public class CasoManager {
     }
 
     /**
-     * Devuelve la lista de casos que ya han sido completados
-     * @return Lista de casos finalizados
+     * Activa o desactiva el almacenamiento de notas fuera del heap para los casos que se reciban desde ahora
+     * Útil cuando se cargan archivos grandes de casos: el texto de las notas deja de ocupar el heap
+     * @param activar true para guardar las notas en memoria nativa
      */
-    public List<Caso> getCasosFinalizados() {
-        return casosFinalizados;
+    public void setNotasFueraDelHeap(boolean activar) {
+        this.notasFueraDelHeap = activar;
+    }
+
+    public boolean isNotasFueraDelHeap() {
+        return notasFueraDelHeap;
+    }
+
+    /**
+     * @return Tabla de textos de notas compartidos, permite consultar los bytes ahorrados
+     */
+    public PoolNotas getPoolNotas() {
+        return poolNotas;
+    }
+
+    /**
+     * Conecta un caso con el índice de notas y, si está activado, con la arena del día
+     */
+    private void prepararNotas(Caso caso) {
+        caso.setIndiceNotas(indiceNotas);
+        caso.setPoolNotas(poolNotas);
+        if (notasFueraDelHeap) caso.setArenaNotas(arenaDeHoy());
+    }
+
+    /**
+     * Devuelve la arena del día actual y crea una nueva cuando cambia la fecha
+     * Las arenas de días anteriores se liberan solas cuando sus casos ya no se usan
+     */
+    private synchronized ArenaNotas arenaDeHoy() {
+        LocalDate hoy = LocalDate.now();
+        if (!hoy.equals(diaDeArena)) {
+            arenaDelDia = new ArenaNotas();
+            diaDeArena = hoy;
+        }
+        return arenaDelDia;
+    }
+
+    /**
+     * Busca un caso por su ID sin importar si está en cola, en atención o finalizado
+     * De un caso derramado a disco se obtiene una copia leída del archivo de derrame
+     * @param id ID del caso
+     * @return Caso encontrado o null si no existe
+     */
+    public Caso buscarCaso(int id) {
+        Caso caso = indiceCasos.obtener(id);
+        if (caso != null || !(colaEspera instanceof ColaAcotada acotada)) return caso;
+        caso = acotada.buscarDerramado(id);
+        return caso != null ? caso : indiceCasos.obtener(id); // Pudo volver a memoria entre las dos búsquedas
+    }
+
+    /**
+     * Busca los casos cuyas notas mencionan una palabra, o todas si son varias, sin importar mayúsculas ni tildes
+     * @param termino Palabra o palabras a buscar, por ejemplo "matricula" o "beca pendiente"
+     * @return Casos ordenados del que más veces la menciona al que menos
+     */
+    public List<Caso> buscarCasosPorTermino(String termino) {
+        return casosDe(indiceNotas.buscar(termino));
+    }
+
+    /**
+     * Busca los casos cuyas notas mencionan alguna palabra que empieza con el prefijo indicado
+     * Con varias palabras solo la última es prefijo y las demás deben aparecer completas
+     * @param prefijo Inicio de la palabra, por ejemplo "matri" o "beca pend"
+     * @return Casos ordenados del que más veces menciona esas palabras al que menos
+     */
+    public List<Caso> buscarCasosPorPrefijo(String prefijo) {
+        return casosDe(indiceNotas.buscarPrefijo(prefijo));
+    }
+
+    /**
+     * Busca los IDs de los tickets cuyas notas mencionan una palabra, o todas si son varias
+     * A diferencia de buscarCasosPorTermino incluye los finalizados que ya salieron de memoria
+     * @param termino Palabra o palabras a buscar
+     * @return IDs ordenados del ticket que más veces la menciona al que menos
+     */
+    public int[] buscarTicketsPorTermino(String termino) {
+        return indiceNotas.buscar(termino);
+    }
+
+    /**
+     * Busca los IDs de los tickets cuyas notas mencionan alguna palabra que empieza con el prefijo indicado
+     * A diferencia de buscarCasosPorPrefijo incluye los finalizados que ya salieron de memoria
+     * @param prefijo Inicio de la palabra
+     * @return IDs ordenados del ticket que más veces menciona esas palabras al que menos
+     */
+    public int[] buscarTicketsPorPrefijo(String prefijo) {
+        return indiceNotas.buscarPrefijo(prefijo);
+    }
+
+    private List<Caso> casosDe(int[] ids) {
+        List<Caso> casos = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Caso caso = buscarCaso(id);
+            if (caso != null) casos.add(caso);
+        }
+        return casos;
+    }
+
+    /**
+     * Devuelve los casos que ya han sido completados, en el orden en que se cerraron
+     * Con un archivo de finalizados solo quedan aquí los que no se pudieron archivar
+     * Es una vista de solo lectura sobre los datos reales: no se copia y su tamaño se obtiene en O(1)
+     * @return Vista de casos finalizados
+     */
+    public Collection<Caso> getCasosFinalizados() {
+        return vistaFinalizados;
     }
 
     /**
      * Devuelve todos los casos que están en cola (tanto los normales y los urgentes)
-     * @return Lista de casos en espera
+     * Es una vista de solo lectura y débilmente consistente sobre las colas reales: no se copia
+     * y su tamaño se obtiene en O(1)
+     * @return Vista de casos en espera
+     */
+    public Collection<Caso> getCasosEnCola() {
+        return vistaEnCola;
+    }
+
+    /**
+     * Copia el estado de los casos abiertos para guardarlo como instantánea
+     * Los finalizados no se copian porque ya están en el archivo de tickets. Cada caso reutiliza su copia
+     * anterior si no cambió, así el costo depende de los casos abiertos que cambiaron y no de toda la
+     * historia; escribir la copia a disco puede hacerse en otro hilo
+     * @param deshacerActual Acciones del caso actual que se pueden deshacer
+     * @param rehacerActual Acciones del caso actual que se pueden rehacer
+     * @return Instantánea con las colas, el caso actual, los agentes y el siguiente ID
+     */
+    public InstantaneaCasos capturarEstado(List<Accion> deshacerActual, List<Accion> rehacerActual) {
+        MapaEnteros<Caso> copiados = new MapaEnteros<>();
+        List<CasoGuardado> enCola = copiar(colaEspera, copiados);
+        CasoGuardado actual = null;
+        if (casoActual != null) {
+            actual = CasoGuardado.de(casoActual);
+            copiados.poner(casoActual.getId(), casoActual);
+        }
+        List<String> nombres = new ArrayList<>(agentes.size());
+        List<CasoGuardado> casosDeAgentes = new ArrayList<>(agentes.size());
+        for (Agente agente : agentes) {
+            Caso caso = agente.getCasoActual();
+            nombres.add(agente.getNombre());
+            casosDeAgentes.add(caso == null ? null : CasoGuardado.de(caso));
+            if (caso != null) copiados.poner(caso.getId(), caso);
+        }
+        List<CasoGuardado> otros = new ArrayList<>();
+        synchronized (casosSinCola) {
+            casosSinCola.recorrer((id, caso) -> {
+                if (!copiados.contiene(id)) otros.add(CasoGuardado.de(caso));
+            });
+        }
+        return new InstantaneaCasos(contadorId.get(), enCola, actual, deshacerActual, rehacerActual,
+                nombres, casosDeAgentes, otros);
+    }
+
+    private static List<CasoGuardado> copiar(Iterable<Caso> casos, MapaEnteros<Caso> copiados) {
+        List<CasoGuardado> copias = new ArrayList<>();
+        for (Caso caso : casos) {
+            if (copiados.poner(caso.getId(), caso) != null) continue; // Ya estaba, p. ej. volvió del disco
+            copias.add(CasoGuardado.de(caso));
+        }
+        return copias;
+    }
+
+    /**
+     * Reconstruye los casos abiertos y los agentes a partir de una instantánea; el gestor debe estar
+     * recién creado. Los finalizados de antes de la instantánea solo quedan en el archivo de tickets
+     * @param instantanea Instantánea leída de disco
+     */
+    public void restaurarEstado(InstantaneaCasos instantanea) {
+        if (!indiceCasos.estaVacio()) throw new IllegalStateException("Solo se puede restaurar un gestor vacío.");
+        contadorId.set(instantanea.getSiguienteId());
+        indiceCasos.reservar(instantanea.getEnCola().size() + instantanea.getAgentes().size()
+                + instantanea.getOtros().size() + 1);
+        try {
+            colaEspera.agregarTodos(restaurar(instantanea.getEnCola()));
+        } catch (ColaLlenaException e) {
+            throw new IllegalStateException("La cola de espera no tiene espacio para los casos guardados.", e);
+        }
+        if (instantanea.getActual() != null) casoActual = restaurar(instantanea.getActual());
+        for (int i = 0; i < instantanea.getAgentes().size(); i++) {
+            Agente agente = registrarAgente(instantanea.getAgentes().get(i));
+            CasoGuardado caso = instantanea.getCasosDeAgentes().get(i);
+            if (caso != null) agente.setCasoActual(restaurar(caso));
+        }
+        for (Caso caso : restaurar(instantanea.getOtros())) {
+            casosSinCola.poner(caso.getId(), caso);
+        }
+    }
+
+    private List<Caso> restaurar(List<CasoGuardado> guardados) {
+        List<Caso> casos = new ArrayList<>(guardados.size());
+        for (CasoGuardado guardado : guardados) {
+            casos.add(restaurar(guardado));
+        }
+        return casos;
+    }
+
+    private Caso restaurar(CasoGuardado guardado) {
+        Caso caso = reconstruir(guardado);
+        indiceCasos.poner(caso.getId(), caso);
+        return caso;
+    }
+
+    /**
+     * Crea el caso con su estado, notas e historia, sin registrarlo en el índice
      */
-    public List<Caso> getCasosEnCola() {
-        List<Caso> enCola = new ArrayList<>();
-        enCola.addAll(colaNormal.getTodos());
-        enCola.addAll(colaUrgente.getTodos());
-        return enCola;
+    private Caso reconstruir(CasoGuardado guardado) {
+        Caso caso = new Caso(guardado.getId(), guardado.getEstudiante(), guardado.isUrgente());
+        caso.cambiarEstado(guardado.getEstado());
+        prepararNotas(caso);
+        List<String> notas = guardado.getNotas();
+        long[] secuencias = guardado.getSecuencias();
+        for (int i = notas.size() - 1; i >= 0; i--) { // Se insertan de la más antigua a la más reciente
+            if (secuencias == null || secuencias[i] < 1) {
+                caso.agregarNota(notas.get(i));
+            } else {
+                caso.agregarNota(notas.get(i), secuencias[i]); // La misma secuencia que ubica el historial
+            }
+        }
+        caso.getNotas().reservarSecuencias(guardado.getUltimaSecuencia());
+        caso.restaurarHistoria(guardado.getBitacora()); // Reemplaza los cambios hechos al reconstruirlo
+        return caso;
     }
 
     /**
@@ -134,7 +723,22 @@ public class CasoManager {
      * @return true si es válido si no devuelve false
      */
     private boolean esNombreValido(String nombre) {
-        return nombre != null && nombre.trim().matches("[a-zA-ZáéíóúÁÉÍÓÚñÑ ]{2,}");
+        if (nombre == null) return false;
+        // Recorrido a mano equivalente a trim().matches("[a-zA-ZáéíóúÁÉÍÓÚñÑ ]{2,}"), sin compilar regex ni copiar el texto
+        int inicio = 0;
+        int fin = nombre.length();
+        while (inicio < fin && nombre.charAt(inicio) <= ' ') inicio++;
+        while (fin > inicio && nombre.charAt(fin - 1) <= ' ') fin--;
+        if (fin - inicio < 2) return false;
+        for (int i = inicio; i < fin; i++) {
+            if (!esLetraPermitida(nombre.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static boolean esLetraPermitida(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == ' '
+                || "áéíóúÁÉÍÓÚñÑ".indexOf(c) >= 0;
     }
 
     /**
@@ -149,5 +753,27 @@ public class CasoManager {
         }
     }
 
+    /**
+     * Cierra y borra los archivos de derrame si la cola de espera guarda casos en disco
+     */
+    public void cerrar() {
+        if (colaEspera instanceof ColaAcotada acotada) acotada.cerrar();
+    }
 
-}
\ No newline at end of file
+    /**
+     * Deja de mostrar (o vuelve a mostrar) los mensajes de este gestor y de los que lo usan
+     * Se activa mientras se reproduce el diario, en lugar de silenciar System.out para todo el programa
+     * @param silencioso true para no mostrar mensajes
+     */
+    public void setSilencioso(boolean silencioso) {
+        this.silencioso = silencioso;
+    }
+
+    public boolean isSilencioso() {
+        return silencioso;
+    }
+
+    private void mostrar(String mensaje) {
+        if (!silencioso) System.out.println(mensaje);
+    }
+}
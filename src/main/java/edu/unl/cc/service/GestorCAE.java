@@ -1,47 +1,337 @@
 package edu.unl.cc.service;
 
+import edu.unl.cc.estructuras.ArchivoSegmentado;
+import edu.unl.cc.estructuras.DiarioAcciones;
+import edu.unl.cc.estructuras.Nodo;
+import edu.unl.cc.exception.AtencionAgentesException;
+import edu.unl.cc.exception.ColaLlenaException;
 import edu.unl.cc.exception.NombreInvalidoException;
 import edu.unl.cc.modelo.Accion;
+import edu.unl.cc.modelo.Agente;
+import edu.unl.cc.modelo.BitacoraCaso;
 import edu.unl.cc.modelo.Caso;
 import edu.unl.cc.modelo.EstadoCaso;
-
+import edu.unl.cc.modelo.InstantaneaCasos;
+import edu.unl.cc.modelo.InstanteCaso;
+import edu.unl.cc.modelo.ResultadoLote;
+import edu.unl.cc.modelo.SolicitudCaso;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 /**
  * Esta clase coordina todas las operaciones del sistema
  * Se encarga de recibir casos, atenderlos, gestionar notas, cambiar estados,
- * registrar acciones y guardar la información en archivos txt
+ * registrar acciones y guardar los tickets finalizados
+ * Los tickets se guardan en un solo archivo segmentado (carpeta archivo_tickets) en lugar de un archivo
+ * por caso; cualquier ticket se puede exportar al formato de texto ticket_N.txt cuando se necesite.
+ *
+ * Si se activa el diario, cada operación (recibir, atender, notas, estados, deshacer, rehacer y finalizar)
+ * se registra en disco antes de aplicarse. Al iniciar, las operaciones del diario se vuelven a ejecutar
+ * en el mismo orden, lo que reconstruye las colas, el caso actual y el historial tal como estaban.
+ * Cada registro lleva la hora de su operación, así la historia de cada caso conserva sus horas reales.
+ * Para que el reinicio no dependa del largo del diario, cada cierto número de operaciones se guarda una
+ * instantánea de los casos abiertos y se empieza un diario nuevo; al iniciar solo se reproduce lo posterior
+ * a ella. Los casos finalizados antes de la instantánea se consultan desde el archivo de tickets.
+ *
+ * Los agentes que atienden en paralelo también pasan por el diario: cada caso que toman, cada nota que
+ * agregan y cada caso que finalizan o devuelven queda registrado en el orden en que ocurrió.
+ *
+ * Varias notas y cambios de estado del caso actual pueden hacerse como un solo paso entre iniciarGrupo y
+ * confirmarGrupo: el grupo ocupa una sola entrada del historial (se deshace y rehace completo) y un solo
+ * registro del diario, que se escribe al confirmar. Si el programa se cae antes, el grupo no se recupera.
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class GestorCAE {
 
     private final CasoManager casoManager = new CasoManager(); // Gestor de casos
     private final NotaManager notaManager = new NotaManager(casoManager); // Gestor de notas
-    private final HistorialAcciones historial = new HistorialAcciones(casoManager); // Historial para las acciones
+    private static final int ACCIONES_EN_MEMORIA = 200; // Por caso; las más antiguas pasan a un archivo temporal
+    private static final Path CARPETA_TICKETS = Path.of("archivo_tickets"); // Carpeta por defecto
+    private static final int MAXIMO_TICKETS_LISTADOS = 50;
+
+    // Operaciones que se guardan en el diario
+    private static final byte OP_RECIBIR = 1;
+    private static final byte OP_RECIBIR_LOTE = 2;
+    private static final byte OP_ATENDER = 3;
+    private static final byte OP_AGREGAR_NOTA = 4;
+    private static final byte OP_ELIMINAR_NOTA = 5;
+    private static final byte OP_CAMBIAR_ESTADO = 6;
+    private static final byte OP_DESHACER = 7;
+    private static final byte OP_REHACER = 8;
+    private static final byte OP_FINALIZAR = 9;
+    private static final byte OP_GRUPO = 10;
+    private static final byte OP_REGISTRAR_AGENTE = 11;
+    private static final byte OP_DESPACHAR_AGENTES = 12;
+    private static final byte OP_TOMAR_CASO_AGENTE = 13;
+    private static final byte OP_FINALIZAR_AGENTE = 14;
+    private static final byte OP_DEVOLVER_AGENTE = 15;
+    private static final byte OP_NOTA_DE_AGENTE = 16;
+    private static final int CON_MOMENTO = 0x80; // Bit de la operación: el registro lleva la hora en que se hizo
+
+    private final HistorialAcciones historial = new HistorialAcciones(casoManager, ACCIONES_EN_MEMORIA,
+            Path.of(System.getProperty("java.io.tmpdir"))); // Historial para las acciones, con su propia carpeta temporal
+    private static final int OPERACIONES_POR_INSTANTANEA = 10_000; // Luego de estas se intenta una instantánea
+
+    private DiarioAcciones diario;   // null si el diario no está activado
+    private boolean reproduciendo;   // true mientras se recuperan las operaciones del diario
+    private final Path carpetaTickets;
+    private ArchivoSegmentado archivoTickets; // Tickets finalizados, se abre al usarlo
+    private CarpetaDatos carpetaDatos;
+    private long generacion;         // Generación del diario abierto
+    private Duration ventana;
+    private boolean esperarDisco;
+    private int operacionesDesdeInstantanea;
+    private Thread escritorInstantanea; // Escritura en segundo plano de la última instantánea
+
+    // Grupo de acciones abierto con iniciarGrupo, null si no hay ninguno
+    private List<Accion> accionesGrupo;
+    private Caso casoGrupo;
+    private ByteArrayOutputStream registrosGrupo; // Operaciones del grupo que se escriben juntas en el diario
+    private int cantidadRegistrosGrupo;
+
+    public GestorCAE() {
+        this(CARPETA_TICKETS);
+    }
+
+    /**
+     * @param carpetaTickets Carpeta del archivo de tickets finalizados
+     */
+    public GestorCAE(Path carpetaTickets) {
+        this.carpetaTickets = carpetaTickets;
+        casoManager.setArchivoFinalizados(this::archivarFinalizado); // Los finalizados se leen del archivo
+    }
+
+    /**
+     * Recupera el estado guardado en la carpeta y empieza a registrar las operaciones nuevas
+     * Primero se carga la última instantánea y luego se reproducen solo los diarios posteriores a ella
+     * Durante la recuperación no se muestran mensajes ni se vuelven a escribir los archivos de tickets
+     * @param carpeta Carpeta con los diarios y las instantáneas
+     * @param ventana Tiempo que se juntan operaciones antes de forzarlas a disco; más largo es más rápido
+     * @param esperarDisco true para no confirmar una operación hasta que esté en disco; false es más rápido
+     *                     pero una caída puede perder la última ventana
+     * @return Cantidad de operaciones del diario recuperadas después de la instantánea
+     */
+    public int activarDiario(Path carpeta, Duration ventana, boolean esperarDisco) {
+        if (diario != null) throw new IllegalStateException("El diario ya está activado.");
+        carpetaDatos = new CarpetaDatos(carpeta);
+        this.ventana = ventana;
+        this.esperarDisco = esperarDisco;
+
+        long desde = carpetaDatos.ultimaInstantanea();
+        if (desde > 0) {
+            InstantaneaCasos instantanea = carpetaDatos.leerInstantanea(desde);
+            casoManager.restaurarEstado(instantanea);
+            if (instantanea.getActual() != null) {
+                historial.restaurar(instantanea.getActual().getId(), instantanea.getDeshacerActual(),
+                        instantanea.getRehacerActual());
+            }
+        }
+        List<Long> generaciones = carpetaDatos.diariosDesde(desde);
+
+        reproduciendo = true; // Los gestores no muestran mensajes mientras tanto
+        casoManager.setSilencioso(true);
+        int recuperadas = 0;
+        try {
+            for (long g : generaciones) {
+                recuperadas += DiarioAcciones.reproducir(carpetaDatos.rutaDiario(g), this::aplicar);
+            }
+        } finally {
+            casoManager.setSilencioso(false);
+            reproduciendo = false;
+            BitacoraCaso.fijarMomento(null);
+        }
+        generacion = generaciones.isEmpty() ? Math.max(desde, 1) : generaciones.get(generaciones.size() - 1);
+        operacionesDesdeInstantanea = recuperadas;
+        diario = new DiarioAcciones(carpetaDatos.rutaDiario(generacion), ventana, esperarDisco);
+        return recuperadas;
+    }
+
+    /**
+     * Guarda una instantánea de los casos abiertos y empieza un diario nuevo
+     * La copia se hace en este hilo y solo copia los casos que cambiaron desde la anterior; escribirla a
+     * disco y borrar los diarios anteriores se hace en segundo plano. El caso en atención se guarda con
+     * su historial para deshacer y rehacer, y los agentes con el caso que atiende cada uno.
+     * Solo el historial del caso en atención sobrevive a un reinicio: deshacer y rehacer solo actúan sobre
+     * ese caso, y las pilas de cualquier otro caso se pierden al recuperar desde la instantánea.
+     * Los finalizados no se copian: antes se fuerza a disco el archivo de tickets, donde ya están.
+     * No se toma mientras hay un grupo de acciones abierto, porque el grupo todavía no está en el diario.
+     * @return true si se tomó la instantánea
+     */
+    public synchronized boolean tomarInstantanea() {
+        if (diario == null || reproduciendo || accionesGrupo != null) return false;
+        esperarInstantanea(); // Nunca hay dos escrituras de instantáneas a la vez
+        if (archivoTickets != null) archivoTickets.sincronizar(); // Los finalizados quedan solo en el archivo
+        Caso actual = casoManager.getCasoActual();
+        InstantaneaCasos instantanea = actual == null
+                ? casoManager.capturarEstado(List.of(), List.of())
+                : casoManager.capturarEstado(historial.accionesParaDeshacer(actual.getId()),
+                        historial.accionesParaRehacer(actual.getId()));
+        diario.cerrar();
+        long nueva = ++generacion;
+        diario = new DiarioAcciones(carpetaDatos.rutaDiario(nueva), ventana, esperarDisco);
+        operacionesDesdeInstantanea = 0;
+        CarpetaDatos destino = carpetaDatos;
+        escritorInstantanea = Thread.ofVirtual().name("instantanea-cae").start(() -> {
+            try {
+                destino.guardarInstantanea(instantanea, nueva);
+            } catch (UncheckedIOException e) {
+                // Los diarios anteriores no se borraron, así que no se pierde nada
+                System.out.println("No se pudo guardar la instantánea: " + e.getMessage());
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Espera a que termine de escribirse la última instantánea, cierra el diario y el archivo de tickets
+     * y borra los archivos temporales del historial y de la cola de espera
+     */
+    public void cerrar() {
+        esperarInstantanea();
+        if (diario != null) {
+            diario.cerrar();
+            diario = null;
+        }
+        if (archivoTickets != null) {
+            archivoTickets.cerrar();
+            archivoTickets = null;
+        }
+        historial.cerrar();
+        casoManager.cerrar();
+    }
+
+    private void esperarInstantanea() {
+        if (escritorInstantanea == null) return;
+        try {
+            escritorInstantanea.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        escritorInstantanea = null;
+    }
+
+    /**
+     * Empieza un grupo de acciones sobre el caso actual
+     * Hasta confirmarGrupo o cancelarGrupo solo se pueden agregar o eliminar notas y cambiar el estado
+     * @return true si se abrió el grupo; false si no hay caso en atención, y entonces no se debe seguir
+     *         con las acciones del grupo porque se aplicarían sueltas
+     */
+    public synchronized boolean iniciarGrupo() {
+        if (accionesGrupo != null) throw new IllegalStateException("Ya hay un grupo de acciones abierto.");
+        Caso caso = casoManager.getCasoActual();
+        if (caso == null) {
+            mostrar("No hay caso en atención.");
+            return false;
+        }
+        accionesGrupo = new ArrayList<>();
+        casoGrupo = caso;
+        registrosGrupo = new ByteArrayOutputStream();
+        cantidadRegistrosGrupo = 0;
+        return true;
+    }
+
+    /**
+     * Cierra el grupo abierto: lo escribe en el diario y lo registra como un solo paso del historial
+     */
+    public synchronized void confirmarGrupo() {
+        if (accionesGrupo == null) return;
+        List<Accion> acciones = accionesGrupo;
+        byte[] registros = registrosGrupo.toByteArray();
+        int cantidad = cantidadRegistrosGrupo;
+        cerrarGrupo();
+        if (cantidad > 0) {
+            anotar(OP_GRUPO, datos -> {
+                datos.writeInt(cantidad);
+                datos.write(registros);
+            });
+        }
+        historial.registrarGrupo(acciones);
+    }
+
+    /**
+     * Descarta el grupo abierto y deshace lo que se alcanzó a aplicar; en el diario no queda nada
+     */
+    public synchronized void cancelarGrupo() {
+        if (accionesGrupo == null) return;
+        historial.revertir(casoGrupo, accionesGrupo);
+        cerrarGrupo();
+        mostrar("Se cancelaron las acciones del grupo.");
+    }
+
+    private void cerrarGrupo() {
+        accionesGrupo = null;
+        casoGrupo = null;
+        registrosGrupo = null;
+    }
 
     /**
      * Recibe un nuevo caso y lo agrega al sistema
      * @param nombre Nombre del estudiante
      * @param esUrgente Indica si el caso es urgente
      */
-    public void recibirCaso(String nombre, boolean esUrgente) {
+    public synchronized void recibirCaso(String nombre, boolean esUrgente) {
+        revisarInstantanea();
+        anotar(OP_RECIBIR, datos -> {
+            escribirTexto(datos, nombre);
+            datos.writeBoolean(esUrgente);
+        });
         try {
             Caso nuevo = casoManager.recibirCaso(nombre, esUrgente);
-            System.out.println("Caso recibido: " + nuevo.getId() + " - " + nuevo.getEstudiante());
-        } catch (NombreInvalidoException e) {
-            System.out.println(e.getMessage());
+            mostrar("Caso recibido: " + nuevo.getId() + " - " + nuevo.getEstudiante());
+        } catch (NombreInvalidoException | ColaLlenaException e) {
+            mostrar(e.getMessage());
+        }
+    }
+
+    /**
+     * Recibe un lote de casos de una sola vez y muestra cuántos fueron aceptados y rechazados
+     * @param solicitudes Solicitudes a registrar
+     * @return Resultado del lote, o null si la cola no tenía espacio para el lote
+     */
+    public synchronized ResultadoLote recibirCasos(Collection<SolicitudCaso> solicitudes) {
+        revisarInstantanea();
+        anotar(OP_RECIBIR_LOTE, datos -> {
+            datos.writeInt(solicitudes.size());
+            for (SolicitudCaso solicitud : solicitudes) {
+                escribirTexto(datos, solicitud.getNombre());
+                datos.writeBoolean(solicitud.isUrgente());
+            }
+        });
+        try {
+            ResultadoLote resultado = casoManager.recibirCasos(solicitudes);
+            mostrar("Lote recibido. " + resultado);
+            return resultado;
+        } catch (ColaLlenaException e) {
+            mostrar(e.getMessage());
+            return null;
         }
     }
 
     /**
      * Atiende el siguiente caso disponible en la cola
      */
-    public void atenderSiguienteCaso() {
+    public synchronized void atenderSiguienteCaso() {
+        revisarInstantanea();
+        anotar(OP_ATENDER, datos -> { });
         casoManager.atenderSiguienteCaso();
     }
 
@@ -49,14 +339,18 @@ public class GestorCAE {
      * Agrega una nota al caso actual y la registra en el historial
      * @param texto Contenido de la nota
      */
-    public void agregarNota(String texto) {
+    public synchronized void agregarNota(String texto) {
+        revisarInstantanea();
         Caso caso = casoManager.getCasoActual();
         if (caso == null) {
-            System.out.println("No se puede agregar nota. No hay un caso en atención.");
+            mostrar("No se puede agregar nota. No hay un caso en atención.");
             return;
         }
-        notaManager.agregarNota(texto);
-        historial.registrar(new Accion(caso.getId(), Accion.Tipo.AGREGAR_NOTA, texto));
+        anotar(OP_AGREGAR_NOTA, datos -> escribirTexto(datos, texto));
+        Nodo nota = notaManager.agregarNota(texto);
+        if (nota != null) {
+            registrarAccion(new Accion(caso.getId(), Accion.Tipo.AGREGAR_NOTA, nota));
+        }
     }
 
     /**
@@ -64,19 +358,21 @@ public class GestorCAE {
      * @param indice Índice de la nota a eliminar
      * @return Texto de la nota eliminada
      */
-    public String eliminarNotaPorIndice(int indice) {
+    public synchronized String eliminarNotaPorIndice(int indice) {
+        revisarInstantanea();
         Caso caso = casoManager.getCasoActual();
         if (caso == null || notaManager.casoActualSinNotas()) {
-            System.out.println("No hay notas para eliminar.");
+            mostrar("No hay notas para eliminar.");
             return null;
         }
-        String notaEliminada = notaManager.eliminarNotaPorIndice(indice);
-        if (notaEliminada != null) {
-            historial.registrar(new Accion(caso.getId(), Accion.Tipo.ELIMINAR_NOTA, notaEliminada));
-        } else {
-            System.out.println("Índice inválido.");
+        anotar(OP_ELIMINAR_NOTA, datos -> datos.writeInt(indice));
+        Nodo notaEliminada = notaManager.eliminarNotaPorIndice(indice);
+        if (notaEliminada == null) {
+            mostrar("Índice inválido.");
+            return null;
         }
-        return notaEliminada;
+        registrarAccion(new Accion(caso.getId(), Accion.Tipo.ELIMINAR_NOTA, notaEliminada));
+        return notaEliminada.getDato();
     }
 
     /**
@@ -99,17 +395,19 @@ public class GestorCAE {
      * Cambia el estado del caso actual y registra la acción si hubo cambio
      * @param nuevoEstado Estado al que se desea cambiar
      */
-    public void cambiarEstado(EstadoCaso nuevoEstado) {
+    public synchronized void cambiarEstado(EstadoCaso nuevoEstado) {
+        revisarInstantanea();
         Caso caso = casoManager.getCasoActual();
         if (caso == null) {
-            System.out.println("No hay caso en atención.");
+            mostrar("No hay caso en atención.");
             return;
         }
+        anotar(OP_CAMBIAR_ESTADO, datos -> datos.writeByte(nuevoEstado.ordinal()));
         EstadoCaso estadoAnterior = caso.getEstado();
         casoManager.cambiarEstado(nuevoEstado);
 
         if (estadoAnterior != nuevoEstado) {
-            historial.registrar(new Accion(caso.getId(), Accion.Tipo.CAMBIO_ESTADO, estadoAnterior, nuevoEstado));
+            registrarAccion(new Accion(caso.getId(), Accion.Tipo.CAMBIO_ESTADO, estadoAnterior, nuevoEstado));
         }
     }
 
@@ -117,7 +415,9 @@ public class GestorCAE {
      * Deshace la última acción registrada
      * @return Texto de la nota afectada
      */
-    public String deshacer() {
+    public synchronized String deshacer() {
+        revisarInstantanea();
+        anotar(OP_DESHACER, datos -> { });
         Accion accion = historial.deshacer();
         if (accion == null) return null;
 
@@ -131,7 +431,9 @@ public class GestorCAE {
      * Rehace la última acción deshecha
      * @return Texto de la nota afectada
      */
-    public String rehacer() {
+    public synchronized String rehacer() {
+        revisarInstantanea();
+        anotar(OP_REHACER, datos -> { });
         Accion accion = historial.rehacer();
         if (accion == null) return null;
 
@@ -143,60 +445,248 @@ public class GestorCAE {
     }
 
     /**
-     * Finaliza el caso actual y lo guarda en un archivo de texto
+     * Finaliza el caso actual y lo guarda en el archivo de tickets
      */
-    public void finalizarCaso() {
+    public synchronized void finalizarCaso() {
+        revisarInstantanea();
         Caso caso = casoManager.getCasoActual();
         if (caso == null) {
-            System.out.println("No hay caso en atención.");
+            mostrar("No hay caso en atención.");
             return;
         }
-        casoManager.finalizarCaso();
-        guardarCasoEnArchivo(caso);
+        anotar(OP_FINALIZAR, datos -> { });
+        historial.olvidar(caso.getId()); // Un caso finalizado ya no se puede deshacer
+        casoManager.finalizarCaso(); // Lo guarda en el archivo de tickets y lo saca de memoria
     }
 
     /**
-     * Guarda la información del caso en un archivo .txt
-     * @param caso Caso a guardar
+     * Registra un agente (ventanilla) que podrá atender casos en paralelo
+     * @param nombre Nombre del agente, no puede repetirse
      */
-    private void guardarCasoEnArchivo(Caso caso) {
-        String nombreArchivo = "ticket_" + caso.getId() + ".txt";
-
-        try (PrintWriter writer = new PrintWriter(nombreArchivo)) {
-            writer.println("Ticket #" + caso.getId());
-            writer.println("Estudiante: " + caso.getEstudiante());
-            writer.println("Estado final: " + caso.getEstado());
-            writer.println("Urgente: " + (caso.isUrgente() ? "Sí" : "No"));
-            writer.println("Notas:");
-
-            List<String> notas = caso.obtenerNotas();
-            if (notas.isEmpty()) {
-                writer.println("  Sin notas registradas.");
-            } else {
-                for (int i = 0; i < notas.size(); i++) {
-                    writer.println("  " + (i + 1) + ". " + notas.get(i));
+    public synchronized void registrarAgente(String nombre) {
+        revisarInstantanea();
+        if (casoManager.buscarAgente(nombre) != null) {
+            mostrar("Ya existe un agente con ese nombre.");
+            return;
+        }
+        anotar(OP_REGISTRAR_AGENTE, datos -> escribirTexto(datos, nombre));
+        casoManager.registrarAgente(nombre);
+    }
+
+    /**
+     * Asigna un caso a cada agente libre, priorizando los casos urgentes
+     * @return Cantidad de casos asignados
+     */
+    public synchronized int despacharAgentes() {
+        revisarInstantanea();
+        anotar(OP_DESPACHAR_AGENTES, datos -> { });
+        return casoManager.despacharAgentes();
+    }
+
+    /**
+     * Atiende todos los casos en espera repartiéndolos entre los agentes, cada uno en su hilo virtual
+     * Cada caso tomado, finalizado o devuelto se registra en el diario. Para que las notas que agrega
+     * el trabajo también se registren, debe agregarlas con agregarNotaDeAgente
+     * @param trabajo Tarea que realiza el agente sobre cada caso antes de finalizarlo
+     * @return Cantidad de casos atendidos
+     * @throws AtencionAgentesException Si el trabajo falló en algún caso; esos casos vuelven a la cola
+     */
+    public int atenderConAgentes(Consumer<Caso> trabajo) throws AtencionAgentesException {
+        if (accionesGrupo != null) throw new IllegalStateException("Hay un grupo de acciones abierto.");
+        return casoManager.atenderConAgentes(trabajo, new PasosRegistrados());
+    }
+
+    /**
+     * Agrega una nota a un caso que está atendiendo un agente
+     * @param casoId ID del caso
+     * @param texto Contenido de la nota
+     */
+    public synchronized void agregarNotaDeAgente(int casoId, String texto) {
+        revisarInstantanea();
+        Caso caso = casoManager.buscarCaso(casoId);
+        if (caso == null || caso.getEstado() != EstadoCaso.EN_ATENCION) {
+            mostrar("El caso #" + casoId + " no está en atención.");
+            return;
+        }
+        anotar(OP_NOTA_DE_AGENTE, datos -> {
+            datos.writeInt(casoId);
+            escribirTexto(datos, texto);
+        });
+        caso.agregarNota(texto);
+    }
+
+    /**
+     * Finaliza el caso que atiende un agente y lo guarda en el archivo de tickets
+     * @param nombre Nombre del agente
+     */
+    public void finalizarCasoDeAgente(String nombre) {
+        Agente agente = casoManager.buscarAgente(nombre);
+        if (agente == null || agente.estaLibre()) {
+            mostrar("El agente no tiene un caso en atención.");
+            return;
+        }
+        finalizarCasoDeAgente(agente);
+    }
+
+    private synchronized void finalizarCasoDeAgente(Agente agente) {
+        revisarInstantanea();
+        anotar(OP_FINALIZAR_AGENTE, datos -> escribirTexto(datos, agente.getNombre()));
+        casoManager.finalizarCasoDeAgente(agente);
+    }
+
+    /**
+     * Pasos de los agentes que quedan en el diario; se hacen de a uno para que el orden del diario
+     * sea el mismo en que los casos salieron de la cola
+     */
+    private final class PasosRegistrados implements CasoManager.PasosAgente {
+        @Override
+        public Caso tomar(Agente agente) {
+            synchronized (GestorCAE.this) {
+                revisarInstantanea(); // Antes de sacar el caso de la cola, que se anota después
+                Caso caso = casoManager.asignarSiguiente(agente);
+                if (caso != null) {
+                    anotar(OP_TOMAR_CASO_AGENTE, datos -> {
+                        escribirTexto(datos, agente.getNombre());
+                        datos.writeInt(caso.getId());
+                    });
+                }
+                return caso;
+            }
+        }
+
+        @Override
+        public void finalizar(Agente agente) {
+            finalizarCasoDeAgente(agente);
+        }
+
+        @Override
+        public void devolver(Agente agente) throws ColaLlenaException {
+            synchronized (GestorCAE.this) {
+                revisarInstantanea();
+                anotar(OP_DEVOLVER_AGENTE, datos -> escribirTexto(datos, agente.getNombre()));
+                casoManager.devolverCasoDeAgente(agente);
+            }
+        }
+    }
+
+    /**
+     * Repite un paso de un agente leído del diario
+     */
+    private void aplicarPasoDeAgente(byte operacion, DataInputStream datos) throws IOException {
+        Agente agente = casoManager.buscarAgente(leerTexto(datos));
+        if (agente == null) throw new IllegalStateException("El diario menciona un agente no registrado.");
+        PasosRegistrados pasos = new PasosRegistrados();
+        switch (operacion) {
+            case OP_TOMAR_CASO_AGENTE -> {
+                Caso caso = pasos.tomar(agente);
+                if (caso == null || caso.getId() != datos.readInt()) {
+                    throw new IllegalStateException("El diario no coincide con la cola de espera.");
                 }
             }
+            case OP_FINALIZAR_AGENTE -> pasos.finalizar(agente);
+            default -> {
+                try {
+                    pasos.devolver(agente);
+                } catch (ColaLlenaException e) {
+                    mostrar(e.getMessage());
+                }
+            }
+        }
+    }
 
-            System.out.println("→ Caso guardado en archivo: " + nombreArchivo);
+    /**
+     * Guarda un caso recién finalizado en el archivo de tickets antes de que salga de memoria
+     * Al recuperar, el ticket normalmente ya está guardado; solo falta si la caída fue justo antes
+     */
+    private void archivarFinalizado(Caso caso) {
+        if (!reproduciendo || !archivoTickets().contiene(caso.getId())) guardarCasoEnArchivo(caso);
+    }
+
+    /**
+     * Guarda el ticket del caso en el archivo de tickets, con el mismo texto que tenía el ticket_N.txt
+     * @param caso Caso a guardar
+     */
+    private void guardarCasoEnArchivo(Caso caso) {
+        archivoTickets().guardar(caso.getId(), textoDelTicket(caso).getBytes(StandardCharsets.UTF_8));
+        mostrar("→ Caso guardado en el archivo de tickets: #" + caso.getId());
+    }
+
+    private static String textoDelTicket(Caso caso) {
+        StringWriter texto = new StringWriter();
+        PrintWriter writer = new PrintWriter(texto);
+        writer.println("Ticket #" + caso.getId());
+        writer.println("Estudiante: " + caso.getEstudiante());
+        writer.println("Estado final: " + caso.getEstado());
+        writer.println("Urgente: " + (caso.isUrgente() ? "Sí" : "No"));
+        writer.println("Notas:");
+
+        if (caso.getNotas().estaVacia()) {
+            writer.println("  Sin notas registradas.");
+        } else {
+            int[] numero = {0};
+            caso.streamNotas().forEach(nota -> writer.println("  " + (++numero[0]) + ". " + nota));
+        }
+        writer.flush();
+        return texto.toString();
+    }
+
+    /**
+     * Escribe el ticket guardado en el archivo de tickets como ticket_N.txt en la carpeta actual
+     * @param id ID del ticket finalizado
+     */
+    public void exportarTicket(int id) {
+        byte[] texto = archivoTickets().leer(id);
+        if (texto == null) {
+            mostrar("El ticket #" + id + " no está en el archivo de tickets.");
+            return;
+        }
+        String nombreArchivo = "ticket_" + id + ".txt";
+        try {
+            Files.write(Path.of(nombreArchivo), texto);
+            mostrar("→ Ticket exportado a: " + nombreArchivo);
         } catch (IOException e) {
-            System.out.println("Error al guardar el caso en archivo: " + e.getMessage());
+            mostrar("Error al exportar el ticket: " + e.getMessage());
         }
     }
 
+    /**
+     * Abre el archivo de tickets la primera vez que se necesita
+     */
+    private ArchivoSegmentado archivoTickets() {
+        if (archivoTickets == null) archivoTickets = new ArchivoSegmentado(carpetaTickets);
+        return archivoTickets;
+    }
+
     /**
      * Muestra todos los casos que han sido finalizados.
+     * Los archivados se leen del archivo de tickets al mostrarlos, hasta MAXIMO_TICKETS_LISTADOS
      */
     public void mostrarCasosFinalizados() {
-        List<Caso> finalizados = casoManager.getCasosFinalizados();
-        if (finalizados.isEmpty()) {
-            System.out.println("No hay casos finalizados.");
+        Collection<Caso> finalizados = casoManager.getCasosFinalizados(); // Solo los que no se pudieron archivar
+        int[] archivados = archivoTickets().numeros();
+        if (finalizados.isEmpty() && archivados.length == 0) {
+            mostrar("No hay casos finalizados.");
             return;
         }
 
         for (Caso c : finalizados) {
-            System.out.println(c);
-            System.out.println("---------------");
+            mostrar(c.toString());
+            mostrar("---------------");
+        }
+        int soloArchivados = 0;
+        int mostrados = 0;
+        for (int id : archivados) {
+            if (casoManager.buscarCaso(id) != null) continue; // Sigue en memoria
+            soloArchivados++;
+            if (mostrados == MAXIMO_TICKETS_LISTADOS) continue;
+            byte[] texto = archivoTickets().leer(id);
+            if (texto == null) continue;
+            System.out.print(new String(texto, StandardCharsets.UTF_8));
+            mostrar("---------------");
+            mostrados++;
+        }
+        if (soloArchivados > mostrados) {
+            mostrar("... y " + (soloArchivados - mostrados) + " ticket(s) finalizado(s) más en el archivo de tickets.");
         }
     }
 
@@ -205,92 +695,284 @@ public class GestorCAE {
      * @param id ID del ticket a consultar
      */
     public void mostrarHistorialDeTicket(int id) {
-        List<Caso> todos = new ArrayList<>();
-        todos.addAll(casoManager.getCasosFinalizados());
-
-        Caso actual = casoManager.getCasoActual();
-        if (actual != null) todos.add(actual);
-
-        todos.addAll(casoManager.getCasosEnCola());
-        todos.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
-
-        Caso buscado = todos.stream()
-                .filter(c -> c.getId() == id)
-                .findFirst()
-                .orElse(null);
-
+        Caso buscado = casoManager.buscarCaso(id);
         if (buscado == null) {
-            System.out.println("No se encontró ningún ticket con ese ID.");
+            byte[] archivado = archivoTickets().leer(id); // Los finalizados solo están en el archivo
+            if (archivado == null) {
+                mostrar("No se encontró ningún ticket con ese ID.");
+            } else {
+                mostrar("\nTicket #" + id + " (desde el archivo de tickets)");
+                System.out.print(new String(archivado, StandardCharsets.UTF_8));
+            }
             return;
         }
-        System.out.println("\nHistorial del Ticket #" + buscado.getId());
-        System.out.println("Estudiante: " + buscado.getEstudiante());
-        System.out.println("Estado actual: " + buscado.getEstado());
+        mostrar("\nHistorial del Ticket #" + buscado.getId());
+        mostrar("Estudiante: " + buscado.getEstudiante());
+        mostrar("Estado actual: " + buscado.getEstado());
 
         switch (buscado.getEstado()) { // Enseña un mensaje adicional según el estado del ticket
-            case COMPLETADO -> System.out.println("→ Este ticket ya fue FINALIZADO.");
-            case URGENTE -> System.out.println("→ Este ticket está marcado como URGENTE.");
-            case EN_COLA -> System.out.println("→ Este ticket está REGISTRADO y en espera.");
-            case EN_ATENCION -> System.out.println("→ Este ticket está siendo ATENDIDO actualmente.");
+            case COMPLETADO -> mostrar("→ Este ticket ya fue FINALIZADO.");
+            case URGENTE -> mostrar("→ Este ticket está marcado como URGENTE.");
+            case EN_COLA -> mostrar("→ Este ticket está REGISTRADO y en espera.");
+            case EN_ATENCION -> mostrar("→ Este ticket está siendo ATENDIDO actualmente.");
         }
-        System.out.println("Urgente: " + (buscado.isUrgente() ? "Sí" : "No"));
+        mostrar("Urgente: " + (buscado.isUrgente() ? "Sí" : "No"));
 
-        List<String> notas = buscado.obtenerNotas();
-        if (notas.isEmpty()) {
-            System.out.println("Notas: Sin notas registradas.");
+        if (buscado.getNotas().estaVacia()) {
+            mostrar("Notas: Sin notas registradas.");
         } else {
-            System.out.println("Notas:");
-            for (int i = 0; i < notas.size(); i++) {
-                System.out.println("  " + (i + 1) + ". " + notas.get(i));
+            mostrar("Notas:");
+            int[] numero = {0}; // Se imprimen mientras se recorren, sin copiar todas las notas
+            buscado.streamNotas().forEach(nota -> mostrar("  " + (++numero[0]) + ". " + nota));
+        }
+
+        long ultimoCambio = buscado.getUltimoCambioDeEstado();
+        if (ultimoCambio > 0) { // Cómo estaba el ticket justo antes de su último cambio de estado
+            InstanteCaso antes = buscado.comoEstabaEn(ultimoCambio - 1);
+            mostrar("Antes del último cambio de estado (" + antes.getMomento() + "):");
+            mostrar("  Estado: " + antes.getEstado());
+            mostrar("  Notas: " + (antes.getNotas().isEmpty() ? "Sin notas" : String.join(", ", antes.getNotas())));
+        }
+    }
+
+    /**
+     * Reconstruye cómo estaba un ticket después de cierta cantidad de cambios
+     * @param id ID del ticket
+     * @param secuencia Cantidad de cambios, 0 es el inicio de su historia
+     * @return Estado y notas del ticket en ese instante, o null si el ticket no existe
+     */
+    public InstanteCaso consultarTicketEn(int id, long secuencia) {
+        Caso caso = casoManager.buscarCaso(id);
+        return caso == null ? null : caso.comoEstabaEn(secuencia);
+    }
+
+    /**
+     * Reconstruye cómo estaba un ticket en un momento dado
+     * @param id ID del ticket
+     * @param momento Momento consultado
+     * @return Estado y notas del ticket en ese momento, o null si el ticket no existe
+     */
+    public InstanteCaso consultarTicketEn(int id, Instant momento) {
+        Caso caso = casoManager.buscarCaso(id);
+        return caso == null ? null : caso.comoEstabaEn(momento);
+    }
+
+    /**
+     * Muestra los tickets cuyas notas mencionan una palabra o, si termina en '*', alguna palabra con ese inicio
+     * Si se escriben varias palabras, el ticket debe mencionarlas todas
+     * @param consulta Palabra o palabras a buscar, por ejemplo "beca", "matri*" o "beca pendiente"
+     */
+    public void buscarTicketsPorNota(String consulta) {
+        if (consulta == null || consulta.isBlank()) {
+            mostrar("Debe ingresar una palabra para buscar.");
+            return;
+        }
+        String texto = consulta.trim();
+        int[] ids = texto.endsWith("*")
+                ? casoManager.buscarTicketsPorPrefijo(texto.substring(0, texto.length() - 1))
+                : casoManager.buscarTicketsPorTermino(texto);
+        List<String> encontrados = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Caso c = casoManager.buscarCaso(id);
+            if (c != null) {
+                encontrados.add("  #" + c.getId() + " - " + c.getEstudiante() + " (" + c.getEstado() + ")");
+            } else if (archivoTickets().contiene(id)) { // Finalizado: su ticket está en el archivo
+                encontrados.add("  #" + id + " - en el archivo de tickets (" + EstadoCaso.COMPLETADO + ")");
             }
         }
+        if (encontrados.isEmpty()) {
+            mostrar("Ningún ticket menciona \"" + texto + "\".");
+            return;
+        }
+        mostrar("Tickets que mencionan \"" + texto + "\":");
+        for (String linea : encontrados) {
+            mostrar(linea);
+        }
     }
 
     /**
-     * Para borrar los Archivos creados, directamente desde consola
-     * @param id
+     * Para borrar un ticket del archivo de tickets y su exportación, directamente desde consola
+     * @param id ID del ticket
      */
     public void borrarArchivoDeTicket(int id) {
-        String nombreArchivo = "ticket_" + id + ".txt";
-        File archivo = new File(nombreArchivo);
+        boolean archivado = archivoTickets().borrar(id);
+        File exportado = new File("ticket_" + id + ".txt");
+        boolean exportadoBorrado = exportado.exists() && exportado.delete();
 
-        if (archivo.exists()) {
-            if (archivo.delete()) {
-                System.out.println("Archivo " + nombreArchivo + " eliminado correctamente.");
-            } else {
-                System.out.println("No se pudo eliminar el archivo " + nombreArchivo + ".");
-            }
+        if (archivado || exportadoBorrado) {
+            mostrar("Ticket #" + id + " eliminado correctamente.");
         } else {
-            System.out.println("El archivo " + nombreArchivo + " no existe.");
+            mostrar("El ticket #" + id + " no existe en el archivo de tickets.");
         }
     }
 
     /**
-     * Para enseñar como una lista de los archivos .txt que se crearon
+     * Para enseñar una lista de los tickets guardados en el archivo de tickets
      */
     public void mostrarArchivosDeTickets() {
-        File carpeta = new File(".");
-        File[] archivos = carpeta.listFiles((dir, name) -> name.startsWith("ticket_") && name.endsWith(".txt"));
-
-        if (archivos == null || archivos.length == 0) {
-            System.out.println("No se han generado archivos de tickets.");
+        ArchivoSegmentado archivo = archivoTickets();
+        if (archivo.cantidad() == 0) {
+            mostrar("No se han guardado tickets.");
             return;
         }
-        System.out.println("Archivos de tickets generados:");
-        for (File archivo : archivos) {
-            System.out.println("→ " + archivo.getName());
+        mostrar("Tickets guardados: " + archivo.cantidad() + " en " + archivo.getSegmentos() + " segmento(s)");
+        int[] ids = archivo.numeros();
+        int mostrar = Math.min(ids.length, MAXIMO_TICKETS_LISTADOS);
+        for (int i = 0; i < mostrar; i++) {
+            mostrar("→ Ticket #" + ids[i]);
         }
+        if (ids.length > mostrar) mostrar("... y " + (ids.length - mostrar) + " más.");
     }
 
     public Caso getCasoActual() {
         return casoManager.getCasoActual();
     }
 
-    public List<Caso> getCasosFinalizados() {
+    /**
+     * Toma una instantánea si ya pasaron suficientes operaciones desde la anterior
+     * Cada operación del diario la llama al empezar, antes de cambiar nada: así la instantánea nunca
+     * incluye una operación cuyo registro queda en el diario nuevo (tomar un caso o confirmar un grupo
+     * cambian el estado antes de anotarse, y se aplicarían dos veces al recuperar)
+     */
+    private void revisarInstantanea() {
+        if (operacionesDesdeInstantanea >= OPERACIONES_POR_INSTANTANEA) tomarInstantanea();
+    }
+
+    /**
+     * Escribe los datos de una operación en el diario antes de aplicarla
+     * Se llama con el monitor del gestor tomado y la operación se aplica antes de soltarlo, así el orden
+     * del diario es el mismo en que se aplicaron las operaciones aunque lleguen de varios hilos
+     */
+    private void anotar(byte operacion, EscritorDatos escritor) {
+        if (accionesGrupo != null && operacion != OP_AGREGAR_NOTA && operacion != OP_ELIMINAR_NOTA
+                && operacion != OP_CAMBIAR_ESTADO) {
+            throw new IllegalStateException("En un grupo solo se pueden agregar o eliminar notas y cambiar el estado.");
+        }
+        if (diario == null || reproduciendo) return;
+        if (accionesGrupo == null) operacionesDesdeInstantanea++;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream datos = new DataOutputStream(bytes);
+        try {
+            datos.writeByte(operacion | CON_MOMENTO);
+            datos.writeLong(System.currentTimeMillis());
+            escritor.escribir(datos);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // No ocurre al escribir en memoria
+        }
+        if (accionesGrupo != null) { // Se escribe al confirmar el grupo, con su longitud delante
+            registrosGrupo.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.size()).array());
+            registrosGrupo.writeBytes(bytes.toByteArray());
+            cantidadRegistrosGrupo++;
+            return;
+        }
+        diario.registrar(bytes.toByteArray());
+    }
+
+    /**
+     * Guarda la acción en el historial o, si hay un grupo abierto, en el grupo
+     */
+    private void registrarAccion(Accion accion) {
+        if (accionesGrupo != null) {
+            accionesGrupo.add(accion);
+        } else {
+            historial.registrar(accion);
+        }
+    }
+
+    /**
+     * Vuelve a ejecutar una operación leída del diario
+     * Los cambios quedan en la bitácora de cada caso con la hora guardada en el registro; los registros
+     * anteriores a guardarla usan la hora de la recuperación
+     */
+    private void aplicar(byte[] registro) {
+        DataInputStream datos = new DataInputStream(new ByteArrayInputStream(registro));
+        try {
+            int operacion = datos.readUnsignedByte();
+            BitacoraCaso.fijarMomento((operacion & CON_MOMENTO) != 0 ? Long.valueOf(datos.readLong()) : null);
+            switch ((byte) (operacion & ~CON_MOMENTO)) {
+                case OP_RECIBIR -> recibirCaso(leerTexto(datos), datos.readBoolean());
+                case OP_RECIBIR_LOTE -> {
+                    int cantidad = datos.readInt();
+                    List<SolicitudCaso> solicitudes = new ArrayList<>(cantidad);
+                    for (int i = 0; i < cantidad; i++) {
+                        solicitudes.add(new SolicitudCaso(leerTexto(datos), datos.readBoolean()));
+                    }
+                    recibirCasos(solicitudes);
+                }
+                case OP_ATENDER -> atenderSiguienteCaso();
+                case OP_AGREGAR_NOTA -> agregarNota(leerTexto(datos));
+                case OP_ELIMINAR_NOTA -> eliminarNotaPorIndice(datos.readInt());
+                case OP_CAMBIAR_ESTADO -> cambiarEstado(EstadoCaso.values()[datos.readByte()]);
+                case OP_DESHACER -> deshacer();
+                case OP_REHACER -> rehacer();
+                case OP_FINALIZAR -> finalizarCaso();
+                case OP_REGISTRAR_AGENTE -> registrarAgente(leerTexto(datos));
+                case OP_DESPACHAR_AGENTES -> despacharAgentes();
+                case OP_TOMAR_CASO_AGENTE -> aplicarPasoDeAgente(OP_TOMAR_CASO_AGENTE, datos);
+                case OP_FINALIZAR_AGENTE -> aplicarPasoDeAgente(OP_FINALIZAR_AGENTE, datos);
+                case OP_DEVOLVER_AGENTE -> aplicarPasoDeAgente(OP_DEVOLVER_AGENTE, datos);
+                case OP_NOTA_DE_AGENTE -> agregarNotaDeAgente(datos.readInt(), leerTexto(datos));
+                case OP_GRUPO -> {
+                    int cantidad = datos.readInt();
+                    if (!iniciarGrupo()) throw new IllegalStateException("El diario tiene un grupo sin caso en atención.");
+                    for (int i = 0; i < cantidad; i++) {
+                        byte[] paso = new byte[datos.readInt()];
+                        datos.readFully(paso);
+                        aplicar(paso);
+                    }
+                    confirmarGrupo();
+                }
+                default -> throw new IllegalStateException("Operación desconocida en el diario.");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Registro del diario incompleto.", e);
+        }
+    }
+
+    /**
+     * Texto con su longitud en UTF-8, admite null y textos de cualquier largo
+     */
+    private static void escribirTexto(DataOutputStream datos, String texto) throws IOException {
+        if (texto == null) {
+            datos.writeInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        datos.writeInt(bytes.length);
+        datos.write(bytes);
+    }
+
+    private static String leerTexto(DataInputStream datos) throws IOException {
+        int longitud = datos.readInt();
+        if (longitud < 0) return null;
+        byte[] bytes = new byte[longitud];
+        datos.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe los datos propios de una operación del diario
+     */
+    private interface EscritorDatos {
+        void escribir(DataOutputStream datos) throws IOException;
+    }
+
+    /**
+     * Los finalizados que se guardaron en el archivo de tickets ya no están aquí: ver getTicketsArchivados
+     * @return Casos finalizados que siguen en memoria
+     */
+    public Collection<Caso> getCasosFinalizados() {
         return casoManager.getCasosFinalizados();
     }
 
-    public List<Caso> getCasosEnCola() {
+    /**
+     * @return IDs de los tickets guardados en el archivo de tickets, en orden
+     */
+    public int[] getTicketsArchivados() {
+        return archivoTickets().numeros();
+    }
+
+    public Collection<Caso> getCasosEnCola() {
         return casoManager.getCasosEnCola();
     }
 
@@ -304,31 +986,14 @@ public class GestorCAE {
                 writer.println(c.getId() + ";" + c.getEstudiante() + ";" + c.getEstado() + ";" + c.isUrgente());
             }
         } catch (IOException e) {
-            System.out.println("Error al guardar tickets pendientes: " + e.getMessage());
+            mostrar("Error al guardar tickets pendientes: " + e.getMessage());
         }
     }
 
     /**
-    public void cargarCasosPendientes() {
-        File archivo = new File("tickets_en_proceso.txt");
-        if (!archivo.exists()) return;
-
-        try (Scanner scanner = new Scanner(archivo)) {
-            while (scanner.hasNextLine()) {
-                String[] partes = scanner.nextLine().split(";");
-                int id = Integer.parseInt(partes[0]);
-                String nombre = partes[1];
-                EstadoCaso estado = EstadoCaso.valueOf(partes[2]);
-                boolean urgente = Boolean.parseBoolean(partes[3]);
-
-                Caso caso = new Caso(id, nombre, urgente);
-                caso.setEstado(estado);
-                casoManager.agregarCasoManual(caso);
-            }
-        } catch (Exception e) {
-            System.out.println("Error al cargar tickets pendientes: " + e.getMessage());
-        }
-    }
+     * Muestra un mensaje, salvo mientras se reproduce el diario
      */
-
-}
\ No newline at end of file
+    private void mostrar(String mensaje) {
+        if (!reproduciendo) System.out.println(mensaje);
+    }
+}
@@ -1,109 +1,335 @@
 package edu.unl.cc.service;
 
+import edu.unl.cc.estructuras.MapaEnteros;
 import edu.unl.cc.estructuras.PilaAcciones;
 import edu.unl.cc.modelo.Accion;
 import edu.unl.cc.modelo.Caso;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 /**
  * Esta clase se encarga de registrar y gestionar el historial de acciones
- * realizadas sobre el caso actual
+ * realizadas sobre los casos
+ * Cada caso tiene sus propias pilas de deshacer y rehacer, guardadas en un mapa por ID de caso, así
+ * deshacer en un caso nunca descarta acciones de otro y cuesta O(1) sin importar cuántos casos haya abiertos.
+ * Cuando un caso se finaliza su historial se descarta.
+ * Las pilas pueden tener capacidad limitada: las acciones más antiguas se descartan o, si se indica una
+ * carpeta, se guardan en un archivo por caso que solo se lee si se deshace hasta llegar a ellas.
+ * Cada historial crea su propia subcarpeta temporal dentro de esa carpeta, así dos programas que usan
+ * la misma carpeta no comparten ni se borran los archivos; cerrar elimina la subcarpeta.
+ * Las acciones sobre notas se deshacen con el nodo guardado en la acción, así se quita o restaura
+ * exactamente esa nota aunque otra tenga el mismo texto. Las acciones que vuelven del archivo de derrame
+ * o de una instantánea ya no tienen el nodo, pero sí el número de secuencia de la nota, que se conserva
+ * al reconstruir el caso: con él se ubica la misma nota y se restaura en su posición
+ * Varias acciones pueden registrarse como un grupo: deshacer y rehacer las tratan como un solo paso
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class HistorialAcciones {
 
+    /**
+     * Pilas de deshacer y rehacer de un caso
+     */
+    private static final class PilasCaso {
+        final PilaAcciones deshacer;
+        final PilaAcciones rehacer;
+
+        PilasCaso(PilaAcciones deshacer, PilaAcciones rehacer) {
+            this.deshacer = deshacer;
+            this.rehacer = rehacer;
+        }
+    }
+
     // Atributos
-    private final PilaAcciones pilaUndo = new PilaAcciones(); // Pila para deshacer acciones
-    private final PilaAcciones pilaRedo = new PilaAcciones(); // Pila para rehacer acciones
-    private final CasoManager casoManager;                    // Referencia al gestor de casos
+    private final MapaEnteros<PilasCaso> historiales = new MapaEnteros<>(); // ID del caso -> sus pilas
+    private final CasoManager casoManager;                                  // Referencia al gestor de casos
+    private final int capacidadPorPila;                                     // 0 = sin límite
+    private final Path carpetaDerrame;                                      // Subcarpeta propia, null = descartar las antiguas
 
     // Constructor
     public HistorialAcciones(CasoManager casoManager) {
+        this(casoManager, 0, null);
+    }
+
+    /**
+     * Crea un historial cuyas pilas guardan como máximo cierta cantidad de acciones en memoria
+     * @param casoManager Gestor de casos
+     * @param capacidadPorPila Máximo de acciones en memoria por pila, 0 para no limitar
+     * @param carpetaDerrame Carpeta donde crear la subcarpeta para las acciones que no caben, o null para descartarlas
+     */
+    public HistorialAcciones(CasoManager casoManager, int capacidadPorPila, Path carpetaDerrame) {
+        if (capacidadPorPila < 0) throw new IllegalArgumentException("La capacidad no puede ser negativa.");
         this.casoManager = casoManager;
+        this.capacidadPorPila = capacidadPorPila;
+        if (carpetaDerrame == null || capacidadPorPila == 0) {
+            this.carpetaDerrame = null;
+            return;
+        }
+        try {
+            Files.createDirectories(carpetaDerrame);
+            this.carpetaDerrame = Files.createTempDirectory(carpetaDerrame, "historial_");
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear la carpeta del historial en " + carpetaDerrame, e);
+        }
     }
 
     /**
-     * Registra una nueva acción en la pila de deshacer y limpia la pila de rehacer
-     * @param accion Acción realizada sobre el caso actual
+     * Descarta el historial de todos los casos y borra la subcarpeta de archivos de derrame
+     */
+    public void cerrar() {
+        synchronized (historiales) {
+            historiales.recorrer((casoId, pilas) -> {
+                pilas.deshacer.cerrar();
+                pilas.rehacer.cerrar();
+            });
+            historiales.limpiar();
+        }
+        if (carpetaDerrame == null) return;
+        try {
+            Files.deleteIfExists(carpetaDerrame);
+        } catch (IOException e) {
+            mostrar("No se pudo borrar la carpeta del historial: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registra una nueva acción en la pila de deshacer de su caso y limpia la pila de rehacer de ese caso
+     * @param accion Acción realizada sobre un caso
      */
     public void registrar(Accion accion) {
-        pilaUndo.registrar(accion);
-        pilaRedo.limpiar();
+        PilasCaso pilas = pilasDe(accion.getCasoId());
+        pilas.deshacer.registrar(accion);
+        pilas.rehacer.limpiar();
+    }
+
+    /**
+     * Descarta el historial de un caso, por ejemplo cuando se finaliza
+     * @param casoId ID del caso
+     */
+    public void olvidar(int casoId) {
+        PilasCaso pilas = historiales.eliminar(casoId);
+        if (pilas != null) {
+            pilas.deshacer.cerrar();
+            pilas.rehacer.cerrar();
+        }
+    }
+
+    /**
+     * Copia las acciones que se pueden deshacer en un caso, por ejemplo para guardarlas en una instantánea
+     * @param casoId ID del caso
+     * @return Acciones de la más antigua a la más reciente, vacía si el caso no tiene historial
+     */
+    public List<Accion> accionesParaDeshacer(int casoId) {
+        PilasCaso pilas = historiales.obtener(casoId);
+        return pilas == null ? List.of() : pilas.deshacer.acciones();
+    }
+
+    /**
+     * Copia las acciones que se pueden rehacer en un caso
+     * @param casoId ID del caso
+     * @return Acciones en el orden de su pila, vacía si el caso no tiene historial
+     */
+    public List<Accion> accionesParaRehacer(int casoId) {
+        PilasCaso pilas = historiales.obtener(casoId);
+        return pilas == null ? List.of() : pilas.rehacer.acciones();
+    }
+
+    /**
+     * Vuelve a cargar el historial de un caso copiado con accionesParaDeshacer y accionesParaRehacer
+     * Las acciones restauradas no tienen el nodo de su nota: sus notas se ubican por su secuencia
+     * @param casoId ID del caso, que todavía no debe tener historial
+     * @param deshacer Acciones para deshacer
+     * @param rehacer Acciones para rehacer
+     */
+    public void restaurar(int casoId, List<Accion> deshacer, List<Accion> rehacer) {
+        if (deshacer.isEmpty() && rehacer.isEmpty()) return;
+        PilasCaso pilas = pilasDe(casoId);
+        pilas.deshacer.restaurar(deshacer);
+        pilas.rehacer.restaurar(rehacer);
+    }
+
+    /**
+     * Registra varias acciones de un mismo caso como un solo paso: se deshacen y rehacen juntas
+     * Limpia la pila de rehacer del caso una sola vez
+     * @param grupo Acciones en el orden en que se realizaron
+     */
+    public void registrarGrupo(List<Accion> grupo) {
+        if (grupo.isEmpty()) return;
+        int casoId = grupo.get(0).getCasoId();
+        for (Accion accion : grupo) {
+            if (accion.getCasoId() != casoId) {
+                throw new IllegalArgumentException("Las acciones de un grupo deben ser del mismo caso.");
+            }
+        }
+        PilasCaso pilas = pilasDe(casoId);
+        pilas.deshacer.registrarGrupo(grupo);
+        pilas.rehacer.limpiar();
+    }
+
+    /**
+     * Deshace acciones ya aplicadas que todavía no se registraron, por ejemplo un grupo cancelado
+     * @param caso Caso de las acciones
+     * @param acciones Acciones en el orden en que se realizaron
+     */
+    public void revertir(Caso caso, List<Accion> acciones) {
+        for (int i = acciones.size() - 1; i >= 0; i--) {
+            deshacerEn(caso, acciones.get(i), false);
+        }
     }
 
     /**
-     * Deshace la última acción realizada sobre el caso actual
+     * Deshace la última acción (o el último grupo de acciones) realizada sobre el caso actual
      * @return La acción que fue deshecha o si no null si no se pudo deshacer
      */
     public Accion deshacer() {
-        Accion accion = pilaUndo.deshacer();
-        Caso caso = casoManager.getCasoActual();
+        return deshacer(casoManager.getCasoActual());
+    }
 
-        if (accion == null) {
-            System.out.println("No hay acciones para deshacer.");
+    /**
+     * Deshace la última acción realizada sobre un caso; si era parte de un grupo, se deshace todo el grupo
+     * @param caso Caso cuya última acción se deshace, por ejemplo el que atiende un agente
+     * @return La acción más reciente que fue deshecha o si no null si no se pudo deshacer
+     */
+    public Accion deshacer(Caso caso) {
+        if (caso == null) {
+            mostrar("No hay caso en atención.");
             return null;
         }
-
-        if (caso == null || accion.getCasoId() != caso.getId()) {
-            System.out.println("La acción no corresponde al caso actual.");
+        PilasCaso pilas = historiales.obtener(caso.getId());
+        List<Accion> grupo = pilas == null ? List.of() : pilas.deshacer.deshacerGrupo();
+        if (grupo.isEmpty()) {
+            mostrar("No hay acciones para deshacer.");
             return null;
         }
-        pilaRedo.registrar(accion);
+        pilas.rehacer.registrarGrupo(grupo); // Queda en orden inverso: rehacer saca primero la más antigua
 
-        switch (accion.getTipo()) {
-            case AGREGAR_NOTA -> {
-                caso.eliminarNota(accion.getDato());
-                System.out.println("Deshacer: se eliminó la nota → " + accion.getDato());
-            }
-            case ELIMINAR_NOTA -> {
-                caso.agregarNota(accion.getDato());
-                System.out.println("Deshacer: se restauró la nota → " + accion.getDato());
-            }
-            case CAMBIO_ESTADO -> {
-                caso.cambiarEstado(accion.getEstadoAnterior());
-                System.out.println("Deshacer: estado restaurado a → " + accion.getEstadoAnterior());
-            }
+        boolean suelta = grupo.size() == 1;
+        for (Accion accion : grupo) {
+            deshacerEn(caso, accion, suelta);
         }
-
-        return accion;
+        if (!suelta) mostrar("Deshacer: se revirtió un grupo de " + grupo.size() + " acciones.");
+        return grupo.get(0);
     }
 
     /**
-     * Rehace la última acción que fue deshecha previamente
+     * Rehace la última acción que fue deshecha previamente en el caso actual
      * @return La acción que fue rehecha o si no null si no se pudo rehacer
      */
     public Accion rehacer() {
-        Accion accion = pilaRedo.deshacer();
-        Caso caso = casoManager.getCasoActual();
+        return rehacer(casoManager.getCasoActual());
+    }
 
-        if (accion == null) {
-            System.out.println("No hay acciones para rehacer.");
+    /**
+     * Rehace la última acción (o grupo de acciones) que fue deshecha previamente en un caso
+     * @param caso Caso cuya acción se rehace
+     * @return La última acción que fue rehecha o si no null si no se pudo rehacer
+     */
+    public Accion rehacer(Caso caso) {
+        if (caso == null) {
+            mostrar("No hay caso en atención.");
             return null;
         }
-
-        if (caso == null || accion.getCasoId() != caso.getId()) {
-            System.out.println("La acción no corresponde al caso actual.");
+        PilasCaso pilas = historiales.obtener(caso.getId());
+        List<Accion> grupo = pilas == null ? List.of() : pilas.rehacer.deshacerGrupo();
+        if (grupo.isEmpty()) {
+            mostrar("No hay acciones para rehacer.");
             return null;
         }
+        pilas.deshacer.registrarGrupo(grupo);
 
-        pilaUndo.registrar(accion);
+        boolean suelta = grupo.size() == 1;
+        for (Accion accion : grupo) {
+            rehacerEn(caso, accion, suelta);
+        }
+        if (!suelta) mostrar("Rehacer: se aplicó de nuevo un grupo de " + grupo.size() + " acciones.");
+        return grupo.get(grupo.size() - 1);
+    }
 
+    private void deshacerEn(Caso caso, Accion accion, boolean mostrar) {
         switch (accion.getTipo()) {
             case AGREGAR_NOTA -> {
-                caso.agregarNota(accion.getDato());
-                System.out.println("Rehacer: se agregó la nota → " + accion.getDato());
+                quitarNota(caso, accion);
+                if (mostrar) mostrar("Deshacer: se eliminó la nota → " + accion.getDato());
             }
             case ELIMINAR_NOTA -> {
-                caso.eliminarNota(accion.getDato());
-                System.out.println("Rehacer: se eliminó la nota → " + accion.getDato());
+                restaurarNota(caso, accion);
+                if (mostrar) mostrar("Deshacer: se restauró la nota → " + accion.getDato());
+            }
+            case CAMBIO_ESTADO -> {
+                caso.cambiarEstado(accion.getEstadoAnterior());
+                if (mostrar) mostrar("Deshacer: estado restaurado a → " + accion.getEstadoAnterior());
+            }
+        }
+    }
+
+    private void rehacerEn(Caso caso, Accion accion, boolean mostrar) {
+        switch (accion.getTipo()) {
+            case AGREGAR_NOTA -> {
+                restaurarNota(caso, accion);
+                if (mostrar) mostrar("Rehacer: se agregó la nota → " + accion.getDato());
+            }
+            case ELIMINAR_NOTA -> {
+                quitarNota(caso, accion);
+                if (mostrar) mostrar("Rehacer: se eliminó la nota → " + accion.getDato());
             }
             case CAMBIO_ESTADO -> {
                 caso.cambiarEstado(accion.getEstadoNuevo());
-                System.out.println("Rehacer: estado cambiado a → " + accion.getEstadoNuevo());
+                if (mostrar) mostrar("Rehacer: estado cambiado a → " + accion.getEstadoNuevo());
+            }
+        }
+    }
+
+    /**
+     * Devuelve las pilas del caso y las crea si es su primera acción
+     */
+    private PilasCaso pilasDe(int casoId) {
+        synchronized (historiales) { // Buscar y crear en un solo paso
+            PilasCaso pilas = historiales.obtener(casoId);
+            if (pilas == null) {
+                pilas = new PilasCaso(crearPila(casoId, "deshacer"), crearPila(casoId, "rehacer"));
+                historiales.poner(casoId, pilas);
             }
+            return pilas;
         }
+    }
+
+    private PilaAcciones crearPila(int casoId, String nombre) {
+        if (capacidadPorPila == 0) return new PilaAcciones();
+        if (carpetaDerrame == null) return PilaAcciones.descartandoAntiguas(capacidadPorPila);
+        return PilaAcciones.derramandoA(capacidadPorPila, carpetaDerrame.resolve("caso_" + casoId + "_" + nombre + ".bin"));
+    }
+
+    /**
+     * Quita la nota de la acción: por su nodo en O(1), por su secuencia si el nodo no es del caso (el caso
+     * se reconstruyó o la acción se leyó de disco) o, si la acción solo guarda texto, por coincidencia
+     */
+    private static void quitarNota(Caso caso, Accion accion) {
+        if (accion.getNota() != null && caso.eliminarNota(accion.getNota())) return;
+        if (accion.getSecuencia() > 0) {
+            caso.eliminarNotaPorSecuencia(accion.getSecuencia());
+        } else {
+            caso.eliminarNota(accion.getDato());
+        }
+    }
+
+    /**
+     * Vuelve a poner la nota de la acción en su posición: con su nodo o, si ya no se tiene, con su secuencia
+     * Solo una acción que guarda únicamente el texto pone la nota al inicio
+     */
+    private static void restaurarNota(Caso caso, Accion accion) {
+        if (accion.getNota() != null && caso.restaurarNota(accion.getNota())) return;
+        if (accion.getSecuencia() > 0) {
+            caso.agregarNota(accion.getDato(), accion.getSecuencia());
+        } else if (accion.getNota() == null) {
+            caso.agregarNota(accion.getDato());
+        }
+    }
 
-        return accion;
+    private void mostrar(String mensaje) {
+        if (!casoManager.isSilencioso()) System.out.println(mensaje);
     }
-}
\ No newline at end of file
+}
@@ -5,6 +5,8 @@ package edu.unl.cc.service;
  * @version 1.1
  */
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Scanner;
 import edu.unl.cc.exception.NombreInvalidoException;
 import edu.unl.cc.modelo.EstadoCaso;
@@ -13,6 +15,11 @@ public class Main {
     public static void main(String[] args) {
         GestorCAE gestor = new GestorCAE();
         // gestor.cargarCasosPendientes();
+        // Se recupera lo registrado antes de una caída; cada operación se confirma después de llegar a disco
+        int recuperadas = gestor.activarDiario(Path.of("datos_cae"), Duration.ofMillis(5), true);
+        if (recuperadas > 0) {
+            System.out.println("Se recuperaron " + recuperadas + " operaciones del diario.");
+        }
         Scanner scanner = new Scanner(System.in);
         MenuCAE menu = new MenuCAE(gestor, scanner);
         int opcion;
@@ -26,6 +33,8 @@ public class Main {
             System.out.println("5. Finalizar caso actual");
             System.out.println("6. Mostrar historial");
             //System.out.println("7. (OPCION ADICIONAL)Borrar archivo de ticket finalizado");
+            System.out.println("8. Buscar tickets por palabra en las notas");
+            System.out.println("9. Exportar ticket finalizado a archivo de texto");
             System.out.println("0. Salir");
             System.out.print("Seleccione una opción: ");
 
@@ -43,12 +52,16 @@ public class Main {
                 case 5 -> gestor.finalizarCaso();
                 case 6 -> menu.mostrarHistorialTickets();
                 //case 7 -> menu.borrarArchivoTicket();
+                case 8 -> menu.buscarTicketsPorNota();
+                case 9 -> menu.exportarTicket();
                 case 0 -> System.out.println("GRACIAS: Saliendo del sistema...");
                 default -> System.out.println("Opción inválida.");
             }
 
         } while (opcion != 0);
 
+        gestor.tomarInstantanea(); // El próximo inicio carga la instantánea en lugar de todo el diario
+        gestor.cerrar();
         scanner.close();
     }
 }
\ No newline at end of file
@@ -6,14 +6,16 @@ import edu.unl.cc.modelo.EstadoCaso;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.TreeMap;
 
 /**
  * Esta clase representa el menú de interacción con el usuario
  * Permite recibir nuevos casos, cambiar estados, gestionar notas y consultar el historial de tickets registrados
  *
  * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
- * @version 1.1
+ * @version 1.2
  */
 public class MenuCAE {
 
@@ -107,17 +109,24 @@ public class MenuCAE {
 
         todos.addAll(gestor.getCasosEnCola());
 
-        if (todos.isEmpty()) {
+        Map<Integer, EstadoCaso> tickets = new TreeMap<>(); // Ordenados por ID
+        for (int id : gestor.getTicketsArchivados()) {
+            tickets.put(id, EstadoCaso.COMPLETADO); // Finalizados: se leen del archivo al consultarlos
+        }
+        for (Caso c : todos) {
+            tickets.put(c.getId(), c.getEstado());
+        }
+
+        if (tickets.isEmpty()) {
             System.out.println("No hay tickets registrados.");
             return;
         }
-        todos.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
 
         boolean seguirConsultando = true;
         while (seguirConsultando) {
             System.out.println("\nTickets disponibles:");
-            for (Caso c : todos) {
-                System.out.println("→ Ticket #" + c.getId() + " (" + c.getEstado() + ")");
+            for (Map.Entry<Integer, EstadoCaso> ticket : tickets.entrySet()) {
+                System.out.println("→ Ticket #" + ticket.getKey() + " (" + ticket.getValue() + ")");
             }
             System.out.print("Ingrese el ID del ticket que desea consultar: ");
             String entrada = scanner.nextLine().trim();
@@ -144,6 +153,27 @@ public class MenuCAE {
     }
 
 
+    /**
+     * Pide una palabra y muestra los tickets cuyas notas la mencionan
+     * Si la palabra termina en '*' se buscan todas las palabras que empiezan así
+     */
+    public void buscarTicketsPorNota() {
+        System.out.print("Palabra a buscar (use * al final para buscar por inicio, ej. matri*): ");
+        gestor.buscarTicketsPorNota(scanner.nextLine());
+    }
+
+    /**
+     * Pide el ID de un ticket finalizado y lo exporta a un archivo de texto
+     */
+    public void exportarTicket() {
+        System.out.print("ID del ticket a exportar: ");
+        try {
+            gestor.exportarTicket(Integer.parseInt(scanner.nextLine().trim()));
+        } catch (NumberFormatException e) {
+            System.out.println("Entrada inválida. Debe ingresar un número.");
+        }
+    }
+
     public void menuNotas() {
         if (gestor.getCasoActual() == null) {
             System.out.println("No se pueden gestionar notas porque no hay un caso en atención.");
@@ -158,7 +188,8 @@ public class MenuCAE {
             System.out.println("3 = Mostrar notas actuales");
             System.out.println("4 = Deshacer");
             System.out.println("5 = Rehacer");
-            System.out.println("6 = Salir");
+            System.out.println("6 = Agregar varias notas (se deshacen juntas)");
+            System.out.println("7 = Salir");
 
             System.out.print("Seleccione una opción: ");
             String opcion = scanner.nextLine().trim();
@@ -216,6 +247,9 @@ public class MenuCAE {
                     }
                     break;
                 case "6":
+                    agregarVariasNotas();
+                    break;
+                case "7":
                     System.out.println("Saliendo del módulo de notas...");
                     salir = true;
                     break;
@@ -224,4 +258,19 @@ public class MenuCAE {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Pide notas hasta recibir una línea vacía y las agrega al caso actual como un solo paso
+     */
+    private void agregarVariasNotas() {
+        if (!gestor.iniciarGrupo()) return; // Sin caso en atención no hay dónde agregar las notas
+        System.out.println("Ingrese una nota por línea; deje la línea vacía para terminar.");
+        while (true) {
+            System.out.print("Nota: ");
+            String nota = scanner.nextLine();
+            if (nota.isBlank()) break;
+            gestor.agregarNota(nota);
+        }
+        gestor.confirmarGrupo();
+    }
+}
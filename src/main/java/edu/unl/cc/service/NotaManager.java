@@ -1,7 +1,7 @@
 package edu.unl.cc.service;
 
+import edu.unl.cc.estructuras.Nodo;
 import edu.unl.cc.modelo.Caso;
-import java.util.List;
 
 /**
  * Esta clase se encarga de gestionar las notas del caso que esta atendiendo
@@ -21,30 +21,30 @@ public class NotaManager {
     /**
      * Agrega una nota al caso actual si hay uno en atención
      * @param texto Texto de la nota a agregar
+     * @return Nodo de la nota agregada o null si no se agregó
      */
-    public void agregarNota(String texto) {
+    public Nodo agregarNota(String texto) {
         Caso caso = casoManager.getCasoActual();
         if (caso == null) {
-            System.out.println("No hay caso en atención.");
-            return;
+            mostrar("No hay caso en atención.");
+            return null;
         }
-        caso.agregarNota(texto);
-        System.out.println("Nota agregada.");
+        Nodo nota = caso.agregarNota(texto);
+        if (nota != null) mostrar("Nota agregada.");
+        return nota;
     }
 
     /**
-     * Elimina la nota ubicada en el índice indicado y devuelve su contenido
+     * Elimina la nota ubicada en el índice indicado y devuelve su nodo
      * @param indice Índice de la nota a eliminar
-     * @return Texto de la nota eliminada, o null si no se pudo eliminar
+     * @return Nodo de la nota eliminada, o null si no se pudo eliminar
      */
-    public String eliminarNotaPorIndice(int indice) {
+    public Nodo eliminarNotaPorIndice(int indice) {
         Caso caso = casoManager.getCasoActual();
         if (caso == null || caso.getNotas().estaVacia()) return null;
+        if (indice < 0 || indice >= caso.getNotas().tamanio()) return null;
 
-        List<String> notas = caso.obtenerNotas();
-        if (indice < 0 || indice >= notas.size()) return null;
-
-        return caso.getNotas().eliminarPorIndiceYObtenerTexto(indice);
+        return caso.eliminarNotaPorIndice(indice);
     }
 
     /**
@@ -55,24 +55,24 @@ public class NotaManager {
     public void mostrarNotasActual(boolean paraEliminar) {
         Caso caso = casoManager.getCasoActual();
         if (caso == null) {
-            System.out.println("No hay caso en atención.");
+            mostrar("No hay caso en atención.");
             return;
         }
 
-        List<String> notas = caso.obtenerNotas();
-        if (notas.isEmpty()) {
-            System.out.println("No hay notas registradas.");
+        if (caso.getNotas().estaVacia()) {
+            mostrar("No hay notas registradas.");
             return;
         }
 
-        System.out.println("Notas del caso actual:");
-        for (int i = 0; i < notas.size(); i++) {
-            String prefijo = paraEliminar ? (i + 1) + ". " : "- ";
-            System.out.println(prefijo + notas.get(i));
-        }
+        mostrar("Notas del caso actual:");
+        int[] numero = {0}; // Las notas se imprimen a medida que se recorren, sin copiarlas
+        caso.streamNotas().forEach(nota -> {
+            String prefijo = paraEliminar ? (++numero[0]) + ". " : "- ";
+            mostrar(prefijo + nota);
+        });
 
         if (paraEliminar) {
-            System.out.println("0. Cancelar");
+            mostrar("0. Cancelar");
         }
     }
 
@@ -84,4 +84,8 @@ public class NotaManager {
         Caso caso = casoManager.getCasoActual();
         return caso == null || caso.getNotas().estaVacia();
     }
-}
\ No newline at end of file
+
+    private void mostrar(String mensaje) {
+        if (!casoManager.isSilencioso()) System.out.println(mensaje);
+    }
+}
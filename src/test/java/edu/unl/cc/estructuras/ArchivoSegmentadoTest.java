@@ -0,0 +1,207 @@
+package edu.unl.cc.estructuras;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del archivo segmentado: lecturas, tamaño del índice y recuperación después de una caída
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ArchivoSegmentadoTest {
+
+    private static final long SEGMENTO = 256; // Segmentos pequeños para que haya muchos
+
+    @TempDir
+    Path carpeta;
+
+    @Test
+    public void coincideConUnaReferenciaAlGuardarBorrarYReabrir() {
+        Random azar = new Random(17);
+        Map<Integer, String> referencia = new HashMap<>();
+        ArchivoSegmentado archivo = new ArchivoSegmentado(carpeta, SEGMENTO);
+        for (int paso = 0; paso < 5_000; paso++) {
+            int numero = azar.nextInt(300);
+            if (azar.nextInt(4) == 0) {
+                assertEquals(referencia.remove(numero) != null, archivo.borrar(numero));
+            } else {
+                String texto = "registro " + numero + " paso " + paso;
+                archivo.guardar(numero, bytes(texto));
+                referencia.put(numero, texto);
+            }
+            if (paso % 1_000 == 999) {
+                archivo.cerrar();
+                archivo = new ArchivoSegmentado(carpeta, SEGMENTO);
+            }
+            int consultado = azar.nextInt(300);
+            assertEquals(referencia.get(consultado), texto(archivo.leer(consultado)));
+        }
+        assertEquals(referencia.size(), archivo.cantidad());
+        for (int numero : archivo.numeros()) {
+            assertEquals(referencia.get(numero), texto(archivo.leer(numero)));
+        }
+        assertTrue(archivo.getSegmentos() > 100);
+        archivo.cerrar();
+    }
+
+    @Test
+    public void elIndiceNoCreceAlReemplazarOBorrar() throws IOException {
+        ArchivoSegmentado archivo = new ArchivoSegmentado(carpeta, SEGMENTO);
+        for (int vuelta = 0; vuelta < 100; vuelta++) {
+            for (int numero = 0; numero < 10; numero++) {
+                archivo.guardar(numero, bytes("vuelta " + vuelta));
+            }
+            archivo.borrar(vuelta % 10);
+        }
+        archivo.cerrar();
+        assertEquals(10 * 16, Files.size(carpeta.resolve("ubicaciones.dat")));
+    }
+
+    @Test
+    public void unRegistroQueNoLlegoAlIndiceSeRecuperaYUnoAMediasSeRecorta() throws IOException {
+        ArchivoSegmentado archivo = new ArchivoSegmentado(carpeta);
+        archivo.guardar(1, bytes("uno"));
+        archivo.cerrar();
+
+        Path segmento = carpeta.resolve("segmento_0.dat");
+        agregarRegistro(segmento, 2, bytes("dos"));
+        long tamanioValido = Files.size(segmento);
+        Files.write(segmento, new byte[] {0, 0, 0, 3, 0, 0, 0, 50, 1, 2}, StandardOpenOption.APPEND);
+
+        archivo = new ArchivoSegmentado(carpeta);
+        assertEquals("uno", texto(archivo.leer(1)));
+        assertEquals("dos", texto(archivo.leer(2)));
+        assertFalse(archivo.contiene(3));
+        assertEquals(tamanioValido, Files.size(segmento));
+        archivo.guardar(3, bytes("tres"));
+        assertEquals("tres", texto(archivo.leer(3)));
+        archivo.cerrar();
+    }
+
+    @Test
+    public void unaRanuraSinLosDatosDeSuSegmentoSeDescarta() throws IOException {
+        ArchivoSegmentado archivo = new ArchivoSegmentado(carpeta);
+        archivo.guardar(1, bytes("uno"));
+        long fin = Files.size(carpeta.resolve("segmento_0.dat"));
+        archivo.guardar(2, bytes("dos, que se pierde"));
+        archivo.cerrar();
+
+        // Simula una caída en la que la ranura llegó a disco pero los datos del segmento no
+        try (FileChannel segmento = FileChannel.open(carpeta.resolve("segmento_0.dat"), StandardOpenOption.WRITE)) {
+            segmento.truncate(fin);
+        }
+        archivo = new ArchivoSegmentado(carpeta);
+        assertFalse(archivo.contiene(2));
+        assertNull(archivo.leer(2));
+        assertEquals("uno", texto(archivo.leer(1)));
+
+        // Aunque el segmento vuelva a crecer, la ranura descartada no reaparece
+        archivo.guardar(3, bytes("tres, más largo que el perdido"));
+        archivo.cerrar();
+        archivo = new ArchivoSegmentado(carpeta);
+        assertFalse(archivo.contiene(2));
+        assertEquals("tres, más largo que el perdido", texto(archivo.leer(3)));
+        assertEquals(2, archivo.cantidad());
+        archivo.cerrar();
+    }
+
+    @Test
+    public void unRegistroBorradoAlFinalDelSegmentoNoSeRecupera() {
+        ArchivoSegmentado archivo = new ArchivoSegmentado(carpeta);
+        archivo.guardar(1, bytes("uno"));
+        archivo.guardar(2, bytes("dos"));
+        archivo.borrar(2);
+        archivo.cerrar();
+
+        archivo = new ArchivoSegmentado(carpeta);
+        assertFalse(archivo.contiene(2));
+        assertArrayEquals(new int[] {1}, archivo.numeros());
+        archivo.cerrar();
+    }
+
+    @Test
+    public void seLeeElSegmentoActualMientrasCreceYLosCerrados() {
+        ArchivoSegmentado archivo = new ArchivoSegmentado(carpeta, SEGMENTO);
+        for (int numero = 0; numero < 200; numero++) {
+            archivo.guardar(numero, bytes("registro " + numero));
+            assertEquals("registro " + numero, texto(archivo.leer(numero)));
+            assertEquals("registro " + numero / 2, texto(archivo.leer(numero / 2)));
+        }
+        assertTrue(archivo.getSegmentos() > 1);
+        archivo.cerrar();
+    }
+
+    @Test
+    public void elIndiceDelFormatoAnteriorSeMigra() throws IOException {
+        Path segmento = carpeta.resolve("segmento_0.dat");
+        Files.createDirectories(carpeta);
+        Files.createFile(segmento);
+        long uno = agregarRegistro(segmento, 1, bytes("uno"));
+        long dos = agregarRegistro(segmento, 2, bytes("dos"));
+        long otro = agregarRegistro(segmento, 1, bytes("uno, reemplazado"));
+        try (FileChannel indice = FileChannel.open(carpeta.resolve("indice.dat"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            escribirRegistroAnterior(indice, 1, uno, 3);
+            escribirRegistroAnterior(indice, 2, dos, 3);
+            escribirRegistroAnterior(indice, 1, otro, 16);
+            escribirRegistroAnterior(indice, 2, 0, -1); // Borrado
+        }
+
+        ArchivoSegmentado archivo = new ArchivoSegmentado(carpeta);
+        assertFalse(Files.exists(carpeta.resolve("indice.dat")));
+        assertEquals("uno, reemplazado", texto(archivo.leer(1)));
+        assertFalse(archivo.contiene(2));
+        archivo.cerrar();
+
+        archivo = new ArchivoSegmentado(carpeta);
+        assertArrayEquals(new int[] {1}, archivo.numeros());
+        archivo.cerrar();
+    }
+
+    /**
+     * Agrega un registro al segmento como lo haría guardar, sin pasar por el índice
+     * @return Desplazamiento de los datos
+     */
+    private static long agregarRegistro(Path segmento, int numero, byte[] datos) throws IOException {
+        long inicio = Files.size(segmento);
+        ByteBuffer registro = ByteBuffer.allocate(2 * Integer.BYTES + datos.length);
+        registro.putInt(numero).putInt(datos.length).put(datos);
+        Files.write(segmento, registro.array(), StandardOpenOption.APPEND);
+        return inicio + 2 * Integer.BYTES;
+    }
+
+    private static void escribirRegistroAnterior(FileChannel indice, int numero, long desplazamiento, int longitud)
+            throws IOException {
+        ByteBuffer registro = ByteBuffer.allocate(3 * Integer.BYTES + Long.BYTES);
+        registro.putInt(numero).putInt(0).putLong(desplazamiento).putInt(longitud).flip();
+        while (registro.hasRemaining()) {
+            indice.write(registro);
+        }
+    }
+
+    private static byte[] bytes(String texto) {
+        return texto.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String texto(byte[] datos) {
+        return datos == null ? null : new String(datos, StandardCharsets.UTF_8);
+    }
+}
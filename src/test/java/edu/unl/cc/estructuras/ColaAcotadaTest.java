@@ -0,0 +1,191 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.exception.ColaLlenaException;
+import edu.unl.cc.modelo.Caso;
+import edu.unl.cc.modelo.EstadoCaso;
+import edu.unl.cc.modelo.InstantaneaCasos.CasoGuardado;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la cola con capacidad limitada, en especial del derrame a disco
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ColaAcotadaTest {
+
+    @TempDir
+    Path carpeta;
+
+    private final MapaEnteros<Caso> casos = new MapaEnteros<>(); // Hace de índice del gestor
+    private int siguienteId = 1;
+    private ColaAcotada cola;
+
+    @BeforeEach
+    public void crearCola() {
+        cola = ColaAcotada.derramandoA(new ColasFragmentadas(1), 3, carpeta.resolve("derrame.bin"));
+        cola.setRegistroCasos(new ColaAcotada.RegistroCasos() {
+            @Override
+            public void derramado(Caso caso) {
+                casos.eliminar(caso.getId());
+            }
+
+            @Override
+            public Caso reconstruir(CasoGuardado guardado) {
+                Caso caso = new Caso(guardado.getId(), guardado.getEstudiante(), guardado.isUrgente());
+                caso.cambiarEstado(guardado.getEstado());
+                for (int i = guardado.getNotas().size() - 1; i >= 0; i--) {
+                    caso.agregarNota(guardado.getNotas().get(i));
+                }
+                caso.restaurarHistoria(guardado.getBitacora());
+                return caso;
+            }
+
+            @Override
+            public void recuperado(Caso caso) {
+                casos.poner(caso.getId(), caso);
+            }
+        });
+    }
+
+    @Test
+    public void losCasosDerramadosSalenDeMemoriaYVuelvenConSusDatos() throws ColaLlenaException {
+        List<Caso> recibidos = recibir(6, false);
+        assertEquals(3, cola.getDerramados());
+        assertEquals(6, cola.tamanio());
+        assertEquals(3, casos.tamanio()); // El gestor soltó los derramados
+        assertFalse(casos.contiene(recibidos.get(4).getId()));
+
+        for (Caso esperado : recibidos) {
+            Caso atendido = cola.atender();
+            assertEquals(describir(esperado), describir(atendido));
+            assertEquals(esperado.getCantidadCambios(), atendido.getCantidadCambios());
+            assertEquals(atendido, casos.obtener(atendido.getId()));
+        }
+        assertNull(cola.atender());
+        assertTrue(cola.estaVacia());
+        assertEquals(6, casos.tamanio());
+    }
+
+    @Test
+    public void unCasoDerramadoSeConsultaComoCopia() throws ColaLlenaException {
+        List<Caso> recibidos = recibir(5, false);
+        Caso enDisco = recibidos.get(4);
+        Caso copia = cola.buscarDerramado(enDisco.getId());
+        assertNotSame(enDisco, copia);
+        assertEquals(describir(enDisco), describir(copia));
+        assertNull(cola.buscarDerramado(recibidos.get(0).getId())); // Está en memoria
+    }
+
+    @Test
+    public void elRecorridoIncluyeLosCasosEnDisco() throws ColaLlenaException {
+        List<Caso> recibidos = recibir(5, false);
+        List<String> recorridos = new ArrayList<>();
+        cola.forEach(caso -> recorridos.add(describir(caso)));
+        assertEquals(describir(recibidos), recorridos);
+        assertEquals(describir(recibidos), describir(cola.getTodos()));
+    }
+
+    @Test
+    public void cerrarBorraLosArchivosDeDerrame() throws ColaLlenaException {
+        recibir(5, true);
+        cola.cerrar();
+        assertFalse(carpeta.resolve("derrame.bin").toFile().exists());
+        assertFalse(carpeta.resolve("derrame.bin.urgentes").toFile().exists());
+    }
+
+    @Test
+    public void unUrgenteNoEsperaDetrasDeLosNormalesDerramados() throws ColaLlenaException {
+        List<Caso> normales = recibir(6, false);
+        Caso urgente = recibir(1, true).get(0);
+        assertEquals(4, cola.getDerramados());
+
+        assertEquals(urgente.getId(), cola.atender().getId()); // Sale del disco antes que los normales en memoria
+        for (Caso normal : normales) {
+            assertEquals(normal.getId(), cola.atender().getId());
+        }
+    }
+
+    @Test
+    public void losUrgentesDerramadosSeRecuperanAntesQueLosNormales() throws ColaLlenaException {
+        List<Caso> urgentesEnMemoria = recibir(3, true);
+        List<Caso> normales = recibir(2, false);
+        List<Caso> urgentesEnDisco = recibir(2, true);
+
+        List<Caso> esperado = new ArrayList<>(urgentesEnMemoria);
+        esperado.addAll(urgentesEnDisco);
+        esperado.addAll(normales);
+        for (Caso caso : esperado) {
+            assertEquals(caso.getId(), cola.atender().getId());
+        }
+    }
+
+    @Test
+    public void sinRegistroNoSePuedeDerramar() throws ColaLlenaException {
+        ColaAcotada sinRegistro = ColaAcotada.derramandoA(new ColasFragmentadas(1), 1, carpeta.resolve("otro.bin"));
+        sinRegistro.agregar(new Caso(1, "Ana", false));
+        assertThrows(ColaLlenaException.class, () -> sinRegistro.agregar(new Caso(2, "Luis", false)));
+        sinRegistro.cerrar();
+    }
+
+    @Test
+    public void rechazandoNoAdmiteMasQueLaCapacidad() throws ColaLlenaException {
+        ColaAcotada limitada = ColaAcotada.rechazando(new ColasFragmentadas(1), 2);
+        limitada.agregarTodos(List.of(new Caso(1, "Ana", false), new Caso(2, "Luis", false)));
+        assertThrows(ColaLlenaException.class, () -> limitada.agregar(new Caso(3, "Eva", false)));
+        limitada.atender();
+        limitada.agregar(new Caso(3, "Eva", false));
+        assertEquals(2, limitada.tamanio());
+    }
+
+    @Test
+    public void unCasoQueLaColaInternaRechazaDevuelveSuEspacio() throws ColaLlenaException {
+        ColaAcotada interna = ColaAcotada.rechazando(new ColasFragmentadas(1), 2);
+        ColaAcotada limitada = ColaAcotada.rechazando(interna, 2);
+        interna.agregar(new Caso(1, "Ana", false)); // Ocupa la interna sin pasar por la externa
+        limitada.agregar(new Caso(2, "Luis", false));
+        assertThrows(ColaLlenaException.class, () -> limitada.agregar(new Caso(3, "Eva", false)));
+        interna.atender();
+        limitada.agregar(new Caso(4, "Rosa", false)); // Quedó el espacio del caso rechazado
+        assertEquals(2, limitada.tamanio());
+    }
+
+    private List<Caso> recibir(int cantidad, boolean urgente) throws ColaLlenaException {
+        List<Caso> recibidos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            Caso caso = new Caso(siguienteId++, "Estudiante", urgente);
+            if (urgente) caso.cambiarEstado(EstadoCaso.URGENTE);
+            caso.agregarNota("Nota del caso " + caso.getId());
+            casos.poner(caso.getId(), caso);
+            cola.agregar(caso);
+            recibidos.add(caso);
+        }
+        return recibidos;
+    }
+
+    private static String describir(Caso caso) {
+        return caso.getId() + " " + caso.getEstudiante() + " " + caso.isUrgente() + " " + caso.getEstado() + " "
+                + caso.obtenerNotas();
+    }
+
+    private static List<String> describir(List<Caso> casos) {
+        List<String> descripcion = new ArrayList<>();
+        for (Caso caso : casos) {
+            descripcion.add(describir(caso));
+        }
+        return descripcion;
+    }
+}
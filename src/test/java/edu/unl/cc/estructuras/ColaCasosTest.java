@@ -0,0 +1,155 @@
+package edu.unl.cc.estructuras;
+
+import edu.unl.cc.modelo.Caso;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la cola sin bloqueos ColaCasos
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ColaCasosTest {
+
+    private static final int PRODUCTORES = 4;
+    private static final int CONSUMIDORES = 4;
+    private static final int CASOS_POR_PRODUCTOR = 50_000;
+
+    @Test
+    public void atiendeEnOrdenDeLlegada() {
+        ColaCasos cola = new ColaCasos();
+        cola.agregar(new Caso(1, "Ana", false));
+        cola.agregarTodos(List.of(new Caso(2, "Luis", false), new Caso(3, "Eva", true)));
+        cola.agregar(new Caso(4, "Juan", false));
+
+        assertEquals(4, cola.tamanio());
+        assertEquals(List.of(1, 2, 3, 4), cola.getTodos().stream().map(Caso::getId).collect(Collectors.toList()));
+        for (int id = 1; id <= 4; id++) {
+            assertEquals(id, cola.atender().getId());
+        }
+        assertNull(cola.atender());
+        assertTrue(cola.estaVacia());
+    }
+
+    @Test
+    public void variosProductoresYConsumidoresNoPierdenNiDuplicanCasos() throws InterruptedException {
+        ColaCasos cola = new ColaCasos();
+        int total = PRODUCTORES * CASOS_POR_PRODUCTOR;
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger atendidos = new AtomicInteger();
+        List<List<Integer>> porConsumidor = new ArrayList<>();
+        List<Thread> hilos = new ArrayList<>();
+
+        for (int p = 0; p < PRODUCTORES; p++) {
+            int base = p * CASOS_POR_PRODUCTOR;
+            hilos.add(new Thread(() -> {
+                esperar(salida);
+                for (int i = 0; i < CASOS_POR_PRODUCTOR; i++) {
+                    int id = base + i;
+                    // Se alternan agregados sueltos y en lote para probar los dos caminos
+                    if (i % 10 == 0 && i + 3 <= CASOS_POR_PRODUCTOR) {
+                        cola.agregarTodos(List.of(new Caso(id, "E", false),
+                                new Caso(id + 1, "E", false), new Caso(id + 2, "E", false)));
+                        i += 2;
+                    } else {
+                        cola.agregar(new Caso(id, "E", false));
+                    }
+                }
+            }));
+        }
+        for (int c = 0; c < CONSUMIDORES; c++) {
+            List<Integer> recibidos = new ArrayList<>();
+            porConsumidor.add(recibidos);
+            hilos.add(new Thread(() -> {
+                esperar(salida);
+                while (atendidos.get() < total) {
+                    Caso caso = cola.atender();
+                    if (caso == null) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    recibidos.add(caso.getId());
+                    atendidos.incrementAndGet();
+                }
+            }));
+        }
+
+        hilos.forEach(Thread::start);
+        salida.countDown();
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+
+        int[] esperados = new int[total];
+        Arrays.setAll(esperados, i -> i);
+        int[] obtenidos = porConsumidor.stream().flatMap(List::stream).mapToInt(Integer::intValue).sorted().toArray();
+        assertArrayEquals(esperados, obtenidos);
+        assertTrue(cola.estaVacia());
+        assertEquals(0, cola.tamanio());
+    }
+
+    @Test
+    public void cadaProductorConservaSuOrden() throws InterruptedException {
+        ColaCasos cola = new ColaCasos();
+        List<Thread> productores = new ArrayList<>();
+        for (int p = 0; p < PRODUCTORES; p++) {
+            int base = p * CASOS_POR_PRODUCTOR;
+            productores.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < CASOS_POR_PRODUCTOR; i++) {
+                    cola.agregar(new Caso(base + i, "E", false));
+                }
+            }));
+        }
+        for (Thread productor : productores) {
+            productor.join();
+        }
+
+        int[] ultimoPorProductor = new int[PRODUCTORES];
+        Arrays.fill(ultimoPorProductor, -1);
+        Caso caso;
+        while ((caso = cola.atender()) != null) {
+            int productor = caso.getId() / CASOS_POR_PRODUCTOR;
+            assertTrue(caso.getId() > ultimoPorProductor[productor], "Caso fuera de orden: " + caso.getId());
+            ultimoPorProductor[productor] = caso.getId();
+        }
+        for (int p = 0; p < PRODUCTORES; p++) {
+            assertEquals((p + 1) * CASOS_POR_PRODUCTOR - 1, ultimoPorProductor[p]);
+        }
+    }
+
+    @Test
+    public void elSpliteratorNoPrometeUnTamanioFijo() {
+        ColaCasos cola = new ColaCasos();
+        cola.agregar(new Caso(1, "Ana", false));
+        Spliterator<Caso> partes = cola.spliterator();
+        cola.agregar(new Caso(2, "Luis", false)); // Cambio después de crear el spliterator
+
+        assertFalse(partes.hasCharacteristics(Spliterator.SIZED));
+        assertTrue(partes.hasCharacteristics(Spliterator.ORDERED | Spliterator.CONCURRENT));
+        assertEquals(-1, partes.getExactSizeIfKnown());
+        assertEquals(1, StreamSupport.stream(partes, false).findFirst().map(Caso::getId).orElse(-1));
+    }
+
+    private static void esperar(CountDownLatch salida) {
+        try {
+            salida.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package edu.unl.cc.estructuras;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Pruebas del diario de escritura anticipada: reproducción, recorte de registros a medias y errores
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class DiarioAccionesTest {
+
+    @TempDir
+    Path carpeta;
+
+    @Test
+    public void reproduceLosRegistrosEnOrden() {
+        Path ruta = carpeta.resolve("diario.log");
+        escribir(ruta, 100, true);
+
+        List<String> leidos = leer(ruta);
+        assertEquals(100, leidos.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("registro " + i, leidos.get(i));
+        }
+    }
+
+    @Test
+    public void unRegistroEscritoAMediasSeDescartaYElArchivoSeRecorta() throws IOException {
+        Path ruta = carpeta.resolve("diario.log");
+        escribir(ruta, 10, false);
+        long tamanioValido = Files.size(ruta);
+
+        // Simula una caída en medio de un registro: encabezado completo y solo parte de los datos
+        try (RandomAccessFile archivo = new RandomAccessFile(ruta.toFile(), "rw")) {
+            archivo.seek(tamanioValido);
+            archivo.writeInt(50);
+            archivo.writeLong(12345L);
+            archivo.write(new byte[20]);
+        }
+
+        assertEquals(10, leer(ruta).size());
+        assertEquals(tamanioValido, Files.size(ruta));
+    }
+
+    @Test
+    public void unEncabezadoIncompletoSeDescarta() throws IOException {
+        Path ruta = carpeta.resolve("diario.log");
+        escribir(ruta, 3, false);
+        long tamanioValido = Files.size(ruta);
+        Files.write(ruta, new byte[] {0, 0, 0}, StandardOpenOption.APPEND);
+
+        assertEquals(3, leer(ruta).size());
+        assertEquals(tamanioValido, Files.size(ruta));
+    }
+
+    @Test
+    public void unRegistroConCrcIncorrectoCortaLaReproduccion() throws IOException {
+        Path ruta = carpeta.resolve("diario.log");
+        escribir(ruta, 5, false);
+        long tamanio = Files.size(ruta);
+        try (RandomAccessFile archivo = new RandomAccessFile(ruta.toFile(), "rw")) {
+            archivo.seek(tamanio - 1); // Último byte del último registro
+            int ultimo = archivo.read();
+            archivo.seek(tamanio - 1);
+            archivo.write(ultimo ^ 0xFF);
+        }
+
+        assertEquals(4, leer(ruta).size());
+        assertTrue(Files.size(ruta) < tamanio);
+    }
+
+    @Test
+    public void seSiguenAgregandoRegistrosDespuesDeRecortar() throws IOException {
+        Path ruta = carpeta.resolve("diario.log");
+        escribir(ruta, 2, false);
+        Files.write(ruta, new byte[] {1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        assertEquals(2, leer(ruta).size());
+
+        DiarioAcciones diario = new DiarioAcciones(ruta, Duration.ofMillis(1), true);
+        diario.registrar("nuevo".getBytes(StandardCharsets.UTF_8));
+        diario.cerrar();
+        assertEquals(List.of("registro 0", "registro 1", "nuevo"), leer(ruta));
+    }
+
+    @Test
+    public void trasUnErrorDeEscrituraNoSeAceptanMasRegistros() {
+        Path lleno = Path.of("/dev/full"); // Toda escritura falla por falta de espacio
+        assumeTrue(Files.isWritable(lleno), "Solo en sistemas con /dev/full");
+
+        DiarioAcciones diario = new DiarioAcciones(lleno, Duration.ZERO, false);
+        diario.registrar(new byte[] {1}); // Sin esperar a disco, el error todavía no se conoce
+        assertTrue(!diario.sincronizar(Duration.ofSeconds(5)));
+        assertThrows(UncheckedIOException.class, () -> diario.registrar(new byte[] {2}));
+        diario.cerrar();
+    }
+
+    private static void escribir(Path ruta, int cantidad, boolean esperarDisco) {
+        DiarioAcciones diario = new DiarioAcciones(ruta, Duration.ofMillis(1), esperarDisco);
+        for (int i = 0; i < cantidad; i++) {
+            diario.registrar(("registro " + i).getBytes(StandardCharsets.UTF_8));
+        }
+        diario.cerrar();
+    }
+
+    private static List<String> leer(Path ruta) {
+        List<String> leidos = new ArrayList<>();
+        DiarioAcciones.reproducir(ruta, registro -> leidos.add(new String(registro, StandardCharsets.UTF_8)));
+        return leidos;
+    }
+}
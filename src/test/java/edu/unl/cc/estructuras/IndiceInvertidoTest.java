@@ -0,0 +1,62 @@
+package edu.unl.cc.estructuras;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Pruebas del índice invertido de las notas
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class IndiceInvertidoTest {
+
+    private IndiceInvertido indice;
+
+    @BeforeEach
+    public void crearIndice() {
+        indice = new IndiceInvertido();
+        indice.agregar(1, "Beca pendiente de aprobación");
+        indice.agregar(2, "Matrícula pendiente");
+        indice.agregar(2, "Revisar beca");
+        indice.agregar(3, "BECA aprobada, beca renovada");
+        indice.agregar(4, "Pendiente");
+    }
+
+    @Test
+    public void unaPalabraSinImportarMayusculasNiTildes() {
+        assertArrayEquals(new int[] {3, 1, 2}, indice.buscar("béca"));
+        assertArrayEquals(new int[] {2}, indice.buscar("MATRICULA"));
+        assertArrayEquals(new int[0], indice.buscar("inexistente"));
+        assertArrayEquals(new int[0], indice.buscar("  ,. "));
+    }
+
+    @Test
+    public void variasPalabrasDevuelvenLosCasosQueLasMencionanTodas() {
+        // El caso 2 las tiene en notas distintas; el 3 no menciona "pendiente" y el 4 no menciona "beca"
+        assertArrayEquals(new int[] {1, 2}, indice.buscar("beca pendiente"));
+        assertArrayEquals(new int[] {1, 2}, indice.buscar("pendiente, BECA"));
+        assertArrayEquals(new int[0], indice.buscar("beca inexistente"));
+        assertArrayEquals(indice.buscar("beca"), indice.buscar("beca beca"));
+    }
+
+    @Test
+    public void prefijoConVariasPalabras() {
+        assertArrayEquals(new int[] {1, 3}, indice.buscarPrefijo("apro"));
+        assertArrayEquals(new int[] {1}, indice.buscarPrefijo("pendiente apro"));
+        assertArrayEquals(new int[] {1, 2}, indice.buscarPrefijo("pendiente be"));
+    }
+
+    @Test
+    public void eliminarQuitaLasPalabrasDeLaNota() {
+        indice.eliminar(2, "Revisar beca");
+        assertArrayEquals(new int[] {1}, indice.buscar("beca pendiente"));
+        indice.eliminar(4, "Pendiente");
+        indice.eliminar(2, "Matrícula pendiente");
+        assertArrayEquals(new int[] {1}, indice.buscar("pendiente"));
+        assertEquals(0, indice.buscar("matricula").length);
+    }
+}
@@ -0,0 +1,241 @@
+package edu.unl.cc.estructuras;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la lista de notas: índice posicional con árbol de Fenwick, lápidas y paginación
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class ListaNotasTest {
+
+    @Test
+    public void coincideConUnaListaDeReferenciaEnOperacionesAleatorias() {
+        Random azar = new Random(7);
+        ListaNotas lista = new ListaNotas();
+        List<Nodo> referencia = new ArrayList<>(); // Posición 0 = más reciente
+        for (int paso = 0; paso < 20_000; paso++) {
+            int operacion = referencia.isEmpty() ? 0 : azar.nextInt(4);
+            switch (operacion) {
+                case 0 -> {
+                    Nodo nodo = new Nodo("nota " + paso);
+                    lista.insertar(nodo);
+                    referencia.add(0, nodo);
+                }
+                case 1 -> {
+                    int indice = azar.nextInt(referencia.size());
+                    assertSame(referencia.remove(indice), lista.eliminarPorIndice(indice));
+                }
+                case 2 -> {
+                    Nodo nodo = referencia.remove(azar.nextInt(referencia.size()));
+                    assertTrue(lista.eliminar(nodo));
+                    assertFalse(lista.eliminar(nodo));
+                }
+                default -> {
+                    int indice = azar.nextInt(referencia.size());
+                    assertEquals(referencia.get(indice).getDato(), lista.obtener(indice));
+                    assertEquals(indice, lista.indiceDe(referencia.get(indice)));
+                }
+            }
+            assertEquals(referencia.size(), lista.tamanio());
+        }
+        assertEquals(textos(referencia), lista.stream(false).collect(Collectors.toList()));
+        assertNull(lista.obtener(referencia.size()));
+        assertNull(lista.eliminarPorIndice(-1));
+    }
+
+    @Test
+    public void restaurarDevuelveLaNotaASuPosicion() {
+        ListaNotas lista = new ListaNotas();
+        List<Nodo> nodos = insertar(lista, 10);
+
+        Nodo quitado = lista.eliminarPorIndice(4); // "nota 5"
+        assertEquals("nota 5", quitado.getDato());
+        assertEquals(-1, lista.indiceDe(quitado));
+        lista.eliminar(nodos.get(7));
+
+        assertTrue(lista.restaurar(quitado));
+        assertFalse(lista.restaurar(quitado));
+        assertEquals(3, lista.indiceDe(quitado)); // La nota 7 ya no está, así que queda una posición antes
+        assertEquals(List.of("nota 9", "nota 8", "nota 6", "nota 5", "nota 4", "nota 3", "nota 2", "nota 1", "nota 0"),
+                lista.stream(false).collect(Collectors.toList()));
+        assertSame(nodos.get(9), lista.getPrincipal());
+    }
+
+    @Test
+    public void restaurarLaNotaMasRecienteOLaMasAntiguaActualizaLosExtremos() {
+        ListaNotas lista = new ListaNotas();
+        List<Nodo> nodos = insertar(lista, 3);
+        Nodo reciente = lista.eliminarPorIndice(0);
+        Nodo antigua = lista.eliminarPorIndice(1);
+
+        lista.restaurar(antigua);
+        lista.restaurar(reciente);
+        assertSame(nodos.get(2), lista.getPrincipal());
+        assertEquals(List.of("nota 0", "nota 1", "nota 2"), lista.stream(true).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void unaLapidaCompactadaVuelveASuLugarPorSuSecuencia() {
+        ListaNotas lista = new ListaNotas();
+        insertar(lista, 8); // Llena las ranuras iniciales
+        List<Nodo> quitados = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            quitados.add(lista.eliminarPorIndice(0));
+        }
+        lista.insertar(new Nodo("nueva")); // Más de la mitad son lápidas: se compacta en vez de crecer
+
+        Nodo quitado = quitados.get(0); // "nota 7"
+        assertTrue(lista.restaurar(quitado));
+        assertEquals(1, lista.indiceDe(quitado));
+        assertEquals(List.of("nueva", "nota 7", "nota 1", "nota 0"), lista.stream(false).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void unaNotaVuelveASuLugarPorSuSecuenciaEnUnaListaReconstruida() {
+        ListaNotas original = new ListaNotas();
+        insertar(original, 40);
+        Random azar = new Random(13);
+        List<Nodo> quitados = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            quitados.add(original.eliminarPorIndice(azar.nextInt(original.tamanio())));
+        }
+
+        // Se reconstruye como al leer un caso de disco: de la más antigua a la más reciente, con sus secuencias
+        List<Nodo> vivos = new ArrayList<>();
+        for (Nodo nodo = original.getPrincipal(); nodo != null; nodo = nodo.getSiguiente()) {
+            vivos.add(0, nodo);
+        }
+        ListaNotas reconstruida = new ListaNotas();
+        for (Nodo nodo : vivos) {
+            assertTrue(reconstruida.insertar(new Nodo(nodo.getDato()), nodo.getSecuencia()));
+        }
+        reconstruida.reservarSecuencias(original.getUltimaSecuencia());
+
+        Collections.shuffle(quitados, azar);
+        for (Nodo quitado : quitados) {
+            assertNull(reconstruida.buscarPorSecuencia(quitado.getSecuencia()));
+            assertTrue(reconstruida.insertar(new Nodo(quitado.getDato()), quitado.getSecuencia()));
+            assertEquals(quitado.getDato(), reconstruida.buscarPorSecuencia(quitado.getSecuencia()).getDato());
+        }
+        assertEquals(textosDesde(39, 0), reconstruida.stream(false).collect(Collectors.toList()));
+        assertEquals(textosDesde(0, 39), leerPaginas(reconstruida, 7, true));
+        for (int i = 0; i < 40; i++) {
+            assertEquals("nota " + (39 - i), reconstruida.obtener(i));
+        }
+        assertFalse(reconstruida.insertar(new Nodo("repetida"), quitados.get(0).getSecuencia()));
+
+        Nodo nueva = new Nodo("nueva");
+        reconstruida.insertar(nueva);
+        assertEquals(41, nueva.getSecuencia());
+        assertSame(nueva, reconstruida.buscarPorSecuencia(41));
+    }
+
+    @Test
+    public void unNodoDeOtraListaNoSeEliminaAqui() {
+        ListaNotas una = new ListaNotas();
+        ListaNotas otra = new ListaNotas();
+        Nodo nodo = new Nodo("compartida");
+        una.insertar(nodo);
+        assertFalse(otra.eliminar(nodo));
+        assertEquals(-1, otra.indiceDe(nodo));
+        assertTrue(una.eliminar(nodo));
+
+        otra.insertar(nodo); // Un nodo quitado puede pasar a otra lista
+        assertEquals(0, otra.indiceDe(nodo));
+        assertFalse(una.restaurar(nodo));
+    }
+
+    @Test
+    public void lasPaginasRecorrenTodasLasNotasEnAmbosSentidos() {
+        ListaNotas lista = new ListaNotas();
+        insertar(lista, 25);
+
+        assertEquals(textosDesde(24, 0), leerPaginas(lista, 7, false));
+        assertEquals(textosDesde(0, 24), leerPaginas(lista, 7, true));
+        assertEquals(textosDesde(24, 0), leerPaginas(lista, 100, false));
+    }
+
+    @Test
+    public void elCursorSigueValiendoSiSeEliminaSuNota() {
+        ListaNotas lista = new ListaNotas();
+        insertar(lista, 10);
+
+        PaginaNotas primera = lista.pagina(PaginaNotas.INICIO, 3, false);
+        assertEquals(List.of("nota 9", "nota 8", "nota 7"), primera.getNotas());
+        assertTrue(primera.hayMas());
+        lista.eliminarPrimeraCoincidencia("nota 7"); // La nota del cursor
+        lista.eliminarPrimeraCoincidencia("nota 6");
+        lista.insertar(new Nodo("nota 10")); // Las nuevas quedan antes del cursor
+
+        PaginaNotas segunda = lista.pagina(primera.getCursor(), 3, false);
+        assertEquals(List.of("nota 5", "nota 4", "nota 3"), segunda.getNotas());
+
+        PaginaNotas inversa = lista.pagina(primera.getCursor(), 10, true);
+        assertEquals(List.of("nota 8", "nota 9", "nota 10"), inversa.getNotas());
+        assertFalse(inversa.hayMas());
+    }
+
+    @Test
+    public void lasPaginasSaltanLasLapidas() {
+        ListaNotas lista = new ListaNotas();
+        insertar(lista, 12);
+        for (int indice = 11; indice >= 1; indice -= 2) {
+            lista.eliminarPorIndice(indice); // Quita las notas pares
+        }
+        assertEquals(List.of("nota 11", "nota 9", "nota 7", "nota 5", "nota 3", "nota 1"), leerPaginas(lista, 4, false));
+        assertEquals(List.of("nota 1", "nota 3", "nota 5", "nota 7", "nota 9", "nota 11"), leerPaginas(lista, 4, true));
+    }
+
+    private static List<Nodo> insertar(ListaNotas lista, int cantidad) {
+        List<Nodo> nodos = new ArrayList<>();
+        for (int i = 0; i < cantidad; i++) {
+            Nodo nodo = new Nodo("nota " + i);
+            lista.insertar(nodo);
+            nodos.add(nodo);
+        }
+        return nodos;
+    }
+
+    private static List<String> leerPaginas(ListaNotas lista, int tamanioPagina, boolean inversa) {
+        List<String> leidas = new ArrayList<>();
+        long cursor = PaginaNotas.INICIO;
+        PaginaNotas pagina;
+        do {
+            pagina = lista.pagina(cursor, tamanioPagina, inversa);
+            leidas.addAll(pagina.getNotas());
+            cursor = pagina.getCursor();
+        } while (pagina.hayMas());
+        return leidas;
+    }
+
+    private static List<String> textos(List<Nodo> nodos) {
+        List<String> textos = new ArrayList<>();
+        for (Nodo nodo : nodos) {
+            textos.add(nodo.getDato());
+        }
+        return textos;
+    }
+
+    private static List<String> textosDesde(int desde, int hasta) {
+        List<String> textos = new ArrayList<>();
+        int paso = desde <= hasta ? 1 : -1;
+        for (int i = desde; i != hasta + paso; i += paso) {
+            textos.add("nota " + i);
+        }
+        return textos;
+    }
+}
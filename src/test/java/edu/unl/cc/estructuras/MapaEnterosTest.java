@@ -0,0 +1,113 @@
+package edu.unl.cc.estructuras;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas del mapa de claves enteras, en especial del borrado con desplazamiento hacia atrás
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class MapaEnterosTest {
+
+    @Test
+    public void borrarEnMedioDeUnGrupoNoPierdeLasClavesSiguientes() {
+        // Claves que caen en la misma posición ideal de la tabla inicial (16 posiciones)
+        List<Integer> colisiones = clavesConPosicion(5, 16, 6);
+        MapaEnteros<String> mapa = new MapaEnteros<>();
+        for (int clave : colisiones) {
+            mapa.poner(clave, "v" + clave);
+        }
+
+        assertEquals("v" + colisiones.get(1), mapa.eliminar(colisiones.get(1)));
+        assertEquals("v" + colisiones.get(3), mapa.eliminar(colisiones.get(3)));
+
+        for (int i = 0; i < colisiones.size(); i++) {
+            int clave = colisiones.get(i);
+            if (i == 1 || i == 3) {
+                assertNull(mapa.obtener(clave));
+                assertFalse(mapa.contiene(clave));
+            } else {
+                assertEquals("v" + clave, mapa.obtener(clave));
+            }
+        }
+        assertEquals(4, mapa.tamanio());
+    }
+
+    @Test
+    public void borrarAlFinalDeLaTablaRecorreElGrupoQueDaLaVuelta() {
+        // El grupo empieza en la última posición y continúa en las primeras
+        List<Integer> colisiones = clavesConPosicion(15, 16, 4);
+        int vecina = clavesConPosicion(0, 16, 1).get(0);
+        MapaEnteros<Integer> mapa = new MapaEnteros<>();
+        for (int clave : colisiones) {
+            mapa.poner(clave, clave);
+        }
+        mapa.poner(vecina, vecina);
+
+        mapa.eliminar(colisiones.get(0));
+        for (int i = 1; i < colisiones.size(); i++) {
+            assertEquals(colisiones.get(i), mapa.obtener(colisiones.get(i)));
+        }
+        assertEquals(vecina, mapa.obtener(vecina));
+    }
+
+    @Test
+    public void coincideConHashMapEnOperacionesAleatorias() {
+        Random azar = new Random(42);
+        MapaEnteros<Integer> mapa = new MapaEnteros<>();
+        Map<Integer, Integer> referencia = new HashMap<>();
+        for (int paso = 0; paso < 200_000; paso++) {
+            int clave = azar.nextInt(2_000) - 1_000; // Rango chico para forzar grupos largos y borrados
+            int valor = azar.nextInt();
+            switch (azar.nextInt(3)) {
+                case 0 -> assertEquals(referencia.put(clave, valor), mapa.poner(clave, valor));
+                case 1 -> assertEquals(referencia.remove(clave), mapa.eliminar(clave));
+                default -> assertEquals(referencia.get(clave), mapa.obtener(clave));
+            }
+        }
+        assertEquals(referencia.size(), mapa.tamanio());
+
+        Map<Integer, Integer> recorridas = new HashMap<>();
+        mapa.recorrer(recorridas::put);
+        assertEquals(referencia, recorridas);
+    }
+
+    @Test
+    public void reservarConservaLasEntradas() {
+        MapaEnteros<Integer> mapa = new MapaEnteros<>();
+        for (int i = 0; i < 100; i++) {
+            mapa.poner(i, i * 2);
+        }
+        mapa.reservar(100_000);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 2, mapa.obtener(i));
+        }
+        assertTrue(mapa.contiene(99));
+        mapa.limpiar();
+        assertTrue(mapa.estaVacio());
+    }
+
+    /**
+     * Misma dispersión que MapaEnteros.posicionIdeal, para elegir claves que colisionan
+     */
+    private static List<Integer> clavesConPosicion(int posicion, int capacidad, int cantidad) {
+        List<Integer> claves = new ArrayList<>();
+        for (int clave = 1; claves.size() < cantidad; clave++) {
+            int h = clave * 0x9E3779B9;
+            if (((h ^ (h >>> 16)) & (capacidad - 1)) == posicion) claves.add(clave);
+        }
+        return claves;
+    }
+}
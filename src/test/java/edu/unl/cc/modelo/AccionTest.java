@@ -0,0 +1,71 @@
+package edu.unl.cc.modelo;
+
+import edu.unl.cc.estructuras.Nodo;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Pruebas del formato binario de las acciones
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class AccionTest {
+
+    @Test
+    public void unaNotaDeMasDe64KBSeEscribeYSeLee() throws IOException {
+        String larga = "ñ".repeat(70_000); // 140 000 bytes en UTF-8, más de lo que admite writeUTF
+        Accion leida = releer(new Accion(7, Accion.Tipo.AGREGAR_NOTA, larga));
+        assertEquals(larga, leida.getDato());
+        assertEquals(7, leida.getCasoId());
+        assertEquals(Accion.Tipo.AGREGAR_NOTA, leida.getTipo());
+    }
+
+    @Test
+    public void conservaElCodigoDeUnCambioDeEstado() throws IOException {
+        Accion original = new Accion(3, Accion.Tipo.CAMBIO_ESTADO, EstadoCaso.EN_COLA, EstadoCaso.URGENTE)
+                .unidaALaAnterior(true);
+        Accion leida = releer(original);
+        assertEquals(original.getCodigo(), leida.getCodigo());
+        assertNull(leida.getDato());
+    }
+
+    @Test
+    public void conservaLaSecuenciaDeLaNotaAunqueSeLeaSinNodo() throws IOException {
+        Caso caso = new Caso(9, "Eva", false);
+        caso.agregarNota("Primera");
+        Nodo segunda = caso.agregarNota("Segunda");
+        Accion leida = releer(new Accion(9, Accion.Tipo.ELIMINAR_NOTA, segunda));
+        assertNull(leida.getNota());
+        assertEquals(2, leida.getSecuencia());
+        assertEquals("Segunda", leida.getDato());
+        assertEquals(2, releer(leida.unidaALaAnterior(true)).getSecuencia());
+    }
+
+    @Test
+    public void seLeenLasAccionesDelFormatoAnterior() throws IOException {
+        Accion original = new Accion(5, Accion.Tipo.ELIMINAR_NOTA, "Nota anterior");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream salida = new DataOutputStream(bytes);
+        salida.writeLong(original.getCodigo()); // Texto con writeUTF, sin la marca de longitud
+        salida.writeUTF("Nota anterior");
+
+        Accion leida = Accion.leer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(original.getCodigo(), leida.getCodigo());
+        assertEquals("Nota anterior", leida.getDato());
+    }
+
+    private static Accion releer(Accion accion) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        accion.escribir(new DataOutputStream(bytes));
+        return Accion.leer(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,151 @@
+package edu.unl.cc.modelo;
+
+import edu.unl.cc.estructuras.Nodo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Pruebas de la bitácora de cambios: reconstrucción por secuencia y por momento, y copia para instantáneas
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class BitacoraCasoTest {
+
+    private static final long INICIO = 1_000_000L;
+
+    @AfterEach
+    public void liberarMomento() {
+        BitacoraCaso.fijarMomento(null);
+    }
+
+    @Test
+    public void reconstruyeCadaSecuenciaAtravesandoLosPuntosDeControl() {
+        Caso caso = new Caso(1, "Ana", false);
+        List<InstanteCaso> esperados = aplicarCambiosAleatorios(caso, 500, new Random(3));
+
+        assertEquals(500, caso.getCantidadCambios());
+        for (InstanteCaso esperado : esperados) {
+            comparar(esperado, caso.comoEstabaEn(esperado.getSecuencia()));
+        }
+    }
+
+    @Test
+    public void reconstruyeSegunLaHoraFijadaDeCadaCambio() {
+        Caso caso = new Caso(2, "Luis", false);
+        List<InstanteCaso> esperados = aplicarCambiosAleatorios(caso, 200, new Random(5));
+
+        for (InstanteCaso esperado : esperados) {
+            long momento = INICIO + esperado.getSecuencia() * 10;
+            comparar(esperado, caso.comoEstabaEn(Instant.ofEpochMilli(momento)));
+            comparar(esperado, caso.comoEstabaEn(Instant.ofEpochMilli(momento + 9))); // Antes del siguiente
+        }
+        comparar(esperados.get(0), caso.comoEstabaEn(Instant.ofEpochMilli(0)));
+    }
+
+    @Test
+    public void laBitacoraGuardadaSeRecuperaConSusHorasYPuntos() throws IOException {
+        Caso caso = new Caso(3, "Eva", true);
+        List<InstanteCaso> esperados = aplicarCambiosAleatorios(caso, 300, new Random(11));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        caso.copiaParaInstantanea().getBitacora().escribir(new DataOutputStream(bytes));
+        BitacoraCaso.Guardada leida = BitacoraCaso.Guardada.leer(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        Caso restaurado = new Caso(3, "Eva", true);
+        restaurado.cambiarEstado(caso.getEstado());
+        List<String> notas = caso.obtenerNotas();
+        for (int i = notas.size() - 1; i >= 0; i--) {
+            restaurado.agregarNota(notas.get(i));
+        }
+        restaurado.restaurarHistoria(leida);
+
+        assertEquals(caso.getCantidadCambios(), restaurado.getCantidadCambios());
+        assertEquals(caso.getUltimoCambioDeEstado(), restaurado.getUltimoCambioDeEstado());
+        for (InstanteCaso esperado : esperados) {
+            comparar(esperado, restaurado.comoEstabaEn(esperado.getSecuencia()));
+            comparar(esperado, restaurado.comoEstabaEn(Instant.ofEpochMilli(INICIO + esperado.getSecuencia() * 10)));
+        }
+
+        // La historia sigue desde donde quedó
+        BitacoraCaso.fijarMomento(INICIO + 301 * 10);
+        restaurado.agregarNota("después de reiniciar");
+        InstanteCaso ultimo = restaurado.comoEstabaEn(301);
+        assertEquals("después de reiniciar", ultimo.getNotas().get(0));
+        assertEquals(restaurado.obtenerNotas(), ultimo.getNotas());
+    }
+
+    @Test
+    public void deshacerUnCambioDeEstadoRenuevaLaCopiaParaInstantanea() {
+        Caso caso = new Caso(4, "Rosa", false);
+        caso.agregarNota("Primera");
+        InstantaneaCasos.CasoGuardado antes = caso.copiaParaInstantanea();
+        assertSame(antes, caso.copiaParaInstantanea());
+
+        caso.cambiarEstado(EstadoCaso.EN_PROCESO);
+        caso.cambiarEstado(EstadoCaso.EN_COLA); // Mismo estado y notas, pero dos cambios más
+        InstantaneaCasos.CasoGuardado despues = caso.copiaParaInstantanea();
+        assertNotSame(antes, despues);
+        assertEquals(3, despues.getBitacora().getCantidadCambios());
+    }
+
+    /**
+     * Aplica cambios con la hora INICIO + 10 * secuencia y devuelve el estado esperado tras cada uno
+     */
+    private static List<InstanteCaso> aplicarCambiosAleatorios(Caso caso, int cantidad, Random azar) {
+        EstadoCaso[] estados = EstadoCaso.values();
+        List<InstanteCaso> esperados = new ArrayList<>();
+        esperados.add(instante(caso, 0));
+        List<Nodo> quitadas = new ArrayList<>();
+        int secuencia = 0;
+        while (secuencia < cantidad) {
+            BitacoraCaso.fijarMomento(INICIO + (secuencia + 1) * 10L);
+            long antes = caso.getCantidadCambios();
+            int tamanio = caso.getNotas().tamanio();
+            switch (azar.nextInt(5)) {
+                case 0, 1 -> caso.agregarNota("nota " + secuencia);
+                case 2 -> {
+                    if (tamanio > 0) quitadas.add(caso.eliminarNotaPorIndice(azar.nextInt(tamanio)));
+                }
+                case 3 -> {
+                    if (!quitadas.isEmpty()) caso.restaurarNota(quitadas.remove(quitadas.size() - 1));
+                }
+                default -> caso.cambiarEstado(estados[azar.nextInt(estados.length)]);
+            }
+            if (caso.getCantidadCambios() == antes) continue; // El cambio no se aplicó
+            secuencia++;
+            esperados.add(instante(caso, secuencia));
+        }
+        return esperados;
+    }
+
+    /**
+     * La bitácora se crea con el primer cambio, así que el inicio de la historia tiene la hora de ese cambio
+     */
+    private static InstanteCaso instante(Caso caso, long secuencia) {
+        return new InstanteCaso(caso.getId(), secuencia, Instant.ofEpochMilli(INICIO + Math.max(1, secuencia) * 10),
+                caso.getEstado(), caso.obtenerNotas());
+    }
+
+    private static void comparar(InstanteCaso esperado, InstanteCaso obtenido) {
+        assertEquals(esperado.getSecuencia(), obtenido.getSecuencia());
+        assertEquals(esperado.getMomento(), obtenido.getMomento());
+        assertEquals(esperado.getEstado(), obtenido.getEstado());
+        assertEquals(esperado.getNotas(), obtenido.getNotas());
+    }
+}
@@ -0,0 +1,181 @@
+package edu.unl.cc.service;
+
+import edu.unl.cc.estructuras.ArchivoSegmentado;
+import edu.unl.cc.exception.AtencionAgentesException;
+import edu.unl.cc.modelo.Caso;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pruebas de la recuperación con el diario: al reiniciar se debe llegar al mismo estado
+ *
+ * @author Steeven Pardo, Juan Calopino, Daniel Savedra, Royel Jima
+ * @version 1.2
+ */
+public class GestorCAETest {
+
+    private static final String[] NOMBRES = {"Ana", "Luis", "Eva", "Rosa", "Pablo", "Marta", "Diego", "Lucia"};
+
+    @TempDir
+    Path carpeta;
+
+    @Test
+    public void laRecepcionDesdeVariosHilosSeRecuperaEnElMismoOrden() throws InterruptedException {
+        GestorCAE gestor = new GestorCAE();
+        gestor.activarDiario(carpeta, Duration.ofMillis(1), false);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Thread> hilos = new ArrayList<>();
+        for (int h = 0; h < NOMBRES.length; h++) {
+            String nombre = NOMBRES[h];
+            boolean urgente = h % 3 == 0;
+            hilos.add(Thread.ofPlatform().start(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 200; i++) {
+                    gestor.recibirCaso(nombre, urgente);
+                }
+            }));
+        }
+        salida.countDown();
+        for (Thread hilo : hilos) {
+            hilo.join();
+        }
+        List<String> antes = describir(gestor.getCasosEnCola());
+        gestor.cerrar();
+
+        GestorCAE recuperado = new GestorCAE();
+        assertEquals(NOMBRES.length * 200, recuperado.activarDiario(carpeta, Duration.ofMillis(1), false));
+        assertEquals(antes, describir(recuperado.getCasosEnCola()));
+        recuperado.cerrar();
+    }
+
+    @Test
+    public void unaInstantaneaTomadaMientrasLosAgentesAtiendenSeRecupera() throws AtencionAgentesException {
+        Path tickets = carpeta.resolve("tickets");
+        Path datos = carpeta.resolve("datos");
+        GestorCAE gestor = new GestorCAE(tickets);
+        gestor.activarDiario(datos, Duration.ofMillis(1), false);
+        gestor.registrarAgente("Ventanilla");
+        gestor.registrarAgente("Mostrador");
+        for (int i = 0; i < 4_000; i++) {
+            gestor.recibirCaso(NOMBRES[i % NOMBRES.length], i % 5 == 0);
+        }
+        // Tres operaciones por caso (tomar, nota y finalizar): la instantánea cae en medio de la atención
+        int atendidos = gestor.atenderConAgentes(caso -> gestor.agregarNotaDeAgente(caso.getId(), "Atendido"));
+        assertEquals(4_000, atendidos);
+        for (int i = 0; i < 10; i++) {
+            gestor.recibirCaso("Tarde", false);
+        }
+        gestor.atenderSiguienteCaso();
+        gestor.agregarNota("Nota del caso actual");
+        List<String> antes = describir(gestor.getCasosEnCola());
+        String actual = describir(List.of(gestor.getCasoActual())).get(0);
+        gestor.cerrar();
+
+        GestorCAE recuperado = new GestorCAE(tickets);
+        int recuperadas = recuperado.activarDiario(datos, Duration.ofMillis(1), false);
+        assertTrue(recuperadas < 10_000, "Debió tomarse una instantánea, se reprodujeron " + recuperadas);
+        assertEquals(antes, describir(recuperado.getCasosEnCola()));
+        assertEquals(actual, describir(List.of(recuperado.getCasoActual())).get(0));
+        recuperado.cerrar();
+
+        ArchivoSegmentado archivo = new ArchivoSegmentado(tickets);
+        assertEquals(4_000, archivo.cantidad());
+        for (int numero : archivo.numeros()) {
+            assertTrue(new String(archivo.leer(numero), StandardCharsets.UTF_8).contains("1. Atendido"));
+        }
+        archivo.cerrar();
+    }
+
+    @Test
+    public void deshacerDespuesDeReiniciarDevuelveLaNotaRepetidaASuLugar() {
+        Path tickets = carpeta.resolve("tickets");
+        Path datos = carpeta.resolve("datos");
+        GestorCAE gestor = new GestorCAE(tickets);
+        gestor.activarDiario(datos, Duration.ofMillis(1), false);
+        gestor.recibirCaso("Ana", false);
+        gestor.atenderSiguienteCaso();
+        gestor.agregarNota("Repetida");
+        gestor.agregarNota("Otra");
+        gestor.agregarNota("Repetida");
+        gestor.eliminarNotaPorIndice(2); // La repetida más antigua
+        assertTrue(gestor.tomarInstantanea()); // El historial vuelve de la instantánea, sin nodos
+        gestor.cerrar();
+
+        GestorCAE recuperado = new GestorCAE(tickets);
+        recuperado.activarDiario(datos, Duration.ofMillis(1), false);
+        assertEquals(List.of("Repetida", "Otra"), recuperado.getCasoActual().obtenerNotas());
+        recuperado.deshacer();
+        assertEquals(List.of("Repetida", "Otra", "Repetida"), recuperado.getCasoActual().obtenerNotas());
+        recuperado.rehacer();
+        assertEquals(List.of("Repetida", "Otra"), recuperado.getCasoActual().obtenerNotas());
+        recuperado.deshacer();
+        recuperado.deshacer(); // Quita la repetida más reciente, no la restaurada
+        assertEquals(List.of("Otra", "Repetida"), recuperado.getCasoActual().obtenerNotas());
+        recuperado.cerrar();
+    }
+
+    @Test
+    public void losCasosFinalizadosSalenDeMemoriaYSeLeenDelArchivo() {
+        GestorCAE gestor = new GestorCAE(carpeta.resolve("tickets"));
+        for (String nombre : List.of("Ana", "Luis", "Eva")) {
+            gestor.recibirCaso(nombre, false);
+            gestor.atenderSiguienteCaso();
+            gestor.agregarNota("Beca de " + nombre);
+            gestor.finalizarCaso();
+        }
+        assertTrue(gestor.getCasosFinalizados().isEmpty());
+        assertArrayEquals(new int[]{1, 2, 3}, gestor.getTicketsArchivados());
+        assertNull(gestor.consultarTicketEn(2, 0)); // Ya no está en memoria
+
+        gestor.borrarArchivoDeTicket(3); // ticket_3.txt no existe en la carpeta del proyecto
+        String finalizados = salidaDe(gestor::mostrarCasosFinalizados);
+        assertTrue(finalizados.contains("Ticket #1") && finalizados.contains("Ticket #2"));
+        assertFalse(finalizados.contains("Ticket #3"));
+        assertFalse(finalizados.contains("más en el archivo"));
+
+        String encontrados = salidaDe(() -> gestor.buscarTicketsPorNota("beca"));
+        assertTrue(encontrados.contains("#1 - en el archivo") && encontrados.contains("#2 - en el archivo"));
+        assertFalse(encontrados.contains("#3"));
+        gestor.cerrar();
+    }
+
+    private static String salidaDe(Runnable accion) {
+        PrintStream original = System.out;
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(salida, true, StandardCharsets.UTF_8));
+        try {
+            accion.run();
+        } finally {
+            System.setOut(original);
+        }
+        return salida.toString(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> describir(Iterable<Caso> casos) {
+        List<String> descripcion = new ArrayList<>();
+        for (Caso caso : casos) {
+            descripcion.add(caso.getId() + " " + caso.getEstudiante() + " " + caso.isUrgente() + " "
+                    + caso.getEstado() + " " + caso.obtenerNotas());
+        }
+        return descripcion;
+    }
+}